@@ -0,0 +1,33 @@
+#!/usr/bin/env bash
+# Сравнение объема и времени до первого байта для списка пользователей:
+# JSON без сжатия, JSON с gzip, NDJSON-поток без сжатия и с gzip.
+#
+#   ./scripts/compression-benchmark.sh [базовый URL] [запусков]
+#
+# Сервис должен быть запущен и наполнен данными (чем больше пользователей, тем нагляднее).
+set -euo pipefail
+
+BASE_URL="${1:-http://localhost:8081}"
+RUNS="${2:-10}"
+URL="$BASE_URL/api/v1/users"
+
+# вариант | Accept | Accept-Encoding
+VARIANTS=(
+  "json|application/hal+json|identity"
+  "json+gzip|application/hal+json|gzip"
+  "ndjson|application/x-ndjson|identity"
+  "ndjson+gzip|application/x-ndjson|gzip"
+)
+
+printf '%-12s %12s %12s %12s\n' "вариант" "байт" "TTFB, мс" "всего, мс"
+for variant in "${VARIANTS[@]}"; do
+  IFS='|' read -r name accept encoding <<<"$variant"
+  for _ in $(seq 1 "$RUNS"); do
+    # Без --compressed: size_download — это байты, реально переданные по сети
+    curl -s -o /dev/null \
+      -H "Accept: $accept" -H "Accept-Encoding: $encoding" \
+      -w '%{size_download} %{time_starttransfer} %{time_total}\n' "$URL"
+  done | awk -v name="$name" '
+    { bytes += $1; ttfb += $2; total += $3 }
+    END { printf "%-12s %12d %12.1f %12.1f\n", name, bytes / NR, ttfb * 1000 / NR, total * 1000 / NR }'
+done
@@ -0,0 +1,90 @@
+// Нагрузочный тест API пользователей для сравнения сервлетного (JPA) и реактивного (R2DBC) вариантов.
+// Оба варианта запускаются по очереди на одной машине с одной и той же БД и одинаковым числом соединений:
+//
+//   java -jar target/backendstud-1.0-SNAPSHOT.jar                                  # сервлетный, порт 8081
+//   java -cp target/backendstud-1.0-SNAPSHOT.jar \
+//        -Dloader.main=ru.astondevs.learn.vorobev.reactive.ReactiveLearnApplication \
+//        org.springframework.boot.loader.launch.PropertiesLauncher                 # реактивный, порт 8082
+//
+//   k6 run -e BASE_URL=http://localhost:8081 scripts/load-test.js
+//   k6 run -e BASE_URL=http://localhost:8082 scripts/load-test.js
+//
+// Сценарий reads — быстрые клиенты (90% чтений по ID, 10% записей), slow_clients — открытые соединения,
+// которые медленно читают NDJSON-выгрузку. Сравниваются p95/p99 http_req_duration, http_reqs и ошибки.
+import http from 'k6/http';
+import { check, sleep } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8081';
+const USERS = `${BASE_URL}/api/v1/users`;
+const VUS = parseInt(__ENV.VUS || '200', 10);
+const SLOW_VUS = parseInt(__ENV.SLOW_VUS || '1000', 10);
+const DURATION = __ENV.DURATION || '2m';
+
+export const options = {
+  scenarios: {
+    reads: {
+      executor: 'constant-vus',
+      vus: VUS,
+      duration: DURATION,
+      exec: 'readsAndWrites',
+    },
+    slow_clients: {
+      executor: 'constant-vus',
+      vus: SLOW_VUS,
+      duration: DURATION,
+      exec: 'slowStream',
+    },
+  },
+  thresholds: {
+    'http_req_failed{scenario:reads}': ['rate<0.01'],
+    'http_req_duration{scenario:reads}': ['p(99)<500'],
+  },
+};
+
+export function setup() {
+  const ids = [];
+  for (let i = 0; i < 200; i++) {
+    const res = http.post(USERS, JSON.stringify({
+      name: `Нагрузка ${i}`,
+      email: `load-${Date.now()}-${i}@example.com`,
+      age: 20 + (i % 50),
+    }), { headers: { 'Content-Type': 'application/json' } });
+    if (res.status === 201) {
+      ids.push(res.json('id'));
+    }
+  }
+  return { ids };
+}
+
+export function readsAndWrites(data) {
+  const id = data.ids[Math.floor(Math.random() * data.ids.length)];
+  if (Math.random() < 0.9) {
+    check(http.get(`${USERS}/${id}`, { tags: { name: 'GET /users/{id}' } }), {
+      'чтение 200': (r) => r.status === 200,
+    });
+  } else {
+    check(http.put(`${USERS}/${id}`, JSON.stringify({ age: 18 + Math.floor(Math.random() * 60) }), {
+      headers: { 'Content-Type': 'application/json' },
+      tags: { name: 'PUT /users/{id}' },
+    }), {
+      'запись 200': (r) => r.status === 200,
+    });
+  }
+}
+
+export function slowStream() {
+  // k6 не умеет читать тело по частям; медленный клиент имитируется задержкой между запросами
+  // и низкой скоростью приема на уровне ОС (например, tc qdisc) при необходимости
+  http.get(USERS, {
+    headers: { Accept: 'application/x-ndjson' },
+    tags: { name: 'GET /users (ndjson)' },
+    timeout: '120s',
+  });
+  sleep(1);
+}
+
+export function teardown(data) {
+  for (const id of data.ids) {
+    http.del(`${USERS}/${id}`);
+  }
+}
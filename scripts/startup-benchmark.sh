@@ -0,0 +1,81 @@
+#!/usr/bin/env bash
+# Замер времени старта learn-app в разных режимах сборки.
+#
+#   ./scripts/startup-benchmark.sh [запусков]
+#
+# Для каждого режима jar собирается заново (mvn -DskipTests package с нужными профилями),
+# затем приложение стартует несколько раз; берется время из строки
+# "Started LearnApplication in X seconds" и пиковый RSS процесса.
+# Нужны запущенные Postgres и Kafka (config server и Eureka необязательны).
+# Адрес БД обычно приходит из config server; без него берется DB_URL/DB_USERNAME/DB_PASSWORD.
+set -euo pipefail
+
+RUNS="${1:-5}"
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+JAR="$ROOT/target/backendstud-1.0-SNAPSHOT.jar"
+JSA="$ROOT/target/backendstud-1.0-SNAPSHOT.jsa"
+LOG="$(mktemp)"
+DB_URL="${DB_URL:-jdbc:postgresql://localhost:5432/users}"
+DB_USERNAME="${DB_USERNAME:-postgres}"
+DB_PASSWORD="${DB_PASSWORD:-postgres}"
+trap 'rm -f "$LOG"' EXIT
+
+# режим | профили Maven | флаги JVM
+MODES=(
+  "jit||"
+  "cds|-Pcds|-XX:SharedArchiveFile=$JSA"
+  "aot|-Pcds,aot|-Dspring.aot.enabled=true"
+  "aot+cds|-Pcds,aot|-Dspring.aot.enabled=true -XX:SharedArchiveFile=$JSA"
+)
+
+start_once() {
+  local flags="$1"
+  # shellcheck disable=SC2086
+  java $flags -Dserver.port=0 -Dmanagement.server.port=0 \
+    -Dspring.datasource.url="$DB_URL" \
+    -Dspring.datasource.username="$DB_USERNAME" \
+    -Dspring.datasource.password="$DB_PASSWORD" \
+    -jar "$JAR" >"$LOG" 2>&1 &
+  local pid=$!
+  local seconds=""
+  for _ in $(seq 1 600); do
+    seconds="$(grep -oE 'Started LearnApplication in [0-9.]+' "$LOG" | awk '{print $4}' || true)"
+    if [[ -n "$seconds" ]] || ! kill -0 "$pid" 2>/dev/null; then
+      break
+    fi
+    sleep 0.1
+  done
+  local rss_kb
+  rss_kb="$(ps -o rss= -p "$pid" 2>/dev/null | tr -d ' ' || echo 0)"
+  kill "$pid" 2>/dev/null || true
+  wait "$pid" 2>/dev/null || true
+  if [[ -z "$seconds" ]]; then
+    echo "Приложение не стартовало, лог: $LOG" >&2
+    tail -n 30 "$LOG" >&2
+    exit 1
+  fi
+  echo "$seconds $((rss_kb / 1024))"
+}
+
+printf '%-8s %10s %10s %10s %10s\n' "режим" "min, с" "avg, с" "max, с" "RSS, МБ"
+for mode in "${MODES[@]}"; do
+  IFS='|' read -r name profiles flags <<<"$mode"
+  # В режиме jit нужен тонкий jar с target/lib, поэтому собираем его профилем cds без архива
+  if [[ -z "$profiles" ]]; then
+    profiles="-Pcds -Dexec.skip=true"
+  fi
+  # shellcheck disable=SC2086
+  (cd "$ROOT" && mvn -B -q -DskipTests clean package $profiles)
+
+  results=()
+  for _ in $(seq 1 "$RUNS"); do
+    results+=("$(start_once "$flags")")
+  done
+  printf '%s\n' "${results[@]}" | awk -v name="$name" '
+    { t[NR] = $1; sum += $1; rss += $2 }
+    END {
+      min = t[1]; max = t[1]
+      for (i = 2; i <= NR; i++) { if (t[i] < min) min = t[i]; if (t[i] > max) max = t[i] }
+      printf "%-8s %10.2f %10.2f %10.2f %10d\n", name, min, sum / NR, max, rss / NR
+    }'
+done
@@ -0,0 +1,139 @@
+package ru.astondevs.learn.vorobev.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import ru.astondevs.learn.vorobev.dto.UserEvent;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.kafka.UserEventSchemas;
+import ru.astondevs.learn.vorobev.kafka.UserEventSerializer;
+import ru.astondevs.learn.vorobev.web.UserResponseSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение стандартной сериализации со сгенерированными аксессорами и ручными сериализаторами.
+ * Перед замером {@link #setUp} проверяет, что оба варианта дают одинаковые байты.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1", "100"})
+    public int users;
+
+    private ObjectMapper defaultMapper;
+    private ObjectMapper tunedMapper;
+    private List<UserResponse> page;
+
+    private final UserEventSerializer eventSerializer = new UserEventSerializer();
+    private final GenericDatumWriter<GenericRecord> genericWriter = new GenericDatumWriter<>(UserEventSchemas.CURRENT);
+    private final UserEvent event = new UserEvent(42L, 3L, "ivan@example.com", "UPDATE");
+
+    @Setup
+    public void setUp() throws IOException {
+        defaultMapper = hal(false);
+        tunedMapper = hal(true);
+        page = new ArrayList<>(users);
+        for (long id = 1; id <= users; id++) {
+            page.add(user(id));
+        }
+
+        if (!Arrays.equals(defaultMapper.writeValueAsBytes(page), tunedMapper.writeValueAsBytes(page))) {
+            throw new IllegalStateException("JSON ручного сериализатора UserResponse отличается от стандартного");
+        }
+        byte[] direct = eventSerializer.serialize("user-events", event);
+        if (!Arrays.equals(Arrays.copyOfRange(direct, UserEventSchemas.HEADER_SIZE, direct.length), genericAvro())) {
+            throw new IllegalStateException("Avro ручного сериализатора UserEvent отличается от GenericDatumWriter");
+        }
+    }
+
+    @Benchmark
+    public byte[] userResponseDefault() throws IOException {
+        return defaultMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] userResponseTuned() throws IOException {
+        return tunedMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] userEventGenericRecord() throws IOException {
+        return genericAvro();
+    }
+
+    @Benchmark
+    public byte[] userEventDirect() {
+        return eventSerializer.serialize("user-events", event);
+    }
+
+    private byte[] genericAvro() throws IOException {
+        GenericRecord record = new GenericData.Record(UserEventSchemas.CURRENT);
+        record.put("userId", event.getUserId());
+        record.put("version", event.getVersion());
+        record.put("email", event.getEmail());
+        record.put("operation", new GenericData.EnumSymbol(
+                UserEventSchemas.CURRENT.getField("operation").schema(), event.getOperation()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        genericWriter.write(record, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+
+    private static ObjectMapper hal(boolean tuned) {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        if (tuned) {
+            mapper.registerModule(new BlackbirdModule());
+            mapper.registerModule(new SimpleModule("user-response").setSerializerModifier(UserResponseSerializer.modifier()));
+        }
+        mapper.registerModule(new Jackson2HalModule());
+        mapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                new DefaultLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        return mapper;
+    }
+
+    private static UserResponse user(long id) {
+        UserResponse user = new UserResponse(id, "Пользователь " + id, "user" + id + "@example.com", 30,
+                LocalDateTime.of(2024, 5, 1, 12, 30, 15));
+        user.add(Link.of("http://localhost:8081/api/v1/users/" + id).withSelfRel());
+        user.add(Link.of("http://localhost:8081/api/v1/users").withRel("users_list"));
+        user.add(Link.of("http://localhost:8081/api/v1/users/" + id).withRel("update"));
+        user.add(Link.of("http://localhost:8081/api/v1/users/" + id).withRel("delete"));
+        return user;
+    }
+}
@@ -2,10 +2,19 @@ package ru.astondevs.learn.vorobev;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// R2DBC попадает в classpath только со сборкой -Preactive; в сервлетном режиме он не нужен
+// и добавил бы второй TransactionManager рядом с JPA
+@SpringBootApplication(excludeName = {
+        "org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration",
+        "org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration",
+        "org.springframework.boot.autoconfigure.data.r2dbc.R2dbcDataAutoConfiguration",
+        "org.springframework.boot.autoconfigure.data.r2dbc.R2dbcRepositoriesAutoConfiguration"
+})
+@EnableScheduling
 public class LearnApplication {
     public static void main(String[] args) {
         SpringApplication.run(LearnApplication.class, args);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасный фильтр Блума для long и строковых ключей.
+ * {@code mightContain == false} означает, что ключ точно не добавлялся; удаление не поддерживается.
+ */
+public final class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final int numBits;
+    private final int numHashes;
+
+    private BloomFilter(int numBits, int numHashes) {
+        this.numBits = numBits;
+        this.numHashes = numHashes;
+        this.words = new AtomicLongArray((numBits + 63) >>> 6);
+    }
+
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (LN2 * LN2));
+        int numBits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, bits));
+        int numHashes = Math.max(1, (int) Math.round((double) numBits / n * LN2));
+        return new BloomFilter(numBits, numHashes);
+    }
+
+    public void put(long key) {
+        set(mix64(key));
+    }
+
+    public void put(String key) {
+        set(hash(key));
+    }
+
+    public boolean mightContain(long key) {
+        return test(mix64(key));
+    }
+
+    public boolean mightContain(String key) {
+        return test(hash(key));
+    }
+
+    private void set(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+            int index = bit >>> 6;
+            long mask = 1L << bit;
+            long word;
+            do {
+                word = words.get(index);
+                if ((word & mask) != 0) {
+                    break;
+                }
+            } while (!words.compareAndSet(index, word, word | mask));
+        }
+    }
+
+    private boolean test(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+            if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a по символам строки с финальным перемешиванием
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix64(h);
+    }
+
+    // Финализатор SplitMix64
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
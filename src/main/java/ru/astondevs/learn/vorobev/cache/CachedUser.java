@@ -0,0 +1,36 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import lombok.Value;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.entity.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Неизменяемая копия пользователя для кэшей. {@link UserResponse} хранить нельзя:
+ * контроллер добавляет в него ссылки, и закэшированный объект бы разрастался.
+ */
+@Value
+public class CachedUser {
+    Long id;
+    String name;
+    String email;
+    Integer age;
+    LocalDateTime createdAt;
+    Long version;
+
+    public static CachedUser fromEntity(User user) {
+        return new CachedUser(
+                user.getId(),
+                user.getName(),
+                user.getEmail(),
+                user.getAge(),
+                user.getCreatedAt(),
+                user.getVersion()
+        );
+    }
+
+    public UserResponse toResponse() {
+        return new UserResponse(id, name, email, age, createdAt);
+    }
+}
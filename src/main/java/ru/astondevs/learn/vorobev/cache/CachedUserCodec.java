@@ -0,0 +1,74 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Компактное бинарное представление {@link CachedUser} для общего кэша (в 2–3 раза меньше JSON).
+ * Первый байт — версия формата; значения другого формата считаются промахом.
+ */
+public final class CachedUserCodec {
+
+    private static final byte FORMAT_V1 = 1;
+
+    private CachedUserCodec() {
+    }
+
+    public static byte[] encode(CachedUser user) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_V1);
+            out.writeLong(user.getId());
+            writeNullableLong(out, user.getVersion());
+            out.writeInt(user.getAge());
+            out.writeBoolean(user.getCreatedAt() != null);
+            if (user.getCreatedAt() != null) {
+                out.writeLong(user.getCreatedAt().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(user.getCreatedAt().getNano());
+            }
+            out.writeUTF(user.getName());
+            out.writeUTF(user.getEmail());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Возвращает null, если значение записано в неизвестном формате. */
+    public static CachedUser decode(byte[] value) {
+        if (value == null || value.length == 0 || value[0] != FORMAT_V1) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(value, 1, value.length - 1))) {
+            long id = in.readLong();
+            Long version = readNullableLong(in);
+            int age = in.readInt();
+            LocalDateTime createdAt = null;
+            if (in.readBoolean()) {
+                createdAt = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+            }
+            String name = in.readUTF();
+            String email = in.readUTF();
+            return new CachedUser(id, name, email, age, createdAt, version);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeNullableLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readNullableLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+}
@@ -0,0 +1,353 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.astondevs.learn.vorobev.dto.UserChangeEvent;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.dto.UserSnapshot;
+import ru.astondevs.learn.vorobev.entity.User;
+import ru.astondevs.learn.vorobev.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Необязательная копия таблицы users в памяти в колоночном виде ({@code app.columnar.enabled}).
+ * <p>
+ * ID, возраст и {@code createdAt} (в секундах) хранятся в примитивных массивах, имена и email —
+ * кодами словаря, поиск строки по ID — через {@link LongIntHashMap}. Хранилище заполняется
+ * полным сканированием и дальше следует за потоком изменений {@code user-changes}.
+ * <p>
+ * Поток отстает от БД на время публикации outbox, поэтому хранилище отвечает только
+ * положительно: пользователя, которого здесь нет, вызывающий ищет в БД. Изменения, сделанные
+ * на этом экземпляре, применяются сразу после коммита ({@link #putAfterCommit}, {@link #evictAfterCommit}),
+ * иначе клиент, изменивший пользователя, читал бы здесь старые данные до прихода события.
+ * <p>
+ * Поэтому события могут приходить позже уже примененного изменения. Каждая строка помнит время
+ * своего изменения ({@code occurredAt} события, {@code updated_at} при сканировании), и более старое
+ * событие не применяется. ID не переиспользуются, поэтому удаленный пользователь запоминается
+ * и не возвращается запоздавшим UPDATE; такие отметки живут две перестройки. Сравниваются часы
+ * разных экземпляров: при расхождении больше интервала между изменениями одного пользователя
+ * событие может быть пропущено до следующей перестройки.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "false", matchIfMissing = true)
+@RequiredArgsConstructor
+public class ColumnarUserStore {
+
+    private static final long NO_CREATED_AT = Long.MIN_VALUE;
+    // Время изменения неизвестно (например, событие без occurredAt): применяется без проверки порядка
+    private static final long UNKNOWN_STAMP = Long.MIN_VALUE;
+
+    private final UserRepository userRepository;
+
+    @Value("${app.columnar.enabled:false}")
+    private boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Под lock
+    private Columns columns;
+    private List<Consumer<Columns>> pendingDuringRebuild;
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return columns != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<UserResponse> find(long id) {
+        lock.readLock().lock();
+        try {
+            if (columns == null) {
+                return Optional.empty();
+            }
+            int row = columns.index.get(id);
+            return row == LongIntHashMap.MISSING ? Optional.empty() : Optional.of(columns.toResponse(row));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Пользователи с возрастом в диапазоне [minAge, maxAge]; null — граница не задана. */
+    public List<UserResponse> findByAge(Integer minAge, Integer maxAge) {
+        int min = minAge != null ? minAge : Integer.MIN_VALUE;
+        int max = maxAge != null ? maxAge : Integer.MAX_VALUE;
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            List<UserResponse> result = new ArrayList<>();
+            for (int row = 0; row < c.rows; row++) {
+                if (c.ids[row] != 0 && c.ages[row] >= min && c.ages[row] <= max) {
+                    result.add(c.toResponse(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long countByAge(Integer minAge, Integer maxAge) {
+        if (minAge == null && maxAge == null) {
+            lock.readLock().lock();
+            try {
+                return columns.index.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        int min = minAge != null ? minAge : Integer.MIN_VALUE;
+        int max = maxAge != null ? maxAge : Integer.MAX_VALUE;
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            long count = 0;
+            for (int row = 0; row < c.rows; row++) {
+                if (c.ids[row] != 0 && c.ages[row] >= min && c.ages[row] <= max) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onUserChange(UserChangeEvent event) {
+        if (!enabled || event.getUserId() == null) {
+            return;
+        }
+        UserSnapshot after = event.getAfter();
+        long stamp = stamp(event.getOccurredAt());
+        if (after == null) {
+            apply(c -> c.delete(event.getUserId()));
+        } else {
+            apply(c -> c.upsert(event.getUserId(), after.getName(), after.getEmail(), after.getAge(),
+                    after.getCreatedAt(), stamp));
+        }
+    }
+
+    /** {@code changedAt} — время события, записанного в outbox для этого же изменения. */
+    public void putAfterCommit(User user, LocalDateTime changedAt) {
+        if (!enabled) {
+            return;
+        }
+        long stamp = stamp(changedAt);
+        UserCache.runAfterCommit(() -> apply(c -> c.upsert(user.getId(), user.getName(), user.getEmail(),
+                user.getAge(), user.getCreatedAt(), stamp)));
+    }
+
+    public void evictAfterCommit(long id) {
+        if (!enabled) {
+            return;
+        }
+        UserCache.runAfterCommit(() -> apply(c -> c.delete(id)));
+    }
+
+    private static long stamp(LocalDateTime time) {
+        if (time == null) {
+            return UNKNOWN_STAMP;
+        }
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    private void apply(Consumer<Columns> change) {
+        lock.writeLock().lock();
+        try {
+            if (columns != null) {
+                change.accept(columns);
+            }
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Полная перестройка: убирает удаленные строки и неиспользуемые значения словарей
+     * и исправляет расхождения, если часть событий была пропущена.
+     */
+    @Scheduled(initialDelayString = "${app.columnar.initial-delay-ms:0}",
+            fixedDelayString = "${app.columnar.rebuild-interval-ms:3600000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Columns fresh;
+        try {
+            fresh = new Columns((int) Math.max(16, userRepository.count()));
+            try (Stream<Object[]> rows = userRepository.streamAllRows()) {
+                rows.forEach(row -> fresh.upsert((Long) row[0], (String) row[1], (String) row[2],
+                        (Integer) row[3], (LocalDateTime) row[4], stamp((LocalDateTime) row[5])));
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (columns != null) {
+                fresh.previouslyDeleted = columns.deleted;
+            }
+            // Изменения, пришедшие во время сканирования, могли не попасть в его результат
+            for (Consumer<Columns> change : pendingDuringRebuild) {
+                change.accept(fresh);
+            }
+            pendingDuringRebuild = null;
+            columns = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Колоночная копия пользователей перестроена: {} записей, {} имен в словаре",
+                fresh.index.size(), fresh.names.size());
+    }
+
+    private static final class Columns {
+        private long[] ids;
+        private int[] ages;
+        private long[] createdAt;
+        private long[] changedAt;
+        private int[] nameCodes;
+        private int[] emailCodes;
+        private int rows;
+
+        // Удаления с прошлой перестройки и до нее; удаления редки, поэтому обычные множества
+        private final Set<Long> deleted = new HashSet<>();
+        private Set<Long> previouslyDeleted = Set.of();
+
+        private final LongIntHashMap index;
+        private final StringDictionary names = new StringDictionary();
+        private final StringDictionary emails = new StringDictionary();
+
+        private Columns(int capacity) {
+            ids = new long[capacity];
+            ages = new int[capacity];
+            createdAt = new long[capacity];
+            changedAt = new long[capacity];
+            nameCodes = new int[capacity];
+            emailCodes = new int[capacity];
+            index = new LongIntHashMap(capacity);
+        }
+
+        void upsert(long id, String name, String email, Integer age, LocalDateTime created, long stamp) {
+            if (deleted.contains(id) || previouslyDeleted.contains(id)) {
+                return;
+            }
+            int row = index.get(id);
+            if (row == LongIntHashMap.MISSING) {
+                if (rows == ids.length) {
+                    grow();
+                }
+                row = rows++;
+                ids[row] = id;
+                index.put(id, row);
+                changedAt[row] = stamp;
+            } else if (stamp != UNKNOWN_STAMP && stamp < changedAt[row]) {
+                return; // Запоздавшее событие: строка уже содержит более новое изменение
+            } else {
+                changedAt[row] = Math.max(changedAt[row], stamp);
+            }
+            ages[row] = age != null ? age : 0;
+            createdAt[row] = created != null ? created.toEpochSecond(ZoneOffset.UTC) : NO_CREATED_AT;
+            nameCodes[row] = names.encode(name);
+            emailCodes[row] = emails.encode(email);
+        }
+
+        void delete(long id) {
+            deleted.add(id);
+            int row = index.remove(id);
+            if (row != LongIntHashMap.MISSING) {
+                // Строка остается дырой до следующей перестройки
+                ids[row] = 0;
+            }
+        }
+
+        UserResponse toResponse(int row) {
+            long created = createdAt[row];
+            return new UserResponse(
+                    ids[row],
+                    names.decode(nameCodes[row]),
+                    emails.decode(emailCodes[row]),
+                    ages[row],
+                    created == NO_CREATED_AT ? null : LocalDateTime.ofEpochSecond(created, 0, ZoneOffset.UTC));
+        }
+
+        private void grow() {
+            int capacity = ids.length + (ids.length >> 1) + 1;
+            ids = Arrays.copyOf(ids, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            createdAt = Arrays.copyOf(createdAt, capacity);
+            changedAt = Arrays.copyOf(changedAt, capacity);
+            nameCodes = Arrays.copyOf(nameCodes, capacity);
+            emailCodes = Arrays.copyOf(emailCodes, capacity);
+        }
+    }
+
+    private static final class StringDictionary {
+        private static final int NULL_CODE = -1;
+
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return code == NULL_CODE ? null : values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * Встроенная замена внешнего хранилища для тестов и локального запуска.
+ */
+public class InMemorySharedUserCache implements SharedUserCache {
+
+    private final Cache<String, Entry> entries;
+
+    public InMemorySharedUserCache(long maxSize) {
+        this.entries = Caffeine.newBuilder().maximumSize(maxSize).build();
+    }
+
+    @Override
+    public String name() {
+        return "memory";
+    }
+
+    @Override
+    public byte[] get(String key) {
+        Entry entry = entries.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtNanos - System.nanoTime() <= 0) {
+            entries.asMap().remove(key, entry);
+            return null;
+        }
+        return entry.value.clone();
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        entries.put(key, new Entry(value.clone(), System.nanoTime() + ttl.toNanos()));
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, byte[] value, Duration ttl) {
+        Entry created = new Entry(value.clone(), System.nanoTime() + ttl.toNanos());
+        Entry current = entries.asMap().compute(key, (k, existing) ->
+                existing != null && existing.expiresAtNanos - System.nanoTime() > 0 ? existing : created);
+        return current == created;
+    }
+
+    @Override
+    public void evict(String key) {
+        entries.invalidate(key);
+    }
+
+    private static final class Entry {
+        private final byte[] value;
+        private final long expiresAtNanos;
+
+        private Entry(byte[] value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
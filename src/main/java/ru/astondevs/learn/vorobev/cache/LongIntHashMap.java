@@ -0,0 +1,119 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import java.util.Arrays;
+
+/**
+ * Хеш-таблица long → int с открытой адресацией без упаковки ключей в {@link Long}.
+ * Ключ 0 зарезервирован под пустую ячейку (ID пользователей начинаются с 1).
+ * Не потокобезопасна: синхронизацию обеспечивает владелец.
+ */
+final class LongIntHashMap {
+
+    static final int MISSING = -1;
+
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int resizeAt;
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            long existing = keys[slot];
+            if (existing == key) {
+                return values[slot];
+            }
+            if (existing == EMPTY) {
+                return MISSING;
+            }
+        }
+    }
+
+    void put(long key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Ключ 0 зарезервирован");
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            if (++size >= resizeAt) {
+                values[slot] = value;
+                rehash(keys.length << 1);
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+
+    int remove(long key) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                return MISSING;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int removed = values[slot];
+        size--;
+
+        // Сдвигаем следующие элементы цепочки, чтобы поиск не обрывался на дыре
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int ideal = slot(keys[next], mask);
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != EMPTY) {
+                int slot = slot(key, mask);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
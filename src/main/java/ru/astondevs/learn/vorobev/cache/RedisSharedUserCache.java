@@ -0,0 +1,37 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+
+@RequiredArgsConstructor
+public class RedisSharedUserCache implements SharedUserCache {
+
+    private final RedisTemplate<String, byte[]> redisTemplate;
+
+    @Override
+    public String name() {
+        return "redis";
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return redisTemplate.opsForValue().get(key);
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        redisTemplate.opsForValue().set(key, value, ttl);
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, byte[] value, Duration ttl) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, value, ttl));
+    }
+
+    @Override
+    public void evict(String key) {
+        redisTemplate.delete(key);
+    }
+}
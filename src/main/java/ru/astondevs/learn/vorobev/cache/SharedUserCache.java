@@ -0,0 +1,22 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import java.time.Duration;
+
+/**
+ * Второй, общий для всех экземпляров сервиса уровень кэша (внешнее key-value хранилище).
+ * Работает с уже закодированными значениями, поэтому реализации не зависят от модели данных.
+ */
+public interface SharedUserCache {
+
+    /** Имя реализации для метрик и логов. */
+    String name();
+
+    byte[] get(String key);
+
+    void put(String key, byte[] value, Duration ttl);
+
+    /** Записывает значение, только если ключа нет; возвращает true, если запись состоялась. */
+    boolean putIfAbsent(String key, byte[] value, Duration ttl);
+
+    void evict(String key);
+}
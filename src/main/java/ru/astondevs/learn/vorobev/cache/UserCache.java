@@ -0,0 +1,262 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.astondevs.learn.vorobev.dto.UserChangeEvent;
+import ru.astondevs.learn.vorobev.entity.User;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Двухуровневый кэш пользователей: локальный Caffeine (L1) и необязательный общий {@link SharedUserCache} (L2).
+ * Промах L1 сначала идет в L2, поэтому новый или перезапущенный экземпляр прогревается из общего кэша,
+ * а не из Postgres. Ошибки L2 не прерывают запрос: он просто считается промахом.
+ * <p>
+ * L1 других экземпляров сбрасывается по событиям {@code user-changes}; если поток недоступен,
+ * отставание ограничено {@code app.cache.local.ttl}.
+ * <p>
+ * Копия, прочитанная из БД при промахе, кладется через {@link #putLoaded}: изменение, зафиксированное
+ * во время чтения, уже обновило кэш, и старая копия не должна его перезаписать.
+ */
+@Slf4j
+@Component
+public class UserCache {
+
+    private static final String KEY_PREFIX = "learn-app:user:v1:";
+    private static final int STAMP_SLOTS = 4096;
+    // Отметка удаления в L2: не декодируется (считается промахом) и не дает putIfAbsent вернуть удаленного
+    private static final byte[] DELETED = {0};
+
+    private final Cache<Long, CachedUser> local;
+    private final AtomicLongArray changeStamps = new AtomicLongArray(STAMP_SLOTS);
+    private final SharedUserCache shared;
+    private final Duration sharedTtl;
+    private final TierMetrics localMetrics;
+    private final TierMetrics sharedMetrics;
+
+    public UserCache(ObjectProvider<SharedUserCache> shared,
+                     ObjectProvider<MeterRegistry> meterRegistry,
+                     @Value("${app.cache.local.max-size:100000}") long localMaxSize,
+                     @Value("${app.cache.local.ttl:60s}") Duration localTtl,
+                     @Value("${app.cache.shared.ttl:10m}") Duration sharedTtl) {
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+        this.shared = shared.getIfAvailable();
+        this.sharedTtl = sharedTtl;
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.localMetrics = new TierMetrics(registry, "local");
+        this.sharedMetrics = new TierMetrics(registry, this.shared != null ? this.shared.name() : "none");
+        if (registry != null) {
+            CaffeineCacheMetrics.monitor(registry, local, "users.local");
+        }
+    }
+
+    public Optional<CachedUser> get(long id) {
+        CachedUser user = local.getIfPresent(id);
+        if (user != null) {
+            localMetrics.hit();
+            return Optional.of(user);
+        }
+        localMetrics.miss();
+
+        if (shared == null) {
+            return Optional.empty();
+        }
+        long stamp = changeStamp(id);
+        try {
+            user = CachedUserCodec.decode(shared.get(key(id)));
+        } catch (RuntimeException e) {
+            sharedMetrics.error();
+            log.debug("Общий кэш недоступен при чтении пользователя {}: {}", id, e.getMessage());
+            return Optional.empty();
+        }
+        if (user == null) {
+            sharedMetrics.miss();
+            return Optional.empty();
+        }
+        sharedMetrics.hit();
+        putLocalIfUnchanged(user, stamp);
+        return Optional.of(user);
+    }
+
+    public void put(CachedUser user) {
+        local.put(user.getId(), user);
+        if (shared != null) {
+            try {
+                shared.put(key(user.getId()), CachedUserCodec.encode(user), sharedTtl);
+            } catch (RuntimeException e) {
+                sharedMetrics.error();
+                log.debug("Общий кэш недоступен при записи пользователя {}: {}", user.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Отметка изменений пользователя для {@link #putLoaded}. Берется до чтения из БД; любое изменение
+     * пользователя после этого (запись после коммита, событие {@code user-changes}) ее сдвигает.
+     */
+    public long changeStamp(long id) {
+        return changeStamps.get(slot(id));
+    }
+
+    /**
+     * Кладет в кэш пользователя, прочитанного из БД при промахе. Если за время чтения пользователь
+     * изменился на этом экземпляре, копия не кэшируется. В L2 запись только при отсутствии ключа:
+     * изменение с другого экземпляра уже записало туда новую версию или отметку удаления.
+     */
+    public void putLoaded(CachedUser user, long stamp) {
+        if (!putLocalIfUnchanged(user, stamp) || shared == null) {
+            return;
+        }
+        try {
+            shared.putIfAbsent(key(user.getId()), CachedUserCodec.encode(user), sharedTtl);
+        } catch (RuntimeException e) {
+            sharedMetrics.error();
+            log.debug("Общий кэш недоступен при записи пользователя {}: {}", user.getId(), e.getMessage());
+        }
+    }
+
+    public long localSize() {
+        return local.estimatedSize();
+    }
+
+    /** Меняет размер и TTL L1 на ходу; при уменьшении лишние записи вытесняются в фоне Caffeine. */
+    public void resizeLocal(long maxSize, Duration ttl) {
+        local.policy().eviction().ifPresent(eviction -> eviction.setMaximum(maxSize));
+        local.policy().expireAfterWrite().ifPresent(expiration -> expiration.setExpiresAfter(ttl));
+    }
+
+    /** Удаляет пользователя из L1, а в L2 оставляет отметку удаления на время жизни записей L2. */
+    public void evict(long id) {
+        markChanged(id);
+        local.invalidate(id);
+        if (shared != null) {
+            try {
+                shared.put(key(id), DELETED, sharedTtl);
+            } catch (RuntimeException e) {
+                sharedMetrics.error();
+                log.warn("Не удалось удалить пользователя {} из общего кэша: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Кладет пользователя в кэш после фиксации транзакции. Снимок берется в этот момент,
+     * чтобы в кэш попала версия, присвоенная при flush, а откаченные изменения не попадали вовсе.
+     */
+    public void putAfterCommit(User user) {
+        runAfterCommit(() -> {
+            markChanged(user.getId());
+            put(CachedUser.fromEntity(user));
+        });
+    }
+
+    public void evictAfterCommit(long id) {
+        markChanged(id);
+        local.invalidate(id);
+        runAfterCommit(() -> evict(id));
+    }
+
+    @EventListener
+    public void onUserChange(UserChangeEvent event) {
+        if (event.getUserId() != null) {
+            markChanged(event.getUserId());
+            local.invalidate(event.getUserId());
+        }
+    }
+
+    /**
+     * Отметка сдвигается до изменения кэша, а проверяется и до, и после записи в L1: если изменение
+     * пришлось на саму запись, прочитанная копия удаляется и следующий запрос просто промахнется.
+     */
+    private boolean putLocalIfUnchanged(CachedUser user, long stamp) {
+        if (changeStamp(user.getId()) != stamp) {
+            return false;
+        }
+        local.put(user.getId(), user);
+        if (changeStamp(user.getId()) != stamp) {
+            local.invalidate(user.getId());
+            return false;
+        }
+        return true;
+    }
+
+    private void markChanged(long id) {
+        changeStamps.incrementAndGet(slot(id));
+    }
+
+    private static int slot(long id) {
+        return Long.hashCode(id) & (STAMP_SLOTS - 1);
+    }
+
+    /** Выполняет действие после фиксации текущей транзакции; вне транзакции — сразу. */
+    public static void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static String key(long id) {
+        return KEY_PREFIX + id;
+    }
+
+    private static final class TierMetrics {
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter errors;
+
+        private TierMetrics(MeterRegistry registry, String tier) {
+            this.hits = registry != null ? counter(registry, tier, "hit") : null;
+            this.misses = registry != null ? counter(registry, tier, "miss") : null;
+            this.errors = registry != null ? counter(registry, tier, "error") : null;
+        }
+
+        private static Counter counter(MeterRegistry registry, String tier, String result) {
+            return Counter.builder("user.cache.gets")
+                    .tag("tier", tier)
+                    .tag("result", result)
+                    .register(registry);
+        }
+
+        void hit() {
+            if (hits != null) {
+                hits.increment();
+            }
+        }
+
+        void miss() {
+            if (misses != null) {
+                misses.increment();
+            }
+        }
+
+        void error() {
+            if (errors != null) {
+                errors.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.astondevs.learn.vorobev.repository.UserRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Прогрев локального кэша пользователей при старте.
+ * <p>
+ * Spring Boot переводит readiness в ACCEPTING_TRAFFIC только после всех {@link ApplicationRunner},
+ * поэтому пока идет прогрев, балансировщик не шлет на экземпляр трафик. В Eureka экземпляр
+ * регистрируется со статусом STARTING ({@code eureka.instance.initial-status}) и переводится в UP здесь же,
+ * даже если прогрев выключен или не уложился в бюджет времени.
+ * <p>
+ * Последние обращения между перезапусками не сохраняются, поэтому «активными» считаются
+ * недавно измененные пользователи; часто читаемых общий кэш (L2) и так отдает без запросов в БД.
+ * В L2 прогрев пишет только отсутствующие ключи и не затирает версии, записанные другими экземплярами.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "false", matchIfMissing = true)
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class UserCacheWarmer implements ApplicationRunner {
+
+    private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final ObjectProvider<ApplicationInfoManager> applicationInfoManager;
+
+    @Value("${app.cache.warm-up.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.warm-up.max-users:10000}")
+    private int maxUsers;
+
+    @Value("${app.cache.warm-up.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.cache.warm-up.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.cache.warm-up.time-budget:20s}")
+    private Duration timeBudget;
+
+    public UserCacheWarmer(UserRepository userRepository,
+                           UserCache userCache,
+                           ObjectProvider<ApplicationInfoManager> applicationInfoManager) {
+        this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.applicationInfoManager = applicationInfoManager;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            if (enabled && maxUsers > 0) {
+                warmUp();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Прогрев кэша пользователей не удался, экземпляр стартует с пустым кэшем: {}", e.getMessage());
+        } finally {
+            markUp();
+        }
+    }
+
+    /**
+     * Загружает пользователей пачками в несколько потоков. Пачки, не успевшие выполниться
+     * за {@code time-budget}, отменяются: старт важнее полного прогрева.
+     */
+    void warmUp() {
+        long started = System.nanoTime();
+        List<Long> ids = userRepository.findRecentlyUpdatedIds(PageRequest.of(0, maxUsers));
+
+        List<Callable<Integer>> batches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            batches.add(() -> load(batch));
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism), task -> {
+            Thread thread = new Thread(task, "user-cache-warmup-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        int loaded = 0;
+        int cancelled = 0;
+        try {
+            long remaining = timeBudget.toNanos() - (System.nanoTime() - started);
+            for (Future<Integer> future : executor.invokeAll(batches, Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                if (future.isCancelled()) {
+                    cancelled++;
+                    continue;
+                }
+                try {
+                    loaded += future.get();
+                } catch (ExecutionException e) {
+                    log.warn("Пачка прогрева кэша не загружена: {}", e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        if (cancelled > 0) {
+            log.warn("Прогрев кэша прерван по бюджету {}: загружено {} из {}, отменено пачек {}",
+                    timeBudget, loaded, ids.size(), cancelled);
+        } else {
+            log.info("Кэш пользователей прогрет: {} записей за {} мс", loaded, elapsedMs);
+        }
+    }
+
+    /**
+     * Отметки берутся до запроса пачки: пользователь, измененный, пока пачка читалась,
+     * в кэш не попадет, как и при обычном промахе ({@link UserCache#putLoaded}).
+     */
+    private int load(List<Long> ids) {
+        Map<Long, Long> stamps = new HashMap<>(ids.size() * 2);
+        for (Long id : ids) {
+            stamps.put(id, userCache.changeStamp(id));
+        }
+        int count = 0;
+        for (CachedUser user : userRepository.findCachedByIdIn(ids)) {
+            userCache.putLoaded(user, stamps.get(user.getId()));
+            count++;
+        }
+        return count;
+    }
+
+    private void markUp() {
+        ApplicationInfoManager manager = applicationInfoManager.getIfAvailable();
+        if (manager != null) {
+            manager.setInstanceStatus(InstanceStatus.UP);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.astondevs.learn.vorobev.dto.UserChangeEvent;
+import ru.astondevs.learn.vorobev.dto.UserSnapshot;
+import ru.astondevs.learn.vorobev.dto.UserSuggestion;
+import ru.astondevs.learn.vorobev.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Индекс для подсказок при вводе: имена (целиком и по отдельным словам) и email
+ * в нижнем регистре, упорядоченные в {@link ConcurrentSkipListMap}. Поиск по префиксу — это
+ * {@code subMap} по диапазону ключей, первые K совпадений читаются без блокировок.
+ * <p>
+ * Индекс заполняется полным сканированием ({@code app.autocomplete.enabled}) и дальше следует
+ * за потоком {@code user-changes}, как {@link ColumnarUserStore}. Пока индекс не построен,
+ * подсказки ищутся в БД.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "false", matchIfMissing = true)
+@RequiredArgsConstructor
+public class UserPrefixIndex {
+
+    // Разделитель ключа меньше любого символа термина: "ив" + SEPARATOR + id идет раньше "ива..."
+    private static final char SEPARATOR = '\u0000';
+    private static final char MAX_CHAR = Character.MAX_VALUE;
+
+    private final UserRepository userRepository;
+
+    @Value("${app.autocomplete.enabled:true}")
+    private boolean enabled;
+
+    private volatile Index index;
+
+    // Под this
+    private List<UserChangeEvent> pendingDuringRebuild;
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /** До {@code limit} разных пользователей, у которых имя, слово имени или email начинается с {@code prefix}. */
+    public List<UserSuggestion> search(String prefix, int limit) {
+        Index current = index;
+        String term = normalize(prefix);
+        if (current == null || term.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        ConcurrentNavigableMap<String, Long> matches = current.terms.subMap(term, true, term + MAX_CHAR, true);
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Long id : matches.values()) {
+            ids.add(id);
+            if (ids.size() == limit) {
+                break;
+            }
+        }
+        List<UserSuggestion> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            UserSuggestion user = current.users.get(id);
+            // Пользователь мог быть удален между чтением ключа и карточки
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @EventListener
+    public synchronized void onUserChange(UserChangeEvent event) {
+        if (!enabled || event.getUserId() == null) {
+            return;
+        }
+        if (index != null) {
+            index.apply(event);
+        }
+        if (pendingDuringRebuild != null) {
+            pendingDuringRebuild.add(event);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.autocomplete.initial-delay-ms:0}",
+            fixedDelayString = "${app.autocomplete.rebuild-interval-ms:3600000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            pendingDuringRebuild = new ArrayList<>();
+        }
+
+        Index fresh = new Index();
+        try (Stream<Object[]> rows = userRepository.streamAllRows()) {
+            rows.forEach(row -> fresh.put(new UserSuggestion((Long) row[0], (String) row[1], (String) row[2])));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingDuringRebuild = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            // События, пришедшие во время сканирования, могли не попасть в его результат
+            for (UserChangeEvent event : pendingDuringRebuild) {
+                fresh.apply(event);
+            }
+            pendingDuringRebuild = null;
+            index = fresh;
+        }
+        log.info("Индекс подсказок пользователей перестроен: {} пользователей, {} ключей",
+                fresh.users.size(), fresh.terms.size());
+    }
+
+    public static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Index {
+        private final ConcurrentSkipListMap<String, Long> terms = new ConcurrentSkipListMap<>();
+        private final Map<Long, UserSuggestion> users = new ConcurrentHashMap<>();
+
+        void apply(UserChangeEvent event) {
+            UserSnapshot after = event.getAfter();
+            if (after == null) {
+                remove(event.getUserId());
+            } else {
+                put(new UserSuggestion(event.getUserId(), after.getName(), after.getEmail()));
+            }
+        }
+
+        void put(UserSuggestion user) {
+            UserSuggestion previous = users.put(user.getId(), user);
+            if (previous != null) {
+                keys(previous).forEach(terms::remove);
+            }
+            keys(user).forEach(key -> terms.put(key, user.getId()));
+        }
+
+        void remove(long id) {
+            UserSuggestion previous = users.remove(id);
+            if (previous != null) {
+                keys(previous).forEach(terms::remove);
+            }
+        }
+
+        private static Set<String> keys(UserSuggestion user) {
+            Set<String> keys = new LinkedHashSet<>();
+            String suffix = SEPARATOR + Long.toString(user.getId());
+            String name = normalize(user.getName());
+            if (!name.isEmpty()) {
+                keys.add(name + suffix);
+                for (String word : name.split("\\s+")) {
+                    keys.add(word + suffix);
+                }
+            }
+            String email = normalize(user.getEmail());
+            if (!email.isEmpty()) {
+                keys.add(email + suffix);
+            }
+            return keys;
+        }
+    }
+}
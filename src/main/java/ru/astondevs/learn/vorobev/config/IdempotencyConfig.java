@@ -0,0 +1,39 @@
+package ru.astondevs.learn.vorobev.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.astondevs.learn.vorobev.web.IdempotencyRecords;
+import ru.astondevs.learn.vorobev.web.InMemoryIdempotencyRecords;
+import ru.astondevs.learn.vorobev.web.JdbcIdempotencyRecords;
+
+import java.time.Duration;
+
+/**
+ * Выбор хранилища ключей Idempotency-Key: {@code app.idempotency.store} = jdbc | memory.
+ */
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.idempotency.store", havingValue = "jdbc", matchIfMissing = true)
+    public IdempotencyRecords jdbcIdempotencyRecords(JdbcTemplate jdbcTemplate,
+                                                     @Value("${app.idempotency.initialize-schema:false}") boolean initializeSchema) {
+        if (initializeSchema) {
+            new ResourceDatabasePopulator(new ClassPathResource("db/idempotency-keys.sql"))
+                    .execute(jdbcTemplate.getDataSource());
+        }
+        return new JdbcIdempotencyRecords(jdbcTemplate);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.idempotency.store", havingValue = "memory")
+    public IdempotencyRecords inMemoryIdempotencyRecords(@Value("${app.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                                                         @Value("${app.idempotency.max-keys:100000}") long maxKeys) {
+        return new InMemoryIdempotencyRecords(Duration.ofMinutes(ttlMinutes), maxKeys);
+    }
+}
@@ -0,0 +1,27 @@
+package ru.astondevs.learn.vorobev.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.astondevs.learn.vorobev.web.UserResponseSerializer;
+
+/**
+ * Модули Jackson регистрируются Spring Boot в общем ObjectMapper, а из него Spring HATEOAS
+ * копирует маппер для HAL, поэтому настройки действуют и на ответы с {@code _links}.
+ */
+@Configuration
+public class JacksonConfig {
+
+    /** Доступ к геттерам и конструкторам через LambdaMetafactory вместо рефлексии. */
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Bean
+    public Module userResponseModule() {
+        return new SimpleModule("user-response").setSerializerModifier(UserResponseSerializer.modifier());
+    }
+}
@@ -0,0 +1,55 @@
+package ru.astondevs.learn.vorobev.config;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import ru.astondevs.learn.vorobev.dto.UserEvent;
+import ru.astondevs.learn.vorobev.kafka.UserEventSerializer;
+
+import java.util.Map;
+
+/**
+ * Два продюсера с общими настройками из {@code spring.kafka.producer} (сжатие, batch, linger):
+ * бинарный Avro для {@code user-events} и строковый JSON для {@code user-changes}.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class KafkaProducerConfig {
+
+    private final KafkaProperties kafkaProperties;
+    private final ObjectProvider<SslBundles> sslBundles;
+
+    @Bean
+    public ProducerFactory<String, UserEvent> userEventProducerFactory() {
+        Map<String, Object> props = kafkaProperties.buildProducerProperties(sslBundles.getIfAvailable());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, UserEventSerializer.class);
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+
+    @Bean
+    public KafkaTemplate<String, UserEvent> userEventKafkaTemplate() {
+        return new KafkaTemplate<>(userEventProducerFactory());
+    }
+
+    @Bean
+    public ProducerFactory<String, String> changeEventProducerFactory() {
+        Map<String, Object> props = kafkaProperties.buildProducerProperties(sslBundles.getIfAvailable());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+
+    @Bean
+    public KafkaTemplate<String, String> changeEventKafkaTemplate() {
+        return new KafkaTemplate<>(changeEventProducerFactory());
+    }
+}
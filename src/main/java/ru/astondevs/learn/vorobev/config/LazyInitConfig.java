@@ -0,0 +1,53 @@
+package ru.astondevs.learn.vorobev.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Controller;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+
+/**
+ * Бины, которые остаются eager при {@code spring.main.lazy-initialization=true} (профиль prod).
+ * <p>
+ * Ленивыми становятся только бины вне пути запроса. Контроллеры, сервисы, репозитории
+ * и JPA создаются при старте, иначе их инициализация пришлась бы на первые запросы.
+ * Бины с {@link Scheduled} и {@link KafkaListener} тоже создаются сразу: их методы регистрируются
+ * только при создании бина, и ленивый бин просто не запустил бы фоновую задачу.
+ */
+@Configuration
+public class LazyInitConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerRequestPathBeans() {
+        return (beanName, beanDefinition, beanType) -> beanType != null && isEager(beanType);
+    }
+
+    static boolean isEager(Class<?> beanType) {
+        return AnnotatedElementUtils.hasAnnotation(beanType, Controller.class)
+                || AnnotatedElementUtils.hasAnnotation(beanType, Service.class)
+                || Repository.class.isAssignableFrom(beanType)
+                || EntityManagerFactory.class.isAssignableFrom(beanType)
+                || DataSource.class.isAssignableFrom(beanType)
+                || hasBackgroundMethods(beanType);
+    }
+
+    private static boolean hasBackgroundMethods(Class<?> beanType) {
+        return !MethodIntrospector.selectMethods(beanType,
+                (MethodIntrospector.MetadataLookup<Boolean>) method -> isBackground(method) ? Boolean.TRUE : null)
+                .isEmpty();
+    }
+
+    private static boolean isBackground(Method method) {
+        return AnnotatedElementUtils.hasAnnotation(method, Scheduled.class)
+                || AnnotatedElementUtils.hasAnnotation(method, KafkaListener.class);
+    }
+}
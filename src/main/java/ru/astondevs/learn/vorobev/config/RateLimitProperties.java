@@ -0,0 +1,60 @@
+package ru.astondevs.learn.vorobev.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+@Data
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /** Заголовок с ключом клиента; без него клиент определяется по IP. */
+    private String clientHeader = "X-API-Key";
+
+    /** Выданные клиентам ключи. Неизвестный ключ не дает отдельного бюджета: клиент определяется по IP. */
+    private Set<String> apiKeys = new HashSet<>();
+
+    /** Сколько доверенных прокси стоит перед сервисом; 0 — X-Forwarded-For не учитывается. */
+    private int trustedProxies = 1;
+
+    /** Через сколько простоя лимитер клиента удаляется из памяти. */
+    private Duration clientIdleTimeout = Duration.ofMinutes(10);
+
+    private long maxClients = 100_000;
+
+    /** Бюджет на GET/HEAD/OPTIONS запросы одного клиента. */
+    private Budget read = new Budget(200, Duration.ofSeconds(1));
+
+    /** Бюджет на POST/PUT/DELETE запросы одного клиента. */
+    private Budget write = new Budget(20, Duration.ofSeconds(1));
+
+    private Concurrency concurrency = new Concurrency();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Budget {
+        private int limitForPeriod;
+        private Duration refreshPeriod;
+    }
+
+    @Data
+    public static class Concurrency {
+        private boolean enabled = true;
+        private int initialLimit = 50;
+        private int minLimit = 10;
+        private int maxLimit = 200;
+
+        /** Запросы медленнее порога считаются признаком перегрузки и уменьшают лимит. */
+        private Duration latencyThreshold = Duration.ofMillis(500);
+
+        private double backoffRatio = 0.9;
+    }
+}
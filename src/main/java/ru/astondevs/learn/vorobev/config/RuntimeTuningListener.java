@@ -0,0 +1,206 @@
+package ru.astondevs.learn.vorobev.config;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import ru.astondevs.learn.vorobev.cache.UserCache;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Применяет настройки производительности после {@code /actuator/refresh} без перезапуска.
+ * <p>
+ * {@code @ConfigurationProperties}-бины (лимиты запросов, {@link UserApiProperties}) Spring Cloud
+ * перепривязывает сам. Здесь — то, что он не трогает: пул Hikari (исключен из перепривязки),
+ * L1-кэш, bulkhead'ы и circuit breaker'ы, которые строятся один раз при старте.
+ * Значения берутся прямо из {@link Environment}: порядок обработки события относительно
+ * перепривязки не определен.
+ * <p>
+ * Выполняющиеся запросы не обрываются: Hikari закрывает лишние соединения по мере их возврата,
+ * bulkhead меняет число разрешений на ходу. Конфигурация circuit breaker неизменяема, поэтому цепь
+ * заменяется в реестре новой ({@code @CircuitBreaker} ищет ее там при каждом вызове), но только
+ * замкнутая: замена разомкнутой цепи сбросила бы ее состояние и пустила нагрузку на больную зависимость.
+ * Такие цепи перенастраиваются следующим {@code refresh} после замыкания.
+ * <p>
+ * Настройки продюсеров Kafka на ходу не меняются: продюсер общий для всех потоков, и его замена закрыла
+ * бы его посреди чужих {@code send()}, а {@link org.springframework.kafka.core.KafkaTemplate} держит
+ * фабрику до конца жизни. Изменения {@code spring.kafka.*} применяются после перезапуска.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RuntimeTuningListener {
+
+    private static final String HIKARI_PREFIX = "spring.datasource.hikari.";
+    private static final String CACHE_PREFIX = "app.cache.local.";
+    private static final String KAFKA_PREFIX = "spring.kafka.";
+    private static final String BULKHEAD_PREFIX = "resilience4j.bulkhead.";
+    private static final String CIRCUIT_BREAKER_PREFIX = "resilience4j.circuitbreaker.";
+
+    private final Environment environment;
+    private final ObjectProvider<DataSource> dataSource;
+    private final ObjectProvider<UserCache> userCache;
+    private final ObjectProvider<BulkheadRegistry> bulkheadRegistry;
+    private final ObjectProvider<CircuitBreakerRegistry> circuitBreakerRegistry;
+
+    @EventListener
+    public void onEnvironmentChange(EnvironmentChangeEvent event) {
+        Set<String> keys = event.getKeys();
+        Binder binder = Binder.get(environment);
+        if (changed(keys, HIKARI_PREFIX)) {
+            tuneHikari(binder);
+        }
+        if (changed(keys, CACHE_PREFIX)) {
+            tuneLocalCache(binder);
+        }
+        if (changed(keys, KAFKA_PREFIX)) {
+            log.warn("Настройки Kafka изменились, но применятся только после перезапуска экземпляра");
+        }
+        if (changed(keys, BULKHEAD_PREFIX)) {
+            tuneBulkheads(binder);
+        }
+        if (changed(keys, CIRCUIT_BREAKER_PREFIX)) {
+            tuneCircuitBreakers(binder);
+        }
+    }
+
+    private void tuneHikari(Binder binder) {
+        DataSource current = dataSource.getIfAvailable();
+        if (current == null) {
+            return;
+        }
+        HikariConfigMXBean pool;
+        try {
+            if (!current.isWrapperFor(HikariDataSource.class)) {
+                return;
+            }
+            pool = current.unwrap(HikariDataSource.class).getHikariConfigMXBean();
+        } catch (SQLException e) {
+            log.warn("Не удалось получить пул Hikari: {}", e.getMessage());
+            return;
+        }
+        // Единицы те же, что у Spring Boot для spring.datasource.hikari: числа, время в мс
+        binder.bind(HIKARI_PREFIX + "maximum-pool-size", Integer.class).ifBound(pool::setMaximumPoolSize);
+        binder.bind(HIKARI_PREFIX + "minimum-idle", Integer.class).ifBound(pool::setMinimumIdle);
+        binder.bind(HIKARI_PREFIX + "connection-timeout", Long.class).ifBound(pool::setConnectionTimeout);
+        binder.bind(HIKARI_PREFIX + "idle-timeout", Long.class).ifBound(pool::setIdleTimeout);
+        binder.bind(HIKARI_PREFIX + "max-lifetime", Long.class).ifBound(pool::setMaxLifetime);
+        binder.bind(HIKARI_PREFIX + "leak-detection-threshold", Long.class).ifBound(pool::setLeakDetectionThreshold);
+        log.info("Пул Hikari перенастроен: maximumPoolSize={}, minimumIdle={}, connectionTimeout={} мс",
+                pool.getMaximumPoolSize(), pool.getMinimumIdle(), pool.getConnectionTimeout());
+    }
+
+    private void tuneLocalCache(Binder binder) {
+        UserCache cache = userCache.getIfAvailable();
+        if (cache == null) {
+            return;
+        }
+        long maxSize = binder.bind(CACHE_PREFIX + "max-size", Long.class).orElse(100_000L);
+        Duration ttl = binder.bind(CACHE_PREFIX + "ttl", Duration.class).orElse(Duration.ofSeconds(60));
+        cache.resizeLocal(maxSize, ttl);
+        log.info("Локальный кэш пользователей перенастроен: max-size={}, ttl={}", maxSize, ttl);
+    }
+
+    private void tuneBulkheads(Binder binder) {
+        BulkheadRegistry registry = bulkheadRegistry.getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+        for (Bulkhead bulkhead : registry.getAllBulkheads()) {
+            String prefix = BULKHEAD_PREFIX + "instances." + bulkhead.getName() + ".";
+            BulkheadConfig current = bulkhead.getBulkheadConfig();
+            int maxConcurrentCalls = binder.bind(prefix + "max-concurrent-calls", Integer.class)
+                    .orElse(current.getMaxConcurrentCalls());
+            Duration maxWaitDuration = binder.bind(prefix + "max-wait-duration", Duration.class)
+                    .orElse(current.getMaxWaitDuration());
+            if (maxConcurrentCalls == current.getMaxConcurrentCalls()
+                    && maxWaitDuration.equals(current.getMaxWaitDuration())) {
+                continue;
+            }
+            bulkhead.changeConfig(BulkheadConfig.from(current)
+                    .maxConcurrentCalls(maxConcurrentCalls)
+                    .maxWaitDuration(maxWaitDuration)
+                    .build());
+            log.info("Bulkhead {} перенастроен: max-concurrent-calls={}, max-wait-duration={}",
+                    bulkhead.getName(), maxConcurrentCalls, maxWaitDuration);
+        }
+    }
+
+    private void tuneCircuitBreakers(Binder binder) {
+        CircuitBreakerRegistry registry = circuitBreakerRegistry.getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+        for (CircuitBreaker breaker : registry.getAllCircuitBreakers()) {
+            String prefix = CIRCUIT_BREAKER_PREFIX + "instances." + breaker.getName() + ".";
+            CircuitBreakerConfig current = breaker.getCircuitBreakerConfig();
+            float failureRateThreshold = binder.bind(prefix + "failure-rate-threshold", Float.class)
+                    .orElse(current.getFailureRateThreshold());
+            float slowCallRateThreshold = binder.bind(prefix + "slow-call-rate-threshold", Float.class)
+                    .orElse(current.getSlowCallRateThreshold());
+            Duration slowCallDurationThreshold = binder.bind(prefix + "slow-call-duration-threshold", Duration.class)
+                    .orElse(current.getSlowCallDurationThreshold());
+            Duration waitDurationInOpenState = binder.bind(prefix + "wait-duration-in-open-state", Duration.class)
+                    .orElse(Duration.ofMillis(current.getWaitIntervalFunctionInOpenState().apply(1)));
+            int slidingWindowSize = binder.bind(prefix + "sliding-window-size", Integer.class)
+                    .orElse(current.getSlidingWindowSize());
+            int minimumNumberOfCalls = binder.bind(prefix + "minimum-number-of-calls", Integer.class)
+                    .orElse(current.getMinimumNumberOfCalls());
+            int permittedCallsInHalfOpenState = binder.bind(prefix + "permitted-number-of-calls-in-half-open-state",
+                    Integer.class).orElse(current.getPermittedNumberOfCallsInHalfOpenState());
+            if (failureRateThreshold == current.getFailureRateThreshold()
+                    && slowCallRateThreshold == current.getSlowCallRateThreshold()
+                    && slowCallDurationThreshold.equals(current.getSlowCallDurationThreshold())
+                    && waitDurationInOpenState.toMillis() == current.getWaitIntervalFunctionInOpenState().apply(1)
+                    && slidingWindowSize == current.getSlidingWindowSize()
+                    && minimumNumberOfCalls == current.getMinimumNumberOfCalls()
+                    && permittedCallsInHalfOpenState == current.getPermittedNumberOfCallsInHalfOpenState()) {
+                continue;
+            }
+            if (breaker.getState() != CircuitBreaker.State.CLOSED) {
+                log.warn("Circuit breaker {} в состоянии {}, новые пороги применятся следующим refresh после замыкания",
+                        breaker.getName(), breaker.getState());
+                continue;
+            }
+            // Остальное (ignore-exceptions, тип окна) переносится из текущей конфигурации
+            CircuitBreakerConfig config = CircuitBreakerConfig.from(current)
+                    .failureRateThreshold(failureRateThreshold)
+                    .slowCallRateThreshold(slowCallRateThreshold)
+                    .slowCallDurationThreshold(slowCallDurationThreshold)
+                    .waitDurationInOpenState(waitDurationInOpenState)
+                    .slidingWindowSize(slidingWindowSize)
+                    .minimumNumberOfCalls(minimumNumberOfCalls)
+                    .permittedNumberOfCallsInHalfOpenState(permittedCallsInHalfOpenState)
+                    .build();
+            registry.replace(breaker.getName(), CircuitBreaker.of(breaker.getName(), config, breaker.getTags()));
+            log.info("Circuit breaker {} перенастроен: failure-rate-threshold={}, slow-call-duration-threshold={}, "
+                            + "sliding-window-size={}", breaker.getName(), failureRateThreshold,
+                    slowCallDurationThreshold, slidingWindowSize);
+        }
+    }
+
+    private static boolean changed(Set<String> keys, String prefix) {
+        for (String key : keys) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
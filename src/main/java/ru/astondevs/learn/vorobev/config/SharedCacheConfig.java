@@ -0,0 +1,36 @@
+package ru.astondevs.learn.vorobev.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import ru.astondevs.learn.vorobev.cache.InMemorySharedUserCache;
+import ru.astondevs.learn.vorobev.cache.RedisSharedUserCache;
+import ru.astondevs.learn.vorobev.cache.SharedUserCache;
+
+/**
+ * Выбор реализации общего кэша: {@code app.cache.shared.type} = none | memory | redis.
+ */
+@Configuration
+public class SharedCacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.shared.type", havingValue = "redis")
+    public SharedUserCache redisSharedUserCache(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        return new RedisSharedUserCache(template);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.shared.type", havingValue = "memory")
+    public SharedUserCache inMemorySharedUserCache(@Value("${app.cache.shared.max-size:100000}") long maxSize) {
+        return new InMemorySharedUserCache(maxSize);
+    }
+}
@@ -0,0 +1,22 @@
+package ru.astondevs.learn.vorobev.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Ограничения API пользователей. Бин перепривязывается при {@code /actuator/refresh},
+ * поэтому значения читаются на каждом запросе, а не копируются в поля.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.users")
+public class UserApiProperties {
+
+    /** Сколько пользователей читается из БД за один запрос при потоковой выгрузке (NDJSON). */
+    private int streamBatchSize = 500;
+
+    /** Наибольшее число подсказок в ответе {@code /autocomplete}. */
+    private int autocompleteMaxLimit = 50;
+
+    /** Наибольшее число пользователей (и отдельно удалений) в одном ответе {@code /sync}. */
+    private int syncMaxLimit = 1000;
+}
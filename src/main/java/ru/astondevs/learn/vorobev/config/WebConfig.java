@@ -0,0 +1,98 @@
+package ru.astondevs.learn.vorobev.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.astondevs.learn.vorobev.web.AdaptiveConcurrencyLimiter;
+import ru.astondevs.learn.vorobev.web.ClientIdResolver;
+import ru.astondevs.learn.vorobev.web.ClientRateLimitInterceptor;
+import ru.astondevs.learn.vorobev.web.EncodedResponseCache;
+import ru.astondevs.learn.vorobev.web.EncodedResponseCacheFilter;
+import ru.astondevs.learn.vorobev.web.EncodedResponseCacheInterceptor;
+import ru.astondevs.learn.vorobev.web.WithoutLinksMixin;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@RequiredArgsConstructor
+@EnableConfigurationProperties({RateLimitProperties.class, UserApiProperties.class})
+public class WebConfig implements WebMvcConfigurer {
+
+    private final RateLimitProperties rateLimitProperties;
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    @Value("${app.response-cache.enabled:true}")
+    private boolean responseCacheEnabled;
+
+    @Value("${app.response-cache.max-users:50000}")
+    private long responseCacheMaxUsers;
+
+    @Value("${app.response-cache.ttl:60s}")
+    private Duration responseCacheTtl;
+
+    @Value("${app.response-cache.base-url:}")
+    private String responseCacheBaseUrl;
+
+    @Bean
+    public AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter() {
+        return new AdaptiveConcurrencyLimiter(rateLimitProperties.getConcurrency());
+    }
+
+    @Bean
+    public ClientIdResolver clientIdResolver() {
+        return new ClientIdResolver(rateLimitProperties);
+    }
+
+    @Bean
+    public ClientRateLimitInterceptor clientRateLimitInterceptor() {
+        return new ClientRateLimitInterceptor(rateLimitProperties, adaptiveConcurrencyLimiter(), clientIdResolver());
+    }
+
+    @Bean
+    public EncodedResponseCache encodedResponseCache() {
+        return new EncodedResponseCache(responseCacheMaxUsers, responseCacheTtl, responseCacheBaseUrl);
+    }
+
+    @Bean
+    public FilterRegistrationBean<EncodedResponseCacheFilter> encodedResponseCacheFilter() {
+        FilterRegistrationBean<EncodedResponseCacheFilter> registration =
+                new FilterRegistrationBean<>(new EncodedResponseCacheFilter(encodedResponseCache()));
+        registration.addUrlPatterns("/api/v1/users/*");
+        registration.setEnabled(responseCacheEnabled);
+        return registration;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(clientRateLimitInterceptor()).addPathPatterns("/api/**");
+        if (responseCacheEnabled) {
+            // После лимитов: попадание в кэш тоже расходует квоту клиента
+            registry.addInterceptor(new EncodedResponseCacheInterceptor(encodedResponseCache()))
+                    .addPathPatterns("/api/v1/users/*");
+        }
+    }
+
+    /**
+     * CBOR ({@code Accept: application/cbor}) для внутренних сервисов: та же модель, что и в JSON,
+     * но без HATEOAS-ссылок. Маппер собирается тем же билдером Spring Boot, поэтому модули,
+     * формат дат и ProblemDetail совпадают с JSON.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MappingJackson2CborHttpMessageConverter(objectMapperBuilder
+                .factory(new CBORFactory())
+                .mixIn(RepresentationModel.class, WithoutLinksMixin.class)
+                .build()));
+    }
+}
@@ -1,20 +1,38 @@
 package ru.astondevs.learn.vorobev.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.hateoas.RepresentationModel;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.astondevs.learn.vorobev.config.UserApiProperties;
 import ru.astondevs.learn.vorobev.dto.CreateUserRequest;
 import ru.astondevs.learn.vorobev.dto.UpdateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UserDeltaResponse;
 import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.dto.UserSuggestion;
 import ru.astondevs.learn.vorobev.service.UserService;
+import ru.astondevs.learn.vorobev.web.ClientIdResolver;
+import ru.astondevs.learn.vorobev.web.EncodedResponseCache;
+import ru.astondevs.learn.vorobev.web.IdempotencyStore;
+import ru.astondevs.learn.vorobev.web.UserChangeBroadcaster;
+import ru.astondevs.learn.vorobev.web.WithoutLinksMixin;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 import java.util.List;
+import java.util.Set;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
 
@@ -24,22 +42,44 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
 @Tag(name = "Пользователи", description = "Методы для работы с данными пользователей")
 public class UserController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final UserService userService;
+    private final IdempotencyStore idempotencyStore;
+    private final ClientIdResolver clientIdResolver;
+    private final ObjectMapper objectMapper;
+    private final UserApiProperties userApiProperties;
+    private final UserChangeBroadcaster userChangeBroadcaster;
+    private final EncodedResponseCache encodedResponseCache;
+
+    private volatile ObjectWriter ndjsonWriter;
 
     @PostMapping
     @Operation(summary = "Создать пользователя", description = "Создает нового пользователя и отправляет событие в Kafka")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "21", description = "Пользователь успешно создан"),
-            @ApiResponse(responseCode = "409", description = "Email уже существует")
+            @ApiResponse(responseCode = "400", description = "Некорректные данные или Idempotency-Key длиннее 255 символов"),
+            @ApiResponse(responseCode = "409", description = "Email уже существует или запрос с тем же Idempotency-Key еще обрабатывается"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key уже использован для другого запроса")
     })
-    public ResponseEntity<UserResponse> createUser(@Valid @RequestBody CreateUserRequest request) {
-        UserResponse response = userService.createUser(request);
+    public ResponseEntity<UserResponse> createUser(
+            @Valid @RequestBody CreateUserRequest request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            HttpServletRequest httpRequest) {
+        IdempotencyStore.Outcome outcome = idempotencyStore.execute(
+                clientIdResolver.resolve(httpRequest), idempotencyKey, request, () -> userService.createUser(request));
+        UserResponse response = outcome.getResponse();
 
         response.add(linkTo(methodOn(UserController.class).getUserById(response.getId())).withSelfRel());
         response.add(linkTo(methodOn(UserController.class).getAllUsers()).withRel("users_list"));
         response.add(linkTo(methodOn(UserController.class).updateUser(response.getId(), null)).withRel("update"));
         response.add(linkTo(methodOn(UserController.class).deleteUser(response.getId())).withRel("delete"));
 
+        if (outcome.isReplayed()) {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header(IdempotencyStore.REPLAYED_HEADER, "true")
+                    .body(response);
+        }
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
@@ -72,12 +112,113 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    @GetMapping("/search")
+    @Operation(summary = "Найти пользователей по возрасту", description = "Возвращает пользователей с возрастом в диапазоне [minAge, maxAge]")
+    public ResponseEntity<List<UserResponse>> findUsersByAge(
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge) {
+        List<UserResponse> users = userService.findUsersByAge(minAge, maxAge);
+
+        users.forEach(user -> {
+                    user.add(linkTo(methodOn(UserController.class).getUserById(user.getId())).withSelfRel());
+                    user.add(linkTo(methodOn(UserController.class).getAllUsers()).withRel("users_list"));
+                    user.add(linkTo(methodOn(UserController.class).updateUser(user.getId(), null)).withRel("update"));
+                    user.add(linkTo(methodOn(UserController.class).deleteUser(user.getId())).withRel("delete"));
+                }
+        );
+
+        return ResponseEntity.ok(users);
+    }
+
+    @GetMapping("/count")
+    @Operation(summary = "Посчитать пользователей", description = "Возвращает число пользователей, при необходимости в диапазоне возрастов")
+    public ResponseEntity<Long> countUsers(
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge) {
+        return ResponseEntity.ok(userService.countUsers(minAge, maxAge));
+    }
+
+    @GetMapping("/autocomplete")
+    @Operation(summary = "Подсказки при вводе",
+            description = "Возвращает до limit пользователей, у которых имя, слово имени или email начинается с q")
+    public ResponseEntity<List<UserSuggestion>> suggestUsers(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        int cappedLimit = Math.max(1, Math.min(limit, userApiProperties.getAutocompleteMaxLimit()));
+        return ResponseEntity.ok(userService.suggestUsers(q, cappedLimit));
+    }
+
+    @GetMapping("/sync")
+    @Operation(summary = "Изменения с момента прошлой синхронизации",
+            description = "Возвращает созданных и измененных пользователей и ID удаленных после курсора, а также новый курсор. "
+                    + "Без курсора — все существующие пользователи. Пока hasMore=true, запрос повторяется с новым курсором. "
+                    + "410 — курсор устарел, нужна полная синхронизация")
+    public ResponseEntity<UserDeltaResponse> getChangesSince(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "500") int limit) {
+        int cappedLimit = Math.max(1, Math.min(limit, userApiProperties.getSyncMaxLimit()));
+        return ResponseEntity.ok(userService.getChangesSince(cursor, cappedLimit));
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Подписаться на изменения пользователей",
+            description = "Server-Sent Events: CREATE, UPDATE и DELETE по мере их появления, при необходимости только "
+                    + "для переданных ID. Событие resync означает, что часть изменений пропущена и данные нужно перечитать")
+    public SseEmitter subscribeToChanges(@RequestParam(required = false) Set<Long> ids) {
+        return userChangeBroadcaster.subscribe(ids);
+    }
+
+    @GetMapping(produces = NDJSON)
+    @Operation(summary = "Выгрузить всех пользователей потоком",
+            description = "Отдает пользователей в NDJSON по одному на строку, без навигационных ссылок. "
+                    + "Ответ пишется частями по мере чтения из БД и не собирается в памяти целиком")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers(
+            @RequestParam(defaultValue = "0") long afterId) {
+        ObjectWriter writer = ndjsonWriter();
+        int batchSize = userApiProperties.getStreamBatchSize();
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                long lastId = afterId;
+                List<UserResponse> batch;
+                do {
+                    // Соединение с БД берется только на время чтения пачки, а не на весь ответ
+                    batch = userService.getUsersAfter(lastId, batchSize);
+                    for (UserResponse user : batch) {
+                        writer.writeValue(generator, user);
+                        generator.writeRaw('\n');
+                        lastId = user.getId();
+                    }
+                    generator.flush();
+                } while (batch.size() == batchSize);
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    private ObjectWriter ndjsonWriter() {
+        ObjectWriter writer = ndjsonWriter;
+        if (writer == null) {
+            writer = objectMapper.copy()
+                    .addMixIn(RepresentationModel.class, WithoutLinksMixin.class)
+                    .writerFor(UserResponse.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            ndjsonWriter = writer;
+        }
+        return writer;
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Обновить данные пользователя", description = "Изменяет данные существующего пользователя")
     public ResponseEntity<UserResponse> updateUser(
             @PathVariable Long id,
             @Valid @RequestBody UpdateUserRequest request) {
         UserResponse response = userService.updateUser(id, request);
+        // Остальные экземпляры сбросят свои байты по событию из user-changes
+        encodedResponseCache.invalidate(id);
 
         response.add(linkTo(methodOn(UserController.class).getUserById(response.getId())).withSelfRel());
         response.add(linkTo(methodOn(UserController.class).getAllUsers()).withRel("users_list"));
@@ -90,6 +231,7 @@ public class UserController {
     @Operation(summary = "Удалить пользователя", description = "Удаляет запись из БД и отправляет DELETE событие в Kafka")
     public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
         userService.deleteUser(id);
+        encodedResponseCache.invalidate(id);
         return ResponseEntity.noContent().build();
     }
 }
@@ -0,0 +1,154 @@
+package ru.astondevs.learn.vorobev.discovery;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.astondevs.learn.vorobev.web.AdaptiveConcurrencyLimiter;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Публикует в метаданных экземпляра Eureka текущую нагрузку, чтобы Gateway мог выбирать
+ * наименее загруженный экземпляр вместо round-robin.
+ * <p>
+ * Ключи: {@code load.in-flight} и {@code load.concurrency-limit} (запросы в обработке и текущий
+ * адаптивный лимит), {@code load.pool-utilization} (% занятых соединений Hikari от максимума),
+ * {@code load.pool-pending} (потоки в ожидании соединения), {@code load.p99-ms}
+ * (худший p99 среди эндпоинтов {@code /api}), {@code load.breaker} (состояние цепи {@code userService};
+ * при шардировании не публикуется).
+ * <p>
+ * Каждое изменение метаданных — повторная регистрация в Eureka, поэтому значения округляются,
+ * а неизменившиеся не отправляются повторно.
+ */
+@Slf4j
+@Component
+public class LoadMetadataPublisher {
+
+    static final String IN_FLIGHT = "load.in-flight";
+    static final String CONCURRENCY_LIMIT = "load.concurrency-limit";
+    static final String POOL_UTILIZATION = "load.pool-utilization";
+    static final String POOL_PENDING = "load.pool-pending";
+    static final String P99_MS = "load.p99-ms";
+    static final String BREAKER = "load.breaker";
+
+    private static final String CIRCUIT_BREAKER = "userService";
+    private static final String HTTP_TIMER = "http.server.requests";
+    private static final int POOL_UTILIZATION_STEP = 5;
+    private static final int P99_STEP_MS = 5;
+
+    private final ObjectProvider<ApplicationInfoManager> applicationInfoManager;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ObjectProvider<DataSource> dataSource;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final ObjectProvider<CircuitBreakerRegistry> circuitBreakerRegistry;
+
+    @Value("${app.load-metadata.enabled:true}")
+    private boolean enabled;
+
+    // ShardedUserService пишет без цепи userService — ее состояние всегда CLOSED и ничего не значит
+    @Value("${app.sharding.enabled:false}")
+    private boolean sharded;
+
+    private Map<String, String> lastPublished = Map.of();
+
+    public LoadMetadataPublisher(ObjectProvider<ApplicationInfoManager> applicationInfoManager,
+                                 AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                 ObjectProvider<DataSource> dataSource,
+                                 ObjectProvider<MeterRegistry> meterRegistry,
+                                 ObjectProvider<CircuitBreakerRegistry> circuitBreakerRegistry) {
+        this.applicationInfoManager = applicationInfoManager;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+    }
+
+    @Scheduled(fixedDelayString = "${app.load-metadata.interval-ms:10000}")
+    public void publish() {
+        ApplicationInfoManager manager = applicationInfoManager.getIfAvailable();
+        if (!enabled || manager == null) {
+            return;
+        }
+        Map<String, String> metadata = collect();
+        if (metadata.equals(lastPublished)) {
+            return;
+        }
+        manager.registerAppMetadata(metadata);
+        lastPublished = metadata;
+        log.debug("Метаданные нагрузки обновлены в Eureka: {}", metadata);
+    }
+
+    Map<String, String> collect() {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(IN_FLIGHT, String.valueOf(concurrencyLimiter.getInFlight()));
+        metadata.put(CONCURRENCY_LIMIT, String.valueOf(concurrencyLimiter.getLimit()));
+
+        HikariDataSource hikari = hikariDataSource();
+        // До первого соединения пул еще не создан
+        HikariPoolMXBean pool = hikari != null ? hikari.getHikariPoolMXBean() : null;
+        if (pool != null) {
+            int max = Math.max(1, hikari.getHikariConfigMXBean().getMaximumPoolSize());
+            int utilization = (int) Math.min(100, Math.round(100.0 * pool.getActiveConnections() / max));
+            metadata.put(POOL_UTILIZATION, String.valueOf(roundTo(utilization, POOL_UTILIZATION_STEP)));
+            metadata.put(POOL_PENDING, String.valueOf(pool.getThreadsAwaitingConnection()));
+        }
+
+        metadata.put(P99_MS, String.valueOf(roundTo((int) Math.ceil(worstP99Millis()), P99_STEP_MS)));
+
+        CircuitBreakerRegistry breakers = circuitBreakerRegistry.getIfAvailable();
+        if (breakers != null && !sharded) {
+            metadata.put(BREAKER, breakers.circuitBreaker(CIRCUIT_BREAKER).getState().name());
+        }
+        return metadata;
+    }
+
+    private double worstP99Millis() {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return 0;
+        }
+        // Перцентили считаются на клиенте и не агрегируются между эндпоинтами, поэтому берем худший
+        double worst = 0;
+        for (Timer timer : registry.find(HTTP_TIMER).timers()) {
+            String uri = timer.getId().getTag("uri");
+            if (uri == null || !uri.startsWith("/api")) {
+                continue;
+            }
+            for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                if (percentile.percentile() == 0.99) {
+                    worst = Math.max(worst, percentile.value(TimeUnit.MILLISECONDS));
+                }
+            }
+        }
+        return worst;
+    }
+
+    private HikariDataSource hikariDataSource() {
+        DataSource current = dataSource.getIfAvailable();
+        try {
+            if (current != null && current.isWrapperFor(HikariDataSource.class)) {
+                return current.unwrap(HikariDataSource.class);
+            }
+        } catch (SQLException e) {
+            log.debug("Не удалось получить пул Hikari: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private static int roundTo(int value, int step) {
+        return (value + step / 2) / step * step;
+    }
+}
@@ -0,0 +1,18 @@
+package ru.astondevs.learn.vorobev.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserChangeEvent {
+    private Long userId;
+    private String operation; // "CREATE", "UPDATE" или "DELETE"
+    private UserSnapshot before; // null для CREATE
+    private UserSnapshot after; // null для DELETE
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,27 @@
+package ru.astondevs.learn.vorobev.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Изменения пользователей с момента предыдущей синхронизации")
+public class UserDeltaResponse {
+
+    @Schema(description = "Созданные и измененные пользователи в порядке изменения")
+    private List<UserResponse> changed;
+
+    @Schema(description = "ID удаленных пользователей")
+    private List<Long> deleted;
+
+    @Schema(description = "Курсор для следующего запроса")
+    private String cursor;
+
+    @Schema(description = "Есть еще изменения: следующий запрос с новым курсором нужно сделать сразу")
+    private boolean hasMore;
+}
@@ -8,6 +8,8 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 public class UserEvent {
+    private Long userId;
+    private Long version;
     private String email;
     private String operation; // "CREATE" или "DELETE"
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package ru.astondevs.learn.vorobev.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.astondevs.learn.vorobev.entity.User;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSnapshot {
+    private Long id;
+    private String name;
+    private String email;
+    private Integer age;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createdAt;
+
+    public static UserSnapshot fromEntity(User user) {
+        return new UserSnapshot(
+                user.getId(),
+                user.getName(),
+                user.getEmail(),
+                user.getAge(),
+                user.getCreatedAt()
+        );
+    }
+}
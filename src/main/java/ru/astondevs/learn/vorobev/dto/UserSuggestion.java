@@ -0,0 +1,22 @@
+package ru.astondevs.learn.vorobev.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Подсказка при вводе имени или email")
+public class UserSuggestion {
+
+    @Schema(description = "Идентификатор пользователя", example = "1")
+    private Long id;
+
+    @Schema(description = "Имя пользователя", example = "Иван Иванов")
+    private String name;
+
+    @Schema(description = "Электронная почта", example = "ivan@example.com")
+    private String email;
+}
@@ -0,0 +1,19 @@
+package ru.astondevs.learn.vorobev.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Изменение принято в локальный журнал и будет применено после восстановления БД")
+public class WriteAcceptedResponse {
+
+    @Schema(description = "Пояснение", example = "Изменение принято и будет применено после восстановления БД")
+    private String message;
+
+    @Schema(description = "Смещение записи в журнале экземпляра", example = "4096")
+    private long journalOffset;
+}
@@ -7,7 +7,7 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_updated_at_id", columnList = "updated_at, id"))
 @Getter
 @Setter
 @AllArgsConstructor
@@ -33,6 +33,13 @@ public class User {
     @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     public User(String name, String email, Integer age) {
         this.name = name;
         this.email = email;
@@ -40,5 +47,10 @@ public class User {
         this.createdAt = LocalDateTime.now();
     }
 
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        this.updatedAt = LocalDateTime.now();
+    }
 
 }
@@ -0,0 +1,28 @@
+package ru.astondevs.learn.vorobev.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Отметка об удалении пользователя для инкрементальной синхронизации ({@code /api/v1/users/sync}).
+ * Хранится {@code app.sync.tombstone-retention}, потом удаляется {@code TombstonePurger}.
+ */
+@Entity
+@Table(name = "user_tombstones",
+        indexes = @Index(name = "idx_user_tombstones_deleted_at_user_id", columnList = "deleted_at, user_id"))
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class UserTombstone {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+}
@@ -0,0 +1,12 @@
+package ru.astondevs.learn.vorobev.exception;
+
+/**
+ * Базовое исключение для ожидаемых ошибок бизнес-логики (нет пользователя, дубликат email, лимиты).
+ * Они возникают в обычном потоке запросов и превращаются в ответ клиенту, поэтому стек вызовов
+ * не заполняется: без него исключение стоит примерно как обычный объект.
+ */
+public abstract class DomainException extends RuntimeException {
+    protected DomainException(String message) {
+        super(message, null, false, false);
+    }
+}
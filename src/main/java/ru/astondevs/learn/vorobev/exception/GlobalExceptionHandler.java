@@ -1,49 +1,124 @@
 package ru.astondevs.learn.vorobev.exception;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
 import jakarta.validation.ConstraintViolationException;
-import org.springframework.http.HttpStatus;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.astondevs.learn.vorobev.dto.WriteAcceptedResponse;
 
-import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
-
+import java.util.Set;
+
+/**
+ * Возвращает ошибки в формате RFC 7807 ({@code application/problem+json}).
+ * Поля прежнего формата сохранены: {@code type} содержит тот же код ({@link ProblemType}),
+ * {@code error} и {@code message} (копия {@code detail}) добавляются как дополнительные свойства.
+ * Поля {@code timestamp} больше нет — время ответа передает заголовок {@code Date}.
+ * <p>
+ * Ошибки перегрузки и конфликта данных не зависят от запроса: их тела сериализуются один раз
+ * при старте, и такой ответ стоит не дороже успешного.
+ */
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
-    @ExceptionHandler(DuplicateEmailException.class)
-    public ResponseEntity<Map<String, Object>> handleDuplicateEmailException (DuplicateEmailException ex) {
-        Map<String, Object> errorDetails = new HashMap<>();
+    private static final String RETRY_AFTER_DEFAULT = "1";
+    private static final Set<ProblemType> FIXED = EnumSet.of(
+            ProblemType.DATA_CONFLICT,
+            ProblemType.RATE_LIMIT_EXCEEDED,
+            ProblemType.SERVICE_OVERLOADED,
+            ProblemType.BULKHEAD_FULL
+    );
+
+    private final Map<ProblemType, byte[]> fixedBodies = new EnumMap<>(ProblemType.class);
+
+    public GlobalExceptionHandler(ObjectMapper objectMapper) {
+        for (ProblemType type : FIXED) {
+            try {
+                fixedBodies.put(type, objectMapper.writeValueAsBytes(problem(type, type.getTitle())));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Не удалось сериализовать ответ " + type, e);
+            }
+        }
+    }
 
-        errorDetails.put("timestamp", LocalDateTime.now());
-        errorDetails.put("status", HttpStatus.CONFLICT.value());
-        errorDetails.put("error", HttpStatus.CONFLICT.getReasonPhrase());
-        errorDetails.put("message", ex.getMessage());
-        errorDetails.put("type", "DUPLICATE_EMAIL");
+    // БД недоступна, но изменение записано в локальный журнал: не ошибка, а отложенное выполнение,
+    // поэтому обычный ответ 202, а не problem+json
+    @ExceptionHandler(WriteAcceptedException.class)
+    public ResponseEntity<WriteAcceptedResponse> handleWriteAcceptedException(WriteAcceptedException ex) {
+        return ResponseEntity.accepted().body(new WriteAcceptedResponse(ex.getMessage(), ex.getJournalOffset()));
+    }
 
-        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorDetails);
+    @ExceptionHandler(DuplicateEmailException.class)
+    public ProblemDetail handleDuplicateEmailException(DuplicateEmailException ex) {
+        return problem(ProblemType.DUPLICATE_EMAIL, ex.getMessage());
     }
 
     @ExceptionHandler(ResourceNotFoundException.class)
-    public ResponseEntity<Map<String, Object>> handleResourceNotFoundException (ResourceNotFoundException ex) {
-        Map<String, Object> errorDetails = new HashMap<>();
+    public ProblemDetail handleResourceNotFoundException(ResourceNotFoundException ex) {
+        return problem(ProblemType.RESOURCE_NOT_FOUND, ex.getMessage());
+    }
 
-        errorDetails.put("timestamp", LocalDateTime.now());
-        errorDetails.put("status", HttpStatus.NOT_FOUND.value());
-        errorDetails.put("error", HttpStatus.NOT_FOUND.getReasonPhrase());
-        errorDetails.put("message", ex.getMessage());
-        errorDetails.put("type", "RESOURCE_NOT_FOUND");
+    // Страховка для гонок, которые не отловили проверки в сервисе (например, одновременная смена email)
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<byte[]> handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
+        return fixed(ProblemType.DATA_CONFLICT, null);
+    }
+
+    @ExceptionHandler(IdempotencyKeyConflictException.class)
+    public ProblemDetail handleIdempotencyKeyConflictException(IdempotencyKeyConflictException ex) {
+        return problem(ProblemType.IDEMPOTENCY_KEY_IN_PROGRESS, ex.getMessage());
+    }
+
+    @ExceptionHandler(IdempotencyKeyMismatchException.class)
+    public ProblemDetail handleIdempotencyKeyMismatchException(IdempotencyKeyMismatchException ex) {
+        return problem(ProblemType.IDEMPOTENCY_KEY_MISMATCH, ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ProblemDetail handleInvalidIdempotencyKeyException(InvalidIdempotencyKeyException ex) {
+        return problem(ProblemType.INVALID_IDEMPOTENCY_KEY, ex.getMessage());
+    }
 
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorDetails);
+    @ExceptionHandler(InvalidSyncCursorException.class)
+    public ProblemDetail handleInvalidSyncCursorException(InvalidSyncCursorException ex) {
+        return problem(ProblemType.INVALID_SYNC_CURSOR, ex.getMessage());
+    }
+
+    @ExceptionHandler(SyncCursorExpiredException.class)
+    public ProblemDetail handleSyncCursorExpiredException(SyncCursorExpiredException ex) {
+        return problem(ProblemType.SYNC_CURSOR_EXPIRED, ex.getMessage());
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<byte[]> handleRateLimitExceededException(RateLimitExceededException ex) {
+        return fixed(ProblemType.RATE_LIMIT_EXCEEDED, String.valueOf(ex.getRetryAfterSeconds()));
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<byte[]> handleServiceOverloadedException(ServiceOverloadedException ex) {
+        return fixed(ProblemType.SERVICE_OVERLOADED, RETRY_AFTER_DEFAULT);
+    }
+
+    // Текст исключения содержит имя bulkhead — клиенту отдаем общий ответ
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<byte[]> handleBulkheadFullException(BulkheadFullException ex) {
+        return fixed(ProblemType.BULKHEAD_FULL, RETRY_AFTER_DEFAULT);
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<Map<String, Object>> handleValidationExceptions(MethodArgumentNotValidException ex) {
-        Map<String, Object> errorDetails = new HashMap<>();
+    public ProblemDetail handleValidationExceptions(MethodArgumentNotValidException ex) {
         Map<String, String> fieldErrors = new HashMap<>();
 
         ex.getBindingResult().getAllErrors().forEach(error -> {
@@ -52,17 +127,13 @@ public class GlobalExceptionHandler {
             fieldErrors.put(fieldName, errorMessage);
         });
 
-        errorDetails.put("timestamp", LocalDateTime.now());
-        errorDetails.put("status", HttpStatus.BAD_REQUEST.value());
-        errorDetails.put("error", "Validation failed");
-        errorDetails.put("fieldErrors", fieldErrors);
-
-        return ResponseEntity.badRequest().body(errorDetails);
+        ProblemDetail problem = problem(ProblemType.VALIDATION_FAILED, null);
+        problem.setProperty("fieldErrors", fieldErrors);
+        return problem;
     }
 
     @ExceptionHandler(ConstraintViolationException.class)
-    public ResponseEntity<Map<String, Object>> handleConstraintViolation(ConstraintViolationException ex) {
-        Map<String, Object> errorDetails = new HashMap<>();
+    public ProblemDetail handleConstraintViolation(ConstraintViolationException ex) {
         Map<String, String> violations = new HashMap<>();
 
         ex.getConstraintViolations().forEach(violation -> {
@@ -71,23 +142,36 @@ public class GlobalExceptionHandler {
             violations.put(fieldName, message);
         });
 
-        errorDetails.put("timestamp", LocalDateTime.now());
-        errorDetails.put("status", HttpStatus.BAD_REQUEST.value());
-        errorDetails.put("error", "Constraint violation");
-        errorDetails.put("violations", violations);
-
-        return ResponseEntity.badRequest().body(errorDetails);
+        ProblemDetail problem = problem(ProblemType.CONSTRAINT_VIOLATION, null);
+        problem.setProperty("violations", violations);
+        return problem;
     }
 
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<Map<String, Object>> handleAllExceptions(Exception ex) {
-        Map<String, Object> errorDetails = new HashMap<>();
+    public ProblemDetail handleAllExceptions(Exception ex) {
+        return problem(ProblemType.INTERNAL_ERROR, ex.getMessage());
+    }
 
-        errorDetails.put("timestamp", LocalDateTime.now());
-        errorDetails.put("status", HttpStatus.INTERNAL_SERVER_ERROR.value());
-        errorDetails.put("error", "Internal server error");
-        errorDetails.put("message", ex.getMessage());
+    /** Общий формат ошибки; им же пользуется реактивный вариант API. */
+    public static ProblemDetail problem(ProblemType type, String detail) {
+        ProblemDetail problem = ProblemDetail.forStatus(type.getStatus());
+        problem.setType(type.getType());
+        problem.setTitle(type.getTitle());
+        problem.setProperty("error", type.getError());
+        if (detail != null) {
+            problem.setDetail(detail);
+            problem.setProperty("message", detail);
+        }
+        return problem;
+    }
 
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorDetails);
+    // Массив общий для всех ответов: конвертер только пишет его в поток
+    private ResponseEntity<byte[]> fixed(ProblemType type, String retryAfter) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(type.getStatus())
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON);
+        if (retryAfter != null) {
+            response.header(HttpHeaders.RETRY_AFTER, retryAfter);
+        }
+        return response.body(fixedBodies.get(type));
     }
 }
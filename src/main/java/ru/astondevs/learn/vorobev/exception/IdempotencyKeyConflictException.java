@@ -0,0 +1,11 @@
+package ru.astondevs.learn.vorobev.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class IdempotencyKeyConflictException extends DomainException {
+    public IdempotencyKeyConflictException(String message) {
+        super(message);
+    }
+}
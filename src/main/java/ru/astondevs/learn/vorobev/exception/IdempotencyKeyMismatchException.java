@@ -0,0 +1,11 @@
+package ru.astondevs.learn.vorobev.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class IdempotencyKeyMismatchException extends DomainException {
+    public IdempotencyKeyMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.astondevs.learn.vorobev.exception;
+
+public class InvalidIdempotencyKeyException extends DomainException {
+    public InvalidIdempotencyKeyException(String message) {
+        super(message);
+    }
+}
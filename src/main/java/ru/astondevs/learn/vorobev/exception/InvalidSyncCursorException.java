@@ -0,0 +1,7 @@
+package ru.astondevs.learn.vorobev.exception;
+
+public class InvalidSyncCursorException extends DomainException {
+    public InvalidSyncCursorException(String message) {
+        super(message);
+    }
+}
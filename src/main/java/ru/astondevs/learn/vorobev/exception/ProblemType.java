@@ -0,0 +1,48 @@
+package ru.astondevs.learn.vorobev.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+import java.net.URI;
+
+/**
+ * Типы ошибок API в формате RFC 7807. URI, заголовок и статус вычисляются один раз,
+ * в ответ на каждую ошибку добавляется только текст.
+ * <p>
+ * {@code type} — имя константы ({@code DUPLICATE_EMAIL}, {@code RESOURCE_NOT_FOUND}): так это поле
+ * выглядело до перехода на RFC 7807, а RFC допускает относительную ссылку. {@code error} хранит прежний
+ * текст одноименного поля — фразу статуса либо собственную строку для ошибок валидации и внутренних ошибок.
+ */
+@Getter
+public enum ProblemType {
+    DUPLICATE_EMAIL(HttpStatus.CONFLICT, "Email уже существует"),
+    RESOURCE_NOT_FOUND(HttpStatus.NOT_FOUND, "Ресурс не найден"),
+    DATA_CONFLICT(HttpStatus.CONFLICT, "Нарушено ограничение целостности данных"),
+    IDEMPOTENCY_KEY_IN_PROGRESS(HttpStatus.CONFLICT, "Запрос с этим Idempotency-Key еще обрабатывается"),
+    IDEMPOTENCY_KEY_MISMATCH(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key использован для другого запроса"),
+    INVALID_IDEMPOTENCY_KEY(HttpStatus.BAD_REQUEST, "Некорректный Idempotency-Key"),
+    RATE_LIMIT_EXCEEDED(HttpStatus.TOO_MANY_REQUESTS, "Превышен лимит запросов"),
+    SERVICE_OVERLOADED(HttpStatus.SERVICE_UNAVAILABLE, "Сервис перегружен"),
+    BULKHEAD_FULL(HttpStatus.SERVICE_UNAVAILABLE, "Сервис перегружен"),
+    INVALID_SYNC_CURSOR(HttpStatus.BAD_REQUEST, "Некорректный курсор синхронизации"),
+    SYNC_CURSOR_EXPIRED(HttpStatus.GONE, "Курсор синхронизации устарел, нужна полная синхронизация"),
+    VALIDATION_FAILED(HttpStatus.BAD_REQUEST, "Validation failed", "Validation failed"),
+    CONSTRAINT_VIOLATION(HttpStatus.BAD_REQUEST, "Constraint violation", "Constraint violation"),
+    INTERNAL_ERROR(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error", "Internal server error");
+
+    private final HttpStatus status;
+    private final String title;
+    private final String error;
+    private final URI type;
+
+    ProblemType(HttpStatus status, String title) {
+        this(status, title, status.getReasonPhrase());
+    }
+
+    ProblemType(HttpStatus status, String title, String error) {
+        this.status = status;
+        this.title = title;
+        this.error = error;
+        this.type = URI.create(name());
+    }
+}
@@ -0,0 +1,11 @@
+package ru.astondevs.learn.vorobev.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ServiceOverloadedException extends DomainException {
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package ru.astondevs.learn.vorobev.exception;
+
+/**
+ * Курсор старше срока хранения отметок об удалении: часть удалений уже не восстановить,
+ * клиенту нужна полная синхронизация.
+ */
+public class SyncCursorExpiredException extends DomainException {
+    public SyncCursorExpiredException(String message) {
+        super(message);
+    }
+}
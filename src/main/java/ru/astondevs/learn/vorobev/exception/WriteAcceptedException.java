@@ -0,0 +1,17 @@
+package ru.astondevs.learn.vorobev.exception;
+
+import lombok.Getter;
+
+/**
+ * Изменение не применено к БД, но записано в локальный журнал и будет применено позже.
+ * Превращается в ответ 202 Accepted.
+ */
+@Getter
+public class WriteAcceptedException extends DomainException {
+    private final long journalOffset;
+
+    public WriteAcceptedException(String message, long journalOffset) {
+        super(message);
+        this.journalOffset = journalOffset;
+    }
+}
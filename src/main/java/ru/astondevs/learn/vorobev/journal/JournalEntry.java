@@ -0,0 +1,42 @@
+package ru.astondevs.learn.vorobev.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.astondevs.learn.vorobev.dto.CreateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UpdateUserRequest;
+
+import java.time.LocalDateTime;
+
+/**
+ * Изменение, принятое в деградированном режиме и ожидающее применения к БД.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalEntry {
+    public static final String CREATE = "CREATE";
+    public static final String UPDATE = "UPDATE";
+    public static final String DELETE = "DELETE";
+
+    private String operation;
+    private Long userId; // null для CREATE: ID выдаст БД при применении
+    private String name;
+    private String email;
+    private Integer age;
+    private LocalDateTime acceptedAt;
+    private Long expectedVersion; // версия пользователя, известная при приеме (из кэша), или null
+
+    public static JournalEntry create(CreateUserRequest request) {
+        return new JournalEntry(CREATE, null, request.getName(), request.getEmail(), request.getAge(), LocalDateTime.now(), null);
+    }
+
+    public static JournalEntry update(Long id, UpdateUserRequest request, Long expectedVersion) {
+        return new JournalEntry(UPDATE, id, request.getName(), request.getEmail(), request.getAge(), LocalDateTime.now(),
+                expectedVersion);
+    }
+
+    public static JournalEntry delete(Long id, Long expectedVersion) {
+        return new JournalEntry(DELETE, id, null, null, null, LocalDateTime.now(), expectedVersion);
+    }
+}
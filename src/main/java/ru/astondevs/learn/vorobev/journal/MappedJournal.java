@@ -0,0 +1,192 @@
+package ru.astondevs.learn.vorobev.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал записей фиксированного размера в файле, отображенном в память.
+ * <p>
+ * Формат: заголовок {@code [magic:int][version:int][replayed:long]}, затем записи
+ * {@code [length:int][crc32c:int][payload]}. Нулевая длина отмечает конец журнала.
+ * Длина записывается последней, поэтому запись, оборванная сбоем процесса, при открытии
+ * не проходит проверку и отбрасывается вместе со всем, что после нее.
+ * Когда все записи применены, журнал начинается заново с начала файла.
+ */
+final class MappedJournal implements Closeable {
+
+    private static final int MAGIC = 0x4C4A524E; // "LJRN"
+    private static final int VERSION = 1;
+    private static final int REPLAYED_OFFSET_POSITION = 8;
+    static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final boolean fsync;
+
+    private int writePosition;
+    private int replayedOffset;
+
+    private MappedJournal(FileChannel channel, MappedByteBuffer buffer, boolean fsync) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.fsync = fsync;
+    }
+
+    static MappedJournal open(Path path, int size, boolean fsync) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int mappedSize = (int) Math.max(size, channel.size());
+        MappedJournal journal = new MappedJournal(channel,
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize), fsync);
+        journal.recover();
+        return journal;
+    }
+
+    synchronized int append(byte[] payload) {
+        int offset = writePosition;
+        int next = offset + RECORD_HEADER_SIZE + payload.length;
+        // Место под запись и под нулевую длину после нее
+        if (next + 4 > buffer.capacity()) {
+            throw new JournalFullException("Журнал заполнен: " + buffer.capacity() + " байт");
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        write(offset + RECORD_HEADER_SIZE, payload);
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        buffer.putInt(next, 0);
+        buffer.putInt(offset, payload.length);
+        if (fsync) {
+            buffer.force();
+        }
+        writePosition = next;
+        return offset;
+    }
+
+    /** Непримененные записи начиная с самой старой, не больше {@code max}. */
+    synchronized List<Record> pending(int max) {
+        List<Record> records = new ArrayList<>(Math.min(max, 64));
+        int position = replayedOffset;
+        while (position < writePosition && records.size() < max) {
+            int length = buffer.getInt(position);
+            byte[] payload = read(position + RECORD_HEADER_SIZE, length);
+            int next = position + RECORD_HEADER_SIZE + length;
+            records.add(new Record(position, next, payload));
+            position = next;
+        }
+        return records;
+    }
+
+    synchronized void markReplayed(Record record) {
+        replayedOffset = record.nextOffset;
+        if (replayedOffset >= writePosition) {
+            // Все применено: начинаем журнал с начала файла
+            writePosition = HEADER_SIZE;
+            replayedOffset = HEADER_SIZE;
+            buffer.putInt(HEADER_SIZE, 0);
+        }
+        buffer.putLong(REPLAYED_OFFSET_POSITION, replayedOffset);
+        if (fsync) {
+            buffer.force();
+        }
+    }
+
+    synchronized boolean hasPending() {
+        return replayedOffset < writePosition;
+    }
+
+    synchronized int pendingBytes() {
+        return writePosition - replayedOffset;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void recover() {
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(REPLAYED_OFFSET_POSITION, HEADER_SIZE);
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.force();
+            writePosition = HEADER_SIZE;
+            replayedOffset = HEADER_SIZE;
+            return;
+        }
+
+        int position = HEADER_SIZE;
+        while (isValidRecord(position)) {
+            position += RECORD_HEADER_SIZE + buffer.getInt(position);
+        }
+        writePosition = position;
+        // Хвост после поврежденной записи больше не читается
+        if (position + 4 <= buffer.capacity()) {
+            buffer.putInt(position, 0);
+        }
+
+        long replayed = buffer.getLong(REPLAYED_OFFSET_POSITION);
+        replayedOffset = (int) Math.min(Math.max(replayed, HEADER_SIZE), writePosition);
+    }
+
+    private boolean isValidRecord(int position) {
+        if (position + RECORD_HEADER_SIZE > buffer.capacity()) {
+            return false;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+            return false;
+        }
+        byte[] payload = read(position + RECORD_HEADER_SIZE, length);
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue() == buffer.getInt(position + 4);
+    }
+
+    private void write(int position, byte[] bytes) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.put(bytes);
+    }
+
+    private byte[] read(int position, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.get(bytes);
+        return bytes;
+    }
+
+    static final class Record {
+        final int offset;
+        final int nextOffset;
+        final byte[] payload;
+
+        private Record(int offset, int nextOffset, byte[] payload) {
+            this.offset = offset;
+            this.nextOffset = nextOffset;
+            this.payload = payload;
+        }
+    }
+
+    static final class JournalFullException extends IllegalStateException {
+        JournalFullException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package ru.astondevs.learn.vorobev.journal;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import ru.astondevs.learn.vorobev.dto.CreateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UpdateUserRequest;
+import ru.astondevs.learn.vorobev.entity.User;
+import ru.astondevs.learn.vorobev.exception.DomainException;
+import ru.astondevs.learn.vorobev.repository.UserRepository;
+import ru.astondevs.learn.vorobev.service.UserService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Применяет изменения из {@link UserWriteJournal}, когда цепь {@code userService} снова замкнута.
+ * <p>
+ * Записи идут через обычный {@link UserService}, со всеми проверками и публикацией событий.
+ * Ошибка бизнес-логики (email уже занят, пользователь удален) означает конфликт с тем, что
+ * произошло в БД, пока она была недоступна для этого экземпляра: такая запись пропускается
+ * с предупреждением в логе. Любая другая ошибка останавливает применение до следующего запуска,
+ * чтобы не нарушить порядок изменений.
+ * <p>
+ * Обновление и удаление тоже считаются конфликтом, если пользователь изменился после приема записи
+ * ({@code updated_at} позже {@code acceptedAt}) или его версия ушла от известной при приеме:
+ * иначе запись из журнала затерла бы более новые изменения, сделанные через другие экземпляры.
+ * Проверка и применение идут в одной транзакции, поэтому изменение между ними отклонит
+ * оптимистическая блокировка, и запись будет проверена заново при следующем запуске.
+ * Несколько записей одного пользователя сверяются с версией, которую оставило применение предыдущей.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "false", matchIfMissing = true)
+@RequiredArgsConstructor
+public class UserJournalReplayer {
+
+    private static final String CIRCUIT_BREAKER = "userService";
+
+    private final UserWriteJournal userWriteJournal;
+    private final UserService userService;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final UserRepository userRepository;
+    private final TransactionOperations transactionOperations;
+
+    // Версии, оставленные применением журнала: следующая запись того же пользователя сверяется с ними
+    private final Map<Long, Long> replayedVersions = new HashMap<>();
+
+    @Value("${app.journal.replay-batch-size:100}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${app.journal.replay-interval-ms:5000}")
+    public synchronized void replayPending() {
+        if (!userWriteJournal.hasPending()
+                || circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER).getState() != CircuitBreaker.State.CLOSED) {
+            return;
+        }
+
+        List<UserWriteJournal.Pending> batch = userWriteJournal.pending(batchSize);
+        int applied = 0;
+        for (UserWriteJournal.Pending pending : batch) {
+            try {
+                Outcome outcome = userWriteJournal.replaying(
+                        () -> transactionOperations.execute(status -> applyUnlessConflicting(pending.entry)));
+                if (outcome.conflict != null) {
+                    log.warn("Изменение {} пользователя {} из журнала (смещение {}) пропущено: {}",
+                            pending.entry.getOperation(), pending.entry.getUserId(), pending.offset(), outcome.conflict);
+                } else {
+                    remember(pending.entry, outcome.version);
+                    applied++;
+                }
+            } catch (DomainException e) {
+                log.warn("Изменение {} из журнала (смещение {}) пропущено из-за конфликта: {}",
+                        pending.entry.getOperation(), pending.offset(), e.getMessage());
+            } catch (RuntimeException e) {
+                log.warn("Применение журнала остановлено на смещении {}: {}", pending.offset(), e.getMessage());
+                break;
+            }
+            userWriteJournal.markReplayed(pending);
+        }
+
+        if (applied > 0) {
+            log.info("Из журнала применено {} изменений пользователей", applied);
+        }
+        if (!userWriteJournal.hasPending()) {
+            replayedVersions.clear();
+        }
+    }
+
+    private Outcome applyUnlessConflicting(JournalEntry entry) {
+        // Пользователя нет — сервис ответит ошибкой бизнес-логики, она обработается как обычно
+        User current = entry.getUserId() != null ? userRepository.findById(entry.getUserId()).orElse(null) : null;
+        String conflict = current != null ? conflict(entry, current) : null;
+        if (conflict != null) {
+            return new Outcome(conflict, null);
+        }
+        apply(entry);
+        if (current == null || JournalEntry.DELETE.equals(entry.getOperation())) {
+            return new Outcome(null, null);
+        }
+        // Сервис менял тот же управляемый экземпляр; после flush в нем новая версия
+        userRepository.flush();
+        return new Outcome(null, current.getVersion());
+    }
+
+    /** Причина, по которой запись нельзя применять, или null. */
+    private String conflict(JournalEntry entry, User current) {
+        Long replayedVersion = replayedVersions.get(entry.getUserId());
+        if (replayedVersion != null) {
+            return replayedVersion.equals(current.getVersion()) ? null
+                    : "версия пользователя " + current.getVersion() + ", после применения журнала была " + replayedVersion;
+        }
+        if (entry.getExpectedVersion() != null && !entry.getExpectedVersion().equals(current.getVersion())) {
+            return "версия пользователя " + current.getVersion() + ", при приеме была " + entry.getExpectedVersion();
+        }
+        if (entry.getAcceptedAt() != null && current.getUpdatedAt() != null
+                && current.getUpdatedAt().isAfter(entry.getAcceptedAt())) {
+            return "пользователь изменен в " + current.getUpdatedAt() + ", после приема записи в " + entry.getAcceptedAt();
+        }
+        return null;
+    }
+
+    private void remember(JournalEntry entry, Long version) {
+        if (entry.getUserId() == null) {
+            return;
+        }
+        if (version == null) {
+            replayedVersions.remove(entry.getUserId());
+        } else {
+            replayedVersions.put(entry.getUserId(), version);
+        }
+    }
+
+    private Object apply(JournalEntry entry) {
+        switch (entry.getOperation()) {
+            case JournalEntry.CREATE:
+                return userService.createUser(new CreateUserRequest(entry.getName(), entry.getEmail(), entry.getAge()));
+            case JournalEntry.UPDATE:
+                return userService.updateUser(entry.getUserId(),
+                        new UpdateUserRequest(entry.getName(), entry.getEmail(), entry.getAge()));
+            case JournalEntry.DELETE:
+                userService.deleteUser(entry.getUserId());
+                return null;
+            default:
+                // Применить нельзя, а остановка на ней заблокировала бы весь журнал
+                log.error("Неизвестная операция в журнале пропущена: {}", entry.getOperation());
+                return null;
+        }
+    }
+
+    private static final class Outcome {
+        private final String conflict;
+        private final Long version;
+
+        private Outcome(String conflict, Long version) {
+            this.conflict = conflict;
+            this.version = version;
+        }
+    }
+}
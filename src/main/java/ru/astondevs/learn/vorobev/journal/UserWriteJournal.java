@@ -0,0 +1,170 @@
+package ru.astondevs.learn.vorobev.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import ru.astondevs.learn.vorobev.exception.WriteAcceptedException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.nio.file.Path;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Локальный журнал изменений пользователей для деградированного режима ({@code app.journal.enabled}).
+ * <p>
+ * Если запись не удалась из-за недоступности БД (или цепь {@code userService} разомкнута),
+ * fallback сервиса кладет изменение сюда и отвечает 202 Accepted. {@link UserJournalReplayer}
+ * применяет журнал, когда цепь снова замкнута. Журнал локален для экземпляра:
+ * принятые изменения видны только после применения.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "false", matchIfMissing = true)
+@RequiredArgsConstructor
+public class UserWriteJournal {
+
+    private static final ThreadLocal<Boolean> REPLAYING = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.journal.path:data/user-write-journal.bin}")
+    private Path path;
+
+    @Value("${app.journal.size-bytes:67108864}")
+    private int sizeBytes;
+
+    @Value("${app.journal.fsync:true}")
+    private boolean fsync;
+
+    private volatile MappedJournal journal;
+
+    @PostConstruct
+    void open() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            journal = MappedJournal.open(path, sizeBytes, fsync);
+            if (journal.hasPending()) {
+                log.warn("В журнале {} есть непримененные изменения: {} байт", path, journal.pendingBytes());
+            }
+        } catch (IOException e) {
+            // Без журнала сервис работает как раньше: ошибки БД уходят клиенту
+            log.error("Не удалось открыть журнал {}, деградированный режим выключен: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        MappedJournal current = journal;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Решает, что делать с ошибкой записи: если причина — недоступность БД, изменение
+     * записывается в журнал и возвращается {@link WriteAcceptedException}; иначе возвращается исходная ошибка.
+     */
+    public RuntimeException degrade(JournalEntry entry, Throwable failure) {
+        MappedJournal current = journal;
+        if (current == null || isReplaying() || !isDatabaseUnavailable(failure)) {
+            return failure instanceof RuntimeException ? (RuntimeException) failure : new IllegalStateException(failure);
+        }
+        try {
+            int offset = current.append(objectMapper.writeValueAsBytes(entry));
+            log.warn("БД недоступна, изменение {} пользователя {} принято в журнал (смещение {}): {}",
+                    entry.getOperation(), entry.getUserId() != null ? entry.getUserId() : entry.getEmail(),
+                    offset, failure.getMessage());
+            return new WriteAcceptedException(
+                    "Изменение принято и будет применено после восстановления БД", offset);
+        } catch (IOException | IllegalStateException e) {
+            log.error("Не удалось записать изменение в журнал: {}", e.getMessage());
+            return failure instanceof RuntimeException ? (RuntimeException) failure : new IllegalStateException(failure);
+        }
+    }
+
+    public boolean hasPending() {
+        MappedJournal current = journal;
+        return current != null && current.hasPending();
+    }
+
+    List<Pending> pending(int max) {
+        MappedJournal current = journal;
+        if (current == null) {
+            return List.of();
+        }
+        List<Pending> result = new ArrayList<>();
+        for (MappedJournal.Record record : current.pending(max)) {
+            try {
+                result.add(new Pending(record, objectMapper.readValue(record.payload, JournalEntry.class)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Нечитаемая запись журнала по смещению " + record.offset, e);
+            }
+        }
+        return result;
+    }
+
+    void markReplayed(Pending pending) {
+        journal.markReplayed(pending.record);
+    }
+
+    /** Выполняет применение записи журнала: ошибки БД в это время не пишутся в журнал повторно. */
+    <T> T replaying(Supplier<T> action) {
+        REPLAYING.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            REPLAYING.remove();
+        }
+    }
+
+    private static boolean isReplaying() {
+        return REPLAYING.get();
+    }
+
+    static boolean isDatabaseUnavailable(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof CallNotPermittedException
+                    || t instanceof CannotCreateTransactionException
+                    || t instanceof DataAccessResourceFailureException
+                    || t instanceof TransientDataAccessException
+                    || t instanceof SQLTransientException
+                    || t instanceof ConnectException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static final class Pending {
+        private final MappedJournal.Record record;
+        final JournalEntry entry;
+
+        private Pending(MappedJournal.Record record, JournalEntry entry) {
+            this.record = record;
+            this.entry = entry;
+        }
+
+        int offset() {
+            return record.offset;
+        }
+    }
+}
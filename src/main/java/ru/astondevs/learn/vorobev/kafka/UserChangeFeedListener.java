@@ -0,0 +1,41 @@
+package ru.astondevs.learn.vorobev.kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import ru.astondevs.learn.vorobev.dto.UserChangeEvent;
+import ru.astondevs.learn.vorobev.service.OutboxRelay;
+
+/**
+ * Читает {@code user-changes} на каждом экземпляре (своя группа потребителей со случайным суффиксом)
+ * и публикует {@link UserChangeEvent} как локальное событие Spring для кэшей и индексов в памяти.
+ * Читает только новые сообщения: состояние на момент старта локальные копии берут из БД.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserChangeFeedListener {
+
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @KafkaListener(
+            topics = OutboxRelay.TOPIC,
+            groupId = "${spring.application.name}-local-${random.uuid}",
+            autoStartup = "${app.change-feed.enabled:true}",
+            properties = "auto.offset.reset=latest")
+    public void onMessage(String payload) {
+        UserChangeEvent event;
+        try {
+            event = objectMapper.readValue(payload, UserChangeEvent.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Пропущено нечитаемое событие изменения пользователя: {}", e.getOriginalMessage());
+            return;
+        }
+        eventPublisher.publishEvent(event);
+    }
+}
@@ -0,0 +1,46 @@
+package ru.astondevs.learn.vorobev.kafka;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import ru.astondevs.learn.vorobev.dto.UserEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Читает {@link UserEvent}, записанный {@link UserEventSerializer} любой из известных версий схемы.
+ */
+public class UserEventDeserializer implements Deserializer<UserEvent> {
+
+    @Override
+    public UserEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length < UserEventSchemas.HEADER_SIZE || data[0] != UserEventSchemas.MAGIC_BYTE) {
+            throw new SerializationException("Неизвестный формат сообщения в топике " + topic);
+        }
+
+        Schema writerSchema = UserEventSchemas.byId(ByteBuffer.wrap(data, 1, 4).getInt());
+        GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(writerSchema, UserEventSchemas.CURRENT);
+
+        try {
+            BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(
+                    data, UserEventSchemas.HEADER_SIZE, data.length - UserEventSchemas.HEADER_SIZE, null);
+            GenericRecord record = reader.read(null, decoder);
+            return new UserEvent(
+                    (Long) record.get("userId"),
+                    (Long) record.get("version"),
+                    record.get("email") != null ? record.get("email").toString() : null,
+                    record.get("operation").toString()
+            );
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Не удалось прочитать UserEvent из топика " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.astondevs.learn.vorobev.kafka;
+
+import org.apache.avro.Schema;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * Локальная замена schema registry для топика {@code user-events}.
+ * Каждое сообщение начинается с магического байта и 4-байтового ID схемы (формат Confluent),
+ * поэтому при появлении реестра схем сообщения останутся совместимыми.
+ * Новые версии схемы добавляются сюда с новым ID, старые не удаляются.
+ */
+public final class UserEventSchemas {
+
+    public static final byte MAGIC_BYTE = 0x0;
+    public static final int HEADER_SIZE = 5;
+
+    public static final int CURRENT_ID = 1;
+    public static final Schema CURRENT = load("/avro/user-event-v1.avsc");
+
+    private static final Map<Integer, Schema> SCHEMAS = Map.of(CURRENT_ID, CURRENT);
+
+    private UserEventSchemas() {
+    }
+
+    public static Schema byId(int id) {
+        Schema schema = SCHEMAS.get(id);
+        if (schema == null) {
+            throw new SerializationException("Неизвестный ID схемы UserEvent: " + id);
+        }
+        return schema;
+    }
+
+    private static Schema load(String resource) {
+        try (InputStream in = UserEventSchemas.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Не найдена схема " + resource);
+            }
+            return new Schema.Parser().parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
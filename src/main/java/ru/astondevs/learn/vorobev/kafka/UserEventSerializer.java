@@ -0,0 +1,85 @@
+package ru.astondevs.learn.vorobev.kafka;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+import ru.astondevs.learn.vorobev.dto.UserEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сериализует {@link UserEvent} в бинарный Avro с заголовком из {@link UserEventSchemas}.
+ * <p>
+ * Поля пишутся энкодером напрямую, без промежуточного GenericRecord и обхода схемы
+ * в GenericDatumWriter. Порядок полей и ветки union повторяют user-event-v1.avsc;
+ * совпадение байтов с GenericDatumWriter проверяет UserEventSerializerTest.
+ */
+public class UserEventSerializer implements Serializer<UserEvent> {
+
+    // Индексы веток в union ["null", ...]
+    private static final int NULL_BRANCH = 0;
+    private static final int VALUE_BRANCH = 1;
+
+    private static final Map<String, Integer> OPERATION_ORDINALS =
+            ordinals(UserEventSchemas.CURRENT.getField("operation").schema());
+
+    @Override
+    public byte[] serialize(String topic, UserEvent event) {
+        if (event == null) {
+            return null;
+        }
+
+        Integer operation = event.getOperation() != null ? OPERATION_ORDINALS.get(event.getOperation()) : null;
+        if (operation == null) {
+            throw new SerializationException("Неизвестная операция UserEvent для топика " + topic + ": " + event.getOperation());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(UserEventSchemas.MAGIC_BYTE);
+        out.write(UserEventSchemas.CURRENT_ID >>> 24);
+        out.write(UserEventSchemas.CURRENT_ID >>> 16);
+        out.write(UserEventSchemas.CURRENT_ID >>> 8);
+        out.write(UserEventSchemas.CURRENT_ID);
+
+        try {
+            BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+            writeNullableLong(encoder, event.getUserId());
+            writeNullableLong(encoder, event.getVersion());
+            if (event.getEmail() == null) {
+                encoder.writeIndex(NULL_BRANCH);
+            } else {
+                encoder.writeIndex(VALUE_BRANCH);
+                encoder.writeString(event.getEmail());
+            }
+            encoder.writeEnum(operation);
+            encoder.flush();
+        } catch (IOException e) {
+            throw new SerializationException("Не удалось сериализовать UserEvent для топика " + topic, e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeNullableLong(BinaryEncoder encoder, Long value) throws IOException {
+        if (value == null) {
+            encoder.writeIndex(NULL_BRANCH);
+        } else {
+            encoder.writeIndex(VALUE_BRANCH);
+            encoder.writeLong(value);
+        }
+    }
+
+    private static Map<String, Integer> ordinals(Schema enumSchema) {
+        List<String> symbols = enumSchema.getEnumSymbols();
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (int i = 0; i < symbols.size(); i++) {
+            ordinals.put(symbols.get(i), i);
+        }
+        return Map.copyOf(ordinals);
+    }
+}
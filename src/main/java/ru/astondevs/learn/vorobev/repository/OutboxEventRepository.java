@@ -0,0 +1,21 @@
+package ru.astondevs.learn.vorobev.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.astondevs.learn.vorobev.entity.OutboxEvent;
+
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Query(value = "SELECT * FROM user_outbox ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<OutboxEvent> findOldest(@Param("limit") int limit);
+
+    // Транзакционная advisory-блокировка: публикацией занимается только один экземпляр сервиса,
+    // иначе порядок событий по одному пользователю может нарушиться
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryRelayLock(@Param("key") long key);
+}
@@ -1,13 +1,79 @@
 package ru.astondevs.learn.vorobev.repository;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.astondevs.learn.vorobev.cache.CachedUser;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.dto.UserSuggestion;
 import ru.astondevs.learn.vorobev.entity.User;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    // Проекции для чтения: DTO собираются прямо из строк результата, сущности не попадают в persistence context
+    @Query("select new ru.astondevs.learn.vorobev.cache.CachedUser(u.id, u.name, u.email, u.age, u.createdAt, u.version) "
+            + "from User u where u.id = :id")
+    Optional<CachedUser> findCachedById(@Param("id") Long id);
+
+    @Query("select new ru.astondevs.learn.vorobev.cache.CachedUser(u.id, u.name, u.email, u.age, u.createdAt, u.version) "
+            + "from User u where u.id in :ids")
+    List<CachedUser> findCachedByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select new ru.astondevs.learn.vorobev.dto.UserResponse(u.id, u.name, u.email, u.age, u.createdAt) from User u")
+    List<UserResponse> findAllResponses();
+
+    @Query("select new ru.astondevs.learn.vorobev.dto.UserResponse(u.id, u.name, u.email, u.age, u.createdAt) "
+            + "from User u where u.id > :afterId order by u.id")
+    List<UserResponse> findResponsesAfter(@Param("afterId") long afterId, Pageable pageable);
+
     boolean existsByEmail(String email);
+
+    @Query("select coalesce(max(u.id), 0) from User u")
+    long findMaxId();
+
+    @Query("select u.id, u.email from User u")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamIdsAndEmails();
+
+    @Query("select u.id, u.name, u.email, u.age, u.createdAt, u.updatedAt from User u")
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamAllRows();
+
+    @Query("select new ru.astondevs.learn.vorobev.dto.UserResponse(u.id, u.name, u.email, u.age, u.createdAt) from User u "
+            + "where (:minAge is null or u.age >= :minAge) and (:maxAge is null or u.age <= :maxAge)")
+    List<UserResponse> findResponsesByAge(@Param("minAge") Integer minAge, @Param("maxAge") Integer maxAge);
+
+    @Query("select count(u) from User u "
+            + "where (:minAge is null or u.age >= :minAge) and (:maxAge is null or u.age <= :maxAge)")
+    long countByAge(@Param("minAge") Integer minAge, @Param("maxAge") Integer maxAge);
+
+    @Query("select u.id from User u order by u.updatedAt desc nulls last, u.id desc")
+    List<Long> findRecentlyUpdatedIds(Pageable pageable);
+
+    // Запасной путь подсказок, пока индекс в памяти не построен; pattern уже в нижнем регистре и экранирован
+    @Query("select new ru.astondevs.learn.vorobev.dto.UserSuggestion(u.id, u.name, u.email) from User u "
+            + "where lower(u.name) like :pattern escape '\\' or lower(u.email) like :pattern escape '\\' "
+            + "order by u.name, u.id")
+    List<UserSuggestion> findSuggestions(@Param("pattern") String pattern, Pageable pageable);
+
+    // Keyset-пагинация для /sync по индексу (updated_at, id); upTo отсекает еще не зафиксированные изменения
+    @Query("select u from User u where u.updatedAt <= :upTo "
+            + "and (u.updatedAt > :afterTime or (u.updatedAt = :afterTime and u.id > :afterId)) "
+            + "order by u.updatedAt, u.id")
+    List<User> findChangedAfter(@Param("afterTime") LocalDateTime afterTime,
+                                @Param("afterId") long afterId,
+                                @Param("upTo") LocalDateTime upTo,
+                                Pageable pageable);
 }
@@ -0,0 +1,29 @@
+package ru.astondevs.learn.vorobev.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.astondevs.learn.vorobev.entity.UserTombstone;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UserTombstoneRepository extends JpaRepository<UserTombstone, Long> {
+
+    // Keyset-пагинация по (deleted_at, user_id), как у UserRepository.findChangedAfter
+    @Query("select t from UserTombstone t where t.deletedAt <= :upTo "
+            + "and (t.deletedAt > :afterTime or (t.deletedAt = :afterTime and t.userId > :afterId)) "
+            + "order by t.deletedAt, t.userId")
+    List<UserTombstone> findDeletedAfter(@Param("afterTime") LocalDateTime afterTime,
+                                         @Param("afterId") long afterId,
+                                         @Param("upTo") LocalDateTime upTo,
+                                         Pageable pageable);
+
+    @Modifying
+    @Query("delete from UserTombstone t where t.deletedAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,113 @@
+package ru.astondevs.learn.vorobev.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.astondevs.learn.vorobev.entity.OutboxEvent;
+import ru.astondevs.learn.vorobev.repository.OutboxEventRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Переносит записи из outbox в топик {@code user-changes}. Ключ сообщения — ID пользователя,
+ * поэтому все изменения одного пользователя попадают в одну партицию в порядке фиксации.
+ * <p>
+ * Пачка отправляется целиком без ожидания, а подтверждения ждутся один раз с общим таймаутом:
+ * транзакция с advisory-блокировкой держит соединение не дольше {@code app.outbox.send-timeout-ms}.
+ * Удаляются только записи до первой неудачной отправки; те, что после нее, будут отправлены
+ * повторно (доставка «хотя бы один раз»), порядок внутри партиции сохраняет идемпотентный продюсер.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxRelay {
+
+    public static final String TOPIC = "user-changes";
+    private static final long RELAY_LOCK_KEY = 0x75736572L; // "user"
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    @Value("${app.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.outbox.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:500}")
+    @Transactional
+    public void publishPending() {
+        if (!outboxEventRepository.tryRelayLock(RELAY_LOCK_KEY)) {
+            return;
+        }
+
+        List<OutboxEvent> batch = outboxEventRepository.findOldest(batchSize);
+        List<ProducerRecord<String, String>> records = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            ProducerRecord<String, String> record =
+                    new ProducerRecord<>(TOPIC, String.valueOf(event.getAggregateId()), event.getPayload());
+            record.headers().add("outbox-id", String.valueOf(event.getId()).getBytes(StandardCharsets.UTF_8));
+            records.add(record);
+        }
+
+        int sent = sendInOrder(kafkaTemplate, records, sendTimeoutMs);
+        if (sent > 0) {
+            outboxEventRepository.deleteAllInBatch(batch.subList(0, sent));
+            log.debug("Опубликовано {} событий изменения пользователей", sent);
+        }
+    }
+
+    /**
+     * Отправляет записи без ожидания и ждет подтверждений в исходном порядке, не дольше {@code timeoutMs}
+     * на всю пачку. Возвращает число записей от начала списка, подтвержденных до первой ошибки.
+     */
+    public static int sendInOrder(KafkaTemplate<String, String> kafkaTemplate,
+                                  List<ProducerRecord<String, String>> records, long timeoutMs) {
+        List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(records.size());
+        for (ProducerRecord<String, String> record : records) {
+            try {
+                sends.add(kafkaTemplate.send(record));
+            } catch (RuntimeException e) {
+                // Например, буфер продюсера переполнен или нет метаданных топика
+                log.warn("Не удалось отправить событие outbox {}: {}", outboxId(record), e.getMessage());
+                break;
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        int confirmed = 0;
+        for (CompletableFuture<SendResult<String, String>> send : sends) {
+            try {
+                send.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | TimeoutException e) {
+                // Останавливаемся на первой ошибке, чтобы не нарушить порядок событий
+                log.warn("Не удалось опубликовать событие outbox {}: {}",
+                        outboxId(records.get(confirmed)), e.getMessage());
+                break;
+            }
+            confirmed++;
+        }
+        return confirmed;
+    }
+
+    private static String outboxId(ProducerRecord<String, String> record) {
+        Header header = record.headers().lastHeader("outbox-id");
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : "?";
+    }
+}
@@ -0,0 +1,314 @@
+package ru.astondevs.learn.vorobev.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.astondevs.learn.vorobev.cache.UserPrefixIndex;
+import ru.astondevs.learn.vorobev.dto.CreateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UpdateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UserChangeEvent;
+import ru.astondevs.learn.vorobev.dto.UserDeltaResponse;
+import ru.astondevs.learn.vorobev.dto.UserEvent;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.dto.UserSnapshot;
+import ru.astondevs.learn.vorobev.dto.UserSuggestion;
+import ru.astondevs.learn.vorobev.entity.User;
+import ru.astondevs.learn.vorobev.entity.UserTombstone;
+import ru.astondevs.learn.vorobev.exception.DuplicateEmailException;
+import ru.astondevs.learn.vorobev.exception.ResourceNotFoundException;
+import ru.astondevs.learn.vorobev.exception.SyncCursorExpiredException;
+import ru.astondevs.learn.vorobev.sharding.ShardedUserRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link UserService} поверх шардированного хранилища ({@code app.sharding.enabled}).
+ * <p>
+ * Уникальность email обеспечивает справочник в основной БД: email резервируется до вставки
+ * в шард и освобождается, если вставка не удалась. Изменения пишутся в outbox своего шарда
+ * в той же транзакции; в {@code user-changes} их переносит {@link ru.astondevs.learn.vorobev.sharding.ShardOutboxRelay}.
+ * <p>
+ * Кэши и индексы {@link UserServiceImpl} (префиксный индекс, фильтр существования, колоночное
+ * хранилище), прогрев кэша, журнал записей и очистка надгробий основной БД при шардировании
+ * не создаются: они читают таблицу {@code users} основной БД, а не шарды. Чтение идет прямо
+ * в шарды, надгробия шардов чистит {@link ru.astondevs.learn.vorobev.sharding.ShardTombstonePurger}.
+ * Цепи {@code userService} здесь нет: при недоступном шарде запись завершается ошибкой, а не журналируется.
+ */
+@Slf4j
+public class ShardedUserService implements UserService {
+
+    private static final Comparator<UserResponse> BY_ID = Comparator.comparing(UserResponse::getId);
+    private static final Comparator<User> BY_UPDATED_AT_ID =
+            Comparator.comparing(User::getUpdatedAt).thenComparing(User::getId);
+    private static final Comparator<UserTombstone> BY_DELETED_AT_ID =
+            Comparator.comparing(UserTombstone::getDeletedAt).thenComparing(UserTombstone::getUserId);
+
+    private final ShardedUserRepository repository;
+    private final UserEventPublisher userEventPublisher;
+    private final ObjectMapper objectMapper;
+    private final Duration reservationTimeout;
+    private final Duration syncLag;
+    private final Duration tombstoneRetention;
+
+    public ShardedUserService(ShardedUserRepository repository,
+                              UserEventPublisher userEventPublisher,
+                              ObjectMapper objectMapper,
+                              Duration reservationTimeout,
+                              Duration syncLag,
+                              Duration tombstoneRetention) {
+        this.repository = repository;
+        this.userEventPublisher = userEventPublisher;
+        this.objectMapper = objectMapper;
+        this.reservationTimeout = reservationTimeout;
+        this.syncLag = syncLag;
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    @Override
+    @Bulkhead(name = "userWrite")
+    public UserResponse createUser(CreateUserRequest request) {
+        String email = request.getEmail();
+        long id = repository.nextId();
+        reserveEmail(email, id);
+
+        LocalDateTime now = LocalDateTime.now();
+        User user = User.builder()
+                .id(id)
+                .name(request.getName())
+                .email(email)
+                .age(request.getAge())
+                .createdAt(now)
+                .updatedAt(now)
+                .version(0L)
+                .build();
+        try {
+            repository.inShardTransaction(id, shard -> {
+                ShardedUserRepository.insert(shard, user);
+                recordChange(shard, id, UserChangeRecorder.CREATE, null, UserSnapshot.fromEntity(user), now);
+                return user;
+            });
+        } catch (RuntimeException e) {
+            repository.releaseEmail(email, id);
+            throw e instanceof DataIntegrityViolationException
+                    && UserServiceImpl.isDuplicateEmail((DataIntegrityViolationException) e) ? duplicateEmail(email) : e;
+        }
+
+        userEventPublisher.publish(new UserEvent(id, user.getVersion(), email, "CREATE"));
+        log.info("Создан новый пользователь с ID: {} (шард {})", id, repository.router().shardOf(id));
+        return UserResponse.fromEntity(user);
+    }
+
+    @Override
+    @Bulkhead(name = "userRead")
+    public UserResponse getUserById(Long id) {
+        return repository.findById(id)
+                .map(UserResponse::fromEntity)
+                .orElseThrow(() -> notFound(id));
+    }
+
+    @Override
+    @Bulkhead(name = "userRead")
+    public List<UserResponse> getAllUsers() {
+        return ShardedUserRepository.merge(repository.findAllResponses(), BY_ID, Integer.MAX_VALUE);
+    }
+
+    @Override
+    @Bulkhead(name = "userRead")
+    public List<UserResponse> getUsersAfter(long afterId, int limit) {
+        return ShardedUserRepository.merge(repository.findResponsesAfter(afterId, limit), BY_ID, limit);
+    }
+
+    @Override
+    @Bulkhead(name = "userRead")
+    public List<UserResponse> findUsersByAge(Integer minAge, Integer maxAge) {
+        return ShardedUserRepository.merge(repository.findResponsesByAge(lower(minAge), upper(maxAge)),
+                BY_ID, Integer.MAX_VALUE);
+    }
+
+    @Override
+    @Bulkhead(name = "userRead")
+    public long countUsers(Integer minAge, Integer maxAge) {
+        return repository.countByAge(lower(minAge), upper(maxAge));
+    }
+
+    @Override
+    @Bulkhead(name = "userRead")
+    public List<UserSuggestion> suggestUsers(String prefix, int limit) {
+        String term = UserPrefixIndex.normalize(prefix);
+        if (term.isEmpty()) {
+            return List.of();
+        }
+        return ShardedUserRepository.merge(repository.findSuggestions(UserServiceImpl.likePrefix(term), limit),
+                Comparator.comparing(UserSuggestion::getName).thenComparing(UserSuggestion::getId), limit);
+    }
+
+    @Override
+    @Bulkhead(name = "userRead")
+    public UserDeltaResponse getChangesSince(String cursor, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        // Курсор хранит время в микросекундах: с тем же upTo следующий запрос не повторит уже отданное
+        LocalDateTime upTo = now.minus(syncLag).truncatedTo(ChronoUnit.MICROS);
+        SyncCursor from = cursor == null || cursor.isBlank() ? SyncCursor.initial(upTo) : SyncCursor.decode(cursor);
+        if (from.tombstoneTime.isBefore(now.minus(tombstoneRetention))) {
+            throw new SyncCursorExpiredException("Курсор старше " + tombstoneRetention.toDays()
+                    + " дн., удаления за этот период уже не хранятся");
+        }
+
+        // Курсор — позиция в общем порядке (время, ID), поэтому он одинаково применим к каждому шарду
+        List<User> users = ShardedUserRepository.merge(
+                repository.findChangedAfter(from.userTime, from.userId, upTo, limit), BY_UPDATED_AT_ID, limit);
+        List<UserTombstone> tombstones = ShardedUserRepository.merge(
+                repository.findDeletedAfter(from.tombstoneTime, from.tombstoneId, upTo, limit), BY_DELETED_AT_ID, limit);
+
+        List<UserResponse> changed = new ArrayList<>(users.size());
+        LocalDateTime userTime = from.userTime;
+        long userId = from.userId;
+        for (User user : users) {
+            changed.add(UserResponse.fromEntity(user));
+            userTime = user.getUpdatedAt();
+            userId = user.getId();
+        }
+
+        List<Long> deleted = new ArrayList<>(tombstones.size());
+        LocalDateTime tombstoneTime = from.tombstoneTime;
+        long tombstoneId = from.tombstoneId;
+        for (UserTombstone tombstone : tombstones) {
+            deleted.add(tombstone.getUserId());
+            tombstoneTime = tombstone.getDeletedAt();
+            tombstoneId = tombstone.getUserId();
+        }
+        // Неполная страница — отданы все удаления до upTo: двигаем позицию к нему, иначе клиент,
+        // у которого давно никого не удаляли, через tombstone-retention получит ложный 410
+        if (tombstones.size() < limit && tombstoneTime.isBefore(upTo)) {
+            tombstoneTime = upTo;
+            tombstoneId = Long.MAX_VALUE;
+        }
+
+        String next = new SyncCursor(userTime, userId, tombstoneTime, tombstoneId).encode();
+        return new UserDeltaResponse(changed, deleted, next, users.size() == limit || tombstones.size() == limit);
+    }
+
+    @Override
+    @Bulkhead(name = "userWrite")
+    public UserResponse updateUser(Long id, UpdateUserRequest request) {
+        User user = repository.findById(id).orElseThrow(() -> notFound(id));
+
+        UserSnapshot before = UserSnapshot.fromEntity(user);
+        boolean needsUpdate = false;
+        String newEmail = null;
+
+        if (request.getName() != null && !request.getName().trim().isEmpty()
+                && !request.getName().trim().equals(user.getName())) {
+            user.setName(request.getName().trim());
+            needsUpdate = true;
+        }
+
+        if (request.getEmail() != null && !request.getEmail().trim().isEmpty()
+                && !request.getEmail().trim().equals(user.getEmail())) {
+            newEmail = request.getEmail().trim();
+            reserveEmail(newEmail, id);
+            user.setEmail(newEmail);
+            needsUpdate = true;
+        }
+
+        if (request.getAge() != null && !request.getAge().equals(user.getAge())) {
+            user.setAge(request.getAge());
+            needsUpdate = true;
+        }
+
+        if (!needsUpdate) {
+            return UserResponse.fromEntity(user);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        user.setUpdatedAt(now);
+        try {
+            repository.inShardTransaction(id, shard -> {
+                ShardedUserRepository.update(shard, user);
+                recordChange(shard, id, UserChangeRecorder.UPDATE, before, UserSnapshot.fromEntity(user), now);
+                return user;
+            });
+        } catch (RuntimeException e) {
+            if (newEmail != null) {
+                repository.releaseEmail(newEmail, id);
+            }
+            throw e instanceof DataIntegrityViolationException
+                    && UserServiceImpl.isDuplicateEmail((DataIntegrityViolationException) e) ? duplicateEmail(user.getEmail()) : e;
+        }
+        if (newEmail != null) {
+            repository.releaseEmail(before.getEmail(), id);
+        }
+
+        log.info("Пользователь с ID {} успешно обновлен", id);
+        return UserResponse.fromEntity(user);
+    }
+
+    @Override
+    @Bulkhead(name = "userWrite")
+    public void deleteUser(Long id) {
+        User user = repository.findById(id).orElseThrow(() -> notFound(id));
+
+        LocalDateTime now = LocalDateTime.now();
+        repository.inShardTransaction(id, shard -> {
+            ShardedUserRepository.delete(shard, id, now);
+            recordChange(shard, id, UserChangeRecorder.DELETE, UserSnapshot.fromEntity(user), null, now);
+            return null;
+        });
+        repository.releaseEmail(user.getEmail(), id);
+
+        userEventPublisher.publish(new UserEvent(id, user.getVersion(), user.getEmail(), "DELETE"));
+        log.info("Пользователь с ID {} удален", id);
+    }
+
+    /**
+     * Резервирует email за пользователем. Резерв, у которого за {@code reservationTimeout} так и не
+     * появилось пользователя в шарде (процесс упал между шагами), перехватывается.
+     */
+    private void reserveEmail(String email, long userId) {
+        if (repository.reserveEmail(email, userId)) {
+            return;
+        }
+        Optional<Long> owner = repository.findEmailOwner(email);
+        if (owner.isPresent() && owner.get() == userId) {
+            return;
+        }
+        if (owner.isPresent()
+                && repository.findById(owner.get()).filter(existing -> email.equals(existing.getEmail())).isEmpty()
+                && repository.takeOverReservation(email, owner.get(), userId, LocalDateTime.now().minus(reservationTimeout))) {
+            log.warn("Перехвачен брошенный резерв email {} пользователя {}", email, owner.get());
+            return;
+        }
+        throw duplicateEmail(email);
+    }
+
+    private void recordChange(JdbcTemplate shard, long userId, String operation, UserSnapshot before,
+                              UserSnapshot after, LocalDateTime now) {
+        String payload = UserChangeRecorder.serialize(objectMapper,
+                new UserChangeEvent(userId, operation, before, after, now));
+        ShardedUserRepository.insertOutbox(shard, userId, operation, payload, now);
+    }
+
+    private static ResourceNotFoundException notFound(Long id) {
+        return new ResourceNotFoundException("Пользователь с ID " + id + " не найден");
+    }
+
+    private static DuplicateEmailException duplicateEmail(String email) {
+        return new DuplicateEmailException("Пользователь с email " + email + " уже существует");
+    }
+
+    private static int lower(Integer minAge) {
+        return minAge != null ? minAge : Integer.MIN_VALUE;
+    }
+
+    private static int upper(Integer maxAge) {
+        return maxAge != null ? maxAge : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,69 @@
+package ru.astondevs.learn.vorobev.service;
+
+import ru.astondevs.learn.vorobev.exception.InvalidSyncCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Позиция клиента в синхронизации: последние отданные (updated_at, id) пользователя
+ * и (deleted_at, user_id) удаления. Для клиента это непрозрачная base64url-строка;
+ * время хранится в микросекундах — с той точностью, с которой его хранит Postgres.
+ */
+final class SyncCursor {
+
+    private static final String VERSION = "v1";
+    private static final LocalDateTime START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    final LocalDateTime userTime;
+    final long userId;
+    final LocalDateTime tombstoneTime;
+    final long tombstoneId;
+
+    SyncCursor(LocalDateTime userTime, long userId, LocalDateTime tombstoneTime, long tombstoneId) {
+        this.userTime = userTime;
+        this.userId = userId;
+        this.tombstoneTime = tombstoneTime;
+        this.tombstoneId = tombstoneId;
+    }
+
+    /**
+     * Начальная позиция: все существующие пользователи, но только удаления после {@code syncStart}.
+     * Более ранние удаления новому клиенту не нужны: этих пользователей он и так не получит.
+     */
+    static SyncCursor initial(LocalDateTime syncStart) {
+        return new SyncCursor(START, 0, syncStart, 0);
+    }
+
+    static SyncCursor decode(String value) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.US_ASCII).split(":");
+            if (parts.length != 5 || !VERSION.equals(parts[0])) {
+                throw new InvalidSyncCursorException("Некорректный курсор синхронизации");
+            }
+            return new SyncCursor(fromMicros(Long.parseLong(parts[1])), Long.parseLong(parts[2]),
+                    fromMicros(Long.parseLong(parts[3])), Long.parseLong(parts[4]));
+        } catch (IllegalArgumentException e) {
+            // В том числе NumberFormatException и ошибки base64
+            throw new InvalidSyncCursorException("Некорректный курсор синхронизации");
+        }
+    }
+
+    String encode() {
+        String value = String.join(":", VERSION,
+                Long.toString(toMicros(userTime)), Long.toString(userId),
+                Long.toString(toMicros(tombstoneTime)), Long.toString(tombstoneId));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,38 @@
+package ru.astondevs.learn.vorobev.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.astondevs.learn.vorobev.repository.UserTombstoneRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Удаляет отметки об удалении старше {@code app.sync.tombstone-retention}. Клиент с более старым
+ * курсором получит 410 и выполнит полную синхронизацию.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "false", matchIfMissing = true)
+@RequiredArgsConstructor
+public class TombstonePurger {
+
+    private final UserTombstoneRepository userTombstoneRepository;
+
+    @Value("${app.sync.tombstone-retention:30d}")
+    private Duration retention;
+
+    @Scheduled(fixedDelayString = "${app.sync.purge-interval-ms:3600000}")
+    @Transactional
+    public void purge() {
+        int removed = userTombstoneRepository.deleteOlderThan(LocalDateTime.now().minus(retention));
+        if (removed > 0) {
+            log.info("Удалено {} устаревших отметок об удалении пользователей", removed);
+        }
+    }
+}
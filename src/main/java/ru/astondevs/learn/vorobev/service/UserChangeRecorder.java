@@ -0,0 +1,71 @@
+package ru.astondevs.learn.vorobev.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.astondevs.learn.vorobev.dto.UserChangeEvent;
+import ru.astondevs.learn.vorobev.dto.UserSnapshot;
+import ru.astondevs.learn.vorobev.entity.OutboxEvent;
+import ru.astondevs.learn.vorobev.entity.User;
+import ru.astondevs.learn.vorobev.entity.UserTombstone;
+import ru.astondevs.learn.vorobev.repository.OutboxEventRepository;
+import ru.astondevs.learn.vorobev.repository.UserTombstoneRepository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Записывает изменения пользователей в таблицу outbox в той же транзакции, что и само изменение.
+ * Публикацией в Kafka занимается {@link OutboxRelay}. Удаления дополнительно оставляют
+ * {@link UserTombstone} для инкрементальной синхронизации.
+ * <p>
+ * Создание и изменение возвращают время события ({@code occurredAt}): локальные копии, обновляемые
+ * после коммита, помечаются им же, чтобы затем отличить запоздавшее событие от более свежего.
+ */
+@Component
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class UserChangeRecorder {
+
+    public static final String CREATE = "CREATE";
+    public static final String UPDATE = "UPDATE";
+    public static final String DELETE = "DELETE";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final UserTombstoneRepository userTombstoneRepository;
+    private final ObjectMapper objectMapper;
+
+    public LocalDateTime recordCreate(User created) {
+        return record(created.getId(), CREATE, null, UserSnapshot.fromEntity(created));
+    }
+
+    public LocalDateTime recordUpdate(UserSnapshot before, User updated) {
+        return record(updated.getId(), UPDATE, before, UserSnapshot.fromEntity(updated));
+    }
+
+    public void recordDelete(User deleted) {
+        record(deleted.getId(), DELETE, UserSnapshot.fromEntity(deleted), null);
+        userTombstoneRepository.save(new UserTombstone(deleted.getId(), LocalDateTime.now()));
+    }
+
+    private LocalDateTime record(Long userId, String operation, UserSnapshot before, UserSnapshot after) {
+        LocalDateTime now = LocalDateTime.now();
+        outboxEventRepository.save(OutboxEvent.builder()
+                .aggregateId(userId)
+                .operation(operation)
+                .payload(serialize(objectMapper, new UserChangeEvent(userId, operation, before, after, now)))
+                .createdAt(now)
+                .build());
+        return now;
+    }
+
+    static String serialize(ObjectMapper objectMapper, UserChangeEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать событие изменения пользователя " + event.getUserId(), e);
+        }
+    }
+}
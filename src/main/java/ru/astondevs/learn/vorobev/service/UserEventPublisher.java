@@ -0,0 +1,43 @@
+package ru.astondevs.learn.vorobev.service;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import ru.astondevs.learn.vorobev.dto.UserEvent;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Отправляет {@link UserEvent} в Kafka в отдельном пуле потоков (bulkhead {@code kafkaPublisher}).
+ * Если Kafka тормозит, ожидание метаданных и подтверждений не занимает потоки Tomcat.
+ * <p>
+ * Топик {@code user-events} — уведомления без гарантии доставки: сервисы вызывают {@link #publish}
+ * после фиксации транзакции, поэтому об откаченных изменениях событий нет, но событие теряется при
+ * переполнении пула, ошибке Kafka или падении экземпляра сразу после фиксации. Outbox эти события
+ * не повторяет: {@link OutboxRelay} публикует в {@code user-changes}, и потребителям, которым нужно
+ * каждое изменение, следует читать его.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserEventPublisher {
+
+    public static final String TOPIC = "user-events";
+
+    private final KafkaTemplate<String, UserEvent> kafkaTemplate;
+
+    @Bulkhead(name = "kafkaPublisher", type = Bulkhead.Type.THREADPOOL, fallbackMethod = "publishRejected")
+    public CompletableFuture<SendResult<String, UserEvent>> publish(UserEvent event) {
+        return kafkaTemplate.send(TOPIC, String.valueOf(event.getUserId()), event);
+    }
+
+    public CompletableFuture<SendResult<String, UserEvent>> publishRejected(UserEvent event, BulkheadFullException e) {
+        log.warn("Пул отправки в Kafka переполнен, событие {} для пользователя {} отброшено",
+                event.getOperation(), event.getUserId());
+        return CompletableFuture.failedFuture(e);
+    }
+}
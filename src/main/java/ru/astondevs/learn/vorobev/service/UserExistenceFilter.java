@@ -0,0 +1,94 @@
+package ru.astondevs.learn.vorobev.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.astondevs.learn.vorobev.cache.BloomFilter;
+import ru.astondevs.learn.vorobev.repository.UserRepository;
+
+import java.util.stream.Stream;
+
+/**
+ * Фильтры Блума по существующим ID и email, позволяющие отвечать на заведомые промахи без запроса в БД.
+ * <p>
+ * ID выдаются последовательностью и не переиспользуются, поэтому фильтру можно верить только
+ * для ID не выше отметки последней перестройки (с запасом на незавершенные транзакции).
+ * Более новые ID, в том числе созданные другими экземплярами сервиса, всегда проверяются в БД.
+ * Для email ложное «нет» не опасно: уникальность все равно обеспечивает ограничение в БД.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "false", matchIfMissing = true)
+@RequiredArgsConstructor
+public class UserExistenceFilter {
+
+    private final UserRepository userRepository;
+
+    @Value("${app.existence-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.existence-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${app.existence-filter.id-safety-margin:1000}")
+    private long idSafetyMargin;
+
+    private volatile Snapshot snapshot;
+
+    public boolean definitelyMissingId(long id) {
+        Snapshot current = snapshot;
+        return current != null && id <= current.idWatermark && !current.ids.mightContain(id);
+    }
+
+    public boolean definitelyMissingEmail(String email) {
+        Snapshot current = snapshot;
+        return current != null && !current.emails.mightContain(email);
+    }
+
+    public void onEmailAdded(String email) {
+        Snapshot current = snapshot;
+        if (current != null) {
+            current.emails.put(email);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.existence-filter.initial-delay-ms:0}",
+            fixedDelayString = "${app.existence-filter.rebuild-interval-ms:600000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        long expected = Math.max(1_000, userRepository.count() * 2);
+        long maxId = userRepository.findMaxId();
+        BloomFilter ids = BloomFilter.create(expected, falsePositiveRate);
+        BloomFilter emails = BloomFilter.create(expected, falsePositiveRate);
+
+        try (Stream<Object[]> rows = userRepository.streamIdsAndEmails()) {
+            rows.forEach(row -> {
+                ids.put((Long) row[0]);
+                emails.put((String) row[1]);
+            });
+        }
+
+        snapshot = new Snapshot(ids, emails, maxId - idSafetyMargin);
+        log.info("Фильтр существования пользователей перестроен: maxId={}, ожидаемый объем={}", maxId, expected);
+    }
+
+    private static final class Snapshot {
+        private final BloomFilter ids;
+        private final BloomFilter emails;
+        private final long idWatermark;
+
+        private Snapshot(BloomFilter ids, BloomFilter emails, long idWatermark) {
+            this.ids = ids;
+            this.emails = emails;
+            this.idWatermark = idWatermark;
+        }
+    }
+}
@@ -2,7 +2,9 @@ package ru.astondevs.learn.vorobev.service;
 
 import ru.astondevs.learn.vorobev.dto.CreateUserRequest;
 import ru.astondevs.learn.vorobev.dto.UpdateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UserDeltaResponse;
 import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.dto.UserSuggestion;
 
 import java.util.List;
 
@@ -10,6 +12,11 @@ public interface UserService {
     UserResponse createUser(CreateUserRequest request);
     UserResponse getUserById(Long id);
     List<UserResponse> getAllUsers();
+    List<UserResponse> getUsersAfter(long afterId, int limit);
+    List<UserResponse> findUsersByAge(Integer minAge, Integer maxAge);
+    long countUsers(Integer minAge, Integer maxAge);
+    List<UserSuggestion> suggestUsers(String prefix, int limit);
+    UserDeltaResponse getChangesSince(String cursor, int limit);
     UserResponse updateUser(Long id, UpdateUserRequest request);
     void deleteUser(Long id);
 }
@@ -1,39 +1,84 @@
 package ru.astondevs.learn.vorobev.service;
 
 
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import ru.astondevs.learn.vorobev.cache.CachedUser;
+import ru.astondevs.learn.vorobev.cache.ColumnarUserStore;
+import ru.astondevs.learn.vorobev.cache.UserCache;
+import ru.astondevs.learn.vorobev.cache.UserPrefixIndex;
 import ru.astondevs.learn.vorobev.dto.CreateUserRequest;
 import ru.astondevs.learn.vorobev.dto.UpdateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UserDeltaResponse;
 import ru.astondevs.learn.vorobev.dto.UserEvent;
 import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.dto.UserSnapshot;
+import ru.astondevs.learn.vorobev.dto.UserSuggestion;
 import ru.astondevs.learn.vorobev.entity.User;
+import ru.astondevs.learn.vorobev.entity.UserTombstone;
+import ru.astondevs.learn.vorobev.exception.DomainException;
+import ru.astondevs.learn.vorobev.exception.SyncCursorExpiredException;
+import ru.astondevs.learn.vorobev.exception.WriteAcceptedException;
+import ru.astondevs.learn.vorobev.journal.JournalEntry;
+import ru.astondevs.learn.vorobev.journal.UserWriteJournal;
 import ru.astondevs.learn.vorobev.repository.UserRepository;
+import ru.astondevs.learn.vorobev.repository.UserTombstoneRepository;
 import ru.astondevs.learn.vorobev.exception.ResourceNotFoundException;
 import ru.astondevs.learn.vorobev.exception.DuplicateEmailException;
 
 
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Optional;
 
 @Slf4j
 @Service
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "false", matchIfMissing = true)
 @RequiredArgsConstructor
 @Transactional
 public class UserServiceImpl implements UserService {
 
+    private static final String UNIQUE_VIOLATION = "23505";
+
     private final UserRepository userRepository;
-    private final KafkaTemplate<String, UserEvent> kafkaTemplate;
-    private static final String TOPIC = "user-events";
+    private final UserEventPublisher userEventPublisher;
+    private final UserChangeRecorder userChangeRecorder;
+    private final UserExistenceFilter userExistenceFilter;
+    private final UserCache userCache;
+    private final ColumnarUserStore columnarUserStore;
+    private final UserWriteJournal userWriteJournal;
+    private final UserPrefixIndex userPrefixIndex;
+    private final UserTombstoneRepository userTombstoneRepository;
+
+    // Изменения моложе этого окна еще могут оказаться незафиксированными транзакциями с более ранним updated_at
+    @Value("${app.sync.lag:5s}")
+    private Duration syncLag = Duration.ofSeconds(5);
+
+    @Value("${app.sync.tombstone-retention:30d}")
+    private Duration tombstoneRetention = Duration.ofDays(30);
 
     @Override
+    @Bulkhead(name = "userWrite")
     @CircuitBreaker(name = "userService", fallbackMethod = "createUserFallback")
     public UserResponse createUser(CreateUserRequest request) {
-        if (userRepository.existsByEmail(request.getEmail())) {
+        // Если фильтр уверен, что email свободен, проверку в БД пропускаем: гонку закроет уникальный индекс
+        if (!userExistenceFilter.definitelyMissingEmail(request.getEmail())
+                && userRepository.existsByEmail(request.getEmail())) {
             throw new DuplicateEmailException("Пользователь с email " + request.getEmail() + " уже существует");
         }
 
@@ -43,45 +88,210 @@ public class UserServiceImpl implements UserService {
                 .age(request.getAge())
                 .build();
 
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            if (!isDuplicateEmail(e)) {
+                throw e;
+            }
+            throw new DuplicateEmailException("Пользователь с email " + request.getEmail() + " уже существует");
+        }
+        userExistenceFilter.onEmailAdded(savedUser.getEmail());
         log.info("Создан новый пользователь с ID: {}", savedUser.getId());
+        LocalDateTime changedAt = userChangeRecorder.recordCreate(savedUser);
+        userCache.putAfterCommit(savedUser);
+        columnarUserStore.putAfterCommit(savedUser, changedAt);
 
-        kafkaTemplate.send(TOPIC, new UserEvent(savedUser.getEmail(), "CREATE"));
-        log.info("Событие создания пользователя отправлено в Kafka для: {}", savedUser.getEmail());
+        UserEvent created = new UserEvent(savedUser.getId(), savedUser.getVersion(), savedUser.getEmail(), "CREATE");
+        UserCache.runAfterCommit(() -> userEventPublisher.publish(created));
 
         log.info("Создан новый пользователь с ID: {}", savedUser.getId());
         return UserResponse.fromEntity(savedUser);
     }
 
+    /**
+     * Нарушение уникальности email, а не любое нарушение целостности: SQLState 23505 и, если имя
+     * ограничения известно, упоминание в нем email ({@code users_email_key}). Остальные ограничения
+     * (NOT NULL, длина, внешние ключи) пробрасываются как есть.
+     */
+    static boolean isDuplicateEmail(DataIntegrityViolationException e) {
+        String sqlState = null;
+        String constraint = null;
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                constraint = ((ConstraintViolationException) cause).getConstraintName();
+            }
+            if (sqlState == null && cause instanceof SQLException) {
+                sqlState = ((SQLException) cause).getSQLState();
+            }
+        }
+        return isDuplicateEmail(sqlState, constraint);
+    }
+
+    /** То же правило для драйверов, у которых SQLState и имя ограничения достаются иначе (R2DBC). */
+    public static boolean isDuplicateEmail(String sqlState, String constraint) {
+        return UNIQUE_VIOLATION.equals(sqlState)
+                && (constraint == null || constraint.toLowerCase(Locale.ROOT).contains("email"));
+    }
+
+    // Ошибки бизнес-логики (дубликат email и т.п.) — ответ клиенту, а не сбой: пробрасываем как есть,
+    // иначе общий fallback вернул бы чужого пользователя с этим email вместо 409
+    public UserResponse createUserFallback(CreateUserRequest request, DomainException e) {
+        throw e;
+    }
+
+    // Нарушение иного ограничения, чем уникальность email, — тоже ответ клиенту (409 от GlobalExceptionHandler)
+    public UserResponse createUserFallback(CreateUserRequest request, DataIntegrityViolationException e) {
+        throw e;
+    }
+
     public UserResponse createUserFallback(CreateUserRequest request, Throwable t) {
         log.error("Kafka недоступна или произошла ошибка. Circuit Breaker активирован. Причина: {}", t.getMessage());
+        RuntimeException degraded = userWriteJournal.degrade(JournalEntry.create(request), t);
+        if (degraded instanceof WriteAcceptedException) {
+            throw degraded;
+        }
         return userRepository.findByEmail(request.getEmail())
                 .map(UserResponse::fromEntity)
                 .orElseThrow(() -> new RuntimeException("Не удалось создать пользователя в режиме Fallback"));
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Bulkhead(name = "userRead")
+    // Без собственной транзакции: попадание в кэш не должно занимать соединение из пула
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public UserResponse getUserById(Long id) {
-        User user = userRepository.findById(id)
+        if (userExistenceFilter.definitelyMissingId(id)) {
+            throw new ResourceNotFoundException("Пользователь с ID " + id + " не найден");
+        }
+
+        Optional<UserResponse> inMemory = columnarUserStore.find(id);
+        if (inMemory.isPresent()) {
+            return inMemory.get();
+        }
+
+        Optional<CachedUser> cached = userCache.get(id);
+        if (cached.isPresent()) {
+            return cached.get().toResponse();
+        }
+
+        long stamp = userCache.changeStamp(id);
+        CachedUser user = userRepository.findCachedById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь с ID " + id + " не найден"));
-        return UserResponse.fromEntity(user);
+        userCache.putLoaded(user, stamp);
+        return user.toResponse();
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Bulkhead(name = "userRead")
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<UserResponse> getAllUsers() {
-        return userRepository.findAll()
-                .stream()
-                .map(UserResponse::fromEntity)
-                .collect(Collectors.toList());
+        if (columnarUserStore.isReady()) {
+            return columnarUserStore.findByAge(null, null);
+        }
+        return userRepository.findAllResponses();
+    }
+
+    @Override
+    @Bulkhead(name = "userRead")
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<UserResponse> findUsersByAge(Integer minAge, Integer maxAge) {
+        if (columnarUserStore.isReady()) {
+            return columnarUserStore.findByAge(minAge, maxAge);
+        }
+        return userRepository.findResponsesByAge(minAge, maxAge);
+    }
+
+    @Override
+    @Bulkhead(name = "userRead")
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public long countUsers(Integer minAge, Integer maxAge) {
+        if (columnarUserStore.isReady()) {
+            return columnarUserStore.countByAge(minAge, maxAge);
+        }
+        return userRepository.countByAge(minAge, maxAge);
+    }
+
+    @Override
+    @Bulkhead(name = "userRead")
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<UserSuggestion> suggestUsers(String prefix, int limit) {
+        if (userPrefixIndex.isReady()) {
+            return userPrefixIndex.search(prefix, limit);
+        }
+        String term = UserPrefixIndex.normalize(prefix);
+        if (term.isEmpty()) {
+            return List.of();
+        }
+        return userRepository.findSuggestions(likePrefix(term), PageRequest.of(0, limit));
+    }
+
+    /** Шаблон LIKE для префикса с экранированными спецсимволами (escape-символ — обратная косая черта). */
+    static String likePrefix(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    @Override
+    @Bulkhead(name = "userRead")
+    @Transactional(readOnly = true)
+    public UserDeltaResponse getChangesSince(String cursor, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        // Курсор хранит время в микросекундах: с тем же upTo следующий запрос не повторит уже отданное
+        LocalDateTime upTo = now.minus(syncLag).truncatedTo(ChronoUnit.MICROS);
+        SyncCursor from = cursor == null || cursor.isBlank() ? SyncCursor.initial(upTo) : SyncCursor.decode(cursor);
+        if (from.tombstoneTime.isBefore(now.minus(tombstoneRetention))) {
+            throw new SyncCursorExpiredException("Курсор старше " + tombstoneRetention.toDays()
+                    + " дн., удаления за этот период уже не хранятся");
+        }
+
+        List<User> users = userRepository.findChangedAfter(from.userTime, from.userId, upTo, PageRequest.of(0, limit));
+        List<UserTombstone> tombstones = userTombstoneRepository.findDeletedAfter(
+                from.tombstoneTime, from.tombstoneId, upTo, PageRequest.of(0, limit));
+
+        List<UserResponse> changed = new ArrayList<>(users.size());
+        LocalDateTime userTime = from.userTime;
+        long userId = from.userId;
+        for (User user : users) {
+            changed.add(UserResponse.fromEntity(user));
+            userTime = user.getUpdatedAt();
+            userId = user.getId();
+        }
+
+        List<Long> deleted = new ArrayList<>(tombstones.size());
+        LocalDateTime tombstoneTime = from.tombstoneTime;
+        long tombstoneId = from.tombstoneId;
+        for (UserTombstone tombstone : tombstones) {
+            deleted.add(tombstone.getUserId());
+            tombstoneTime = tombstone.getDeletedAt();
+            tombstoneId = tombstone.getUserId();
+        }
+        // Неполная страница — отданы все удаления до upTo: двигаем позицию к нему, иначе клиент,
+        // у которого давно никого не удаляли, через tombstone-retention получит ложный 410
+        if (tombstones.size() < limit && tombstoneTime.isBefore(upTo)) {
+            tombstoneTime = upTo;
+            tombstoneId = Long.MAX_VALUE;
+        }
+
+        String next = new SyncCursor(userTime, userId, tombstoneTime, tombstoneId).encode();
+        return new UserDeltaResponse(changed, deleted, next, users.size() == limit || tombstones.size() == limit);
     }
 
     @Override
+    @Bulkhead(name = "userRead")
+    @Transactional(readOnly = true)
+    public List<UserResponse> getUsersAfter(long afterId, int limit) {
+        return userRepository.findResponsesAfter(afterId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    @Bulkhead(name = "userWrite")
+    @CircuitBreaker(name = "userService", fallbackMethod = "updateUserFallback")
     public UserResponse updateUser(Long id, UpdateUserRequest request) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь с ID " + id + " не найден"));
 
+        UserSnapshot before = UserSnapshot.fromEntity(user);
         boolean needsUpdate = false;
 
         if (request.getName() != null && !request.getName().trim().isEmpty()
@@ -102,6 +312,7 @@ public class UserServiceImpl implements UserService {
                     });
 
             user.setEmail(newEmail);
+            userExistenceFilter.onEmailAdded(newEmail);
             needsUpdate = true;
         }
 
@@ -112,6 +323,9 @@ public class UserServiceImpl implements UserService {
 
         if (needsUpdate) {
             User updatedUser = userRepository.save(user);
+            LocalDateTime changedAt = userChangeRecorder.recordUpdate(before, updatedUser);
+            userCache.putAfterCommit(updatedUser);
+            columnarUserStore.putAfterCommit(updatedUser, changedAt);
             log.info("Пользователь с ID {} успешно обновлен", id);
             return UserResponse.fromEntity(updatedUser);
         }
@@ -119,14 +333,40 @@ public class UserServiceImpl implements UserService {
         return UserResponse.fromEntity(user);
     }
 
+    public UserResponse updateUserFallback(Long id, UpdateUserRequest request, DomainException e) {
+        throw e;
+    }
+
+    public UserResponse updateUserFallback(Long id, UpdateUserRequest request, Throwable t) {
+        throw userWriteJournal.degrade(JournalEntry.update(id, request, knownVersion(id)), t);
+    }
+
     @Override
+    @Bulkhead(name = "userWrite")
+    @CircuitBreaker(name = "userService", fallbackMethod = "deleteUserFallback")
     public void deleteUser(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь с ID " + id + " не найден"));
 
         userRepository.deleteById(id);
-        kafkaTemplate.send(TOPIC, new UserEvent(user.getEmail(), "DELETE"));
-        log.info("Событие удаления пользователя отправлено в Kafka для: {}", user.getEmail());
+        userChangeRecorder.recordDelete(user);
+        userCache.evictAfterCommit(id);
+        columnarUserStore.evictAfterCommit(id);
+        UserEvent deleted = new UserEvent(id, user.getVersion(), user.getEmail(), "DELETE");
+        UserCache.runAfterCommit(() -> userEventPublisher.publish(deleted));
         log.info("Пользователь с ID {} удален", id);
     }
+
+    public void deleteUserFallback(Long id, DomainException e) {
+        throw e;
+    }
+
+    public void deleteUserFallback(Long id, Throwable t) {
+        throw userWriteJournal.degrade(JournalEntry.delete(id, knownVersion(id)), t);
+    }
+
+    // БД недоступна, поэтому версия, на которую рассчитывал клиент, известна только из кэша
+    private Long knownVersion(Long id) {
+        return userCache.get(id).map(CachedUser::getVersion).orElse(null);
+    }
 }
@@ -0,0 +1,86 @@
+package ru.astondevs.learn.vorobev.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import ru.astondevs.learn.vorobev.service.OutboxRelay;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link OutboxRelay} для шардов: у каждого шарда свой outbox, события одного пользователя
+ * лежат в одном шарде, поэтому порядок по пользователю сохраняется. На PostgreSQL шард
+ * обслуживает один экземпляр сервиса (advisory-блокировка), на H2 блокировка не берется.
+ */
+@Slf4j
+public class ShardOutboxRelay {
+
+    private static final long RELAY_LOCK_KEY = 0x75736572L; // "user", как в OutboxRelay
+
+    private final ShardedUserRepository repository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final boolean[] advisoryLocks;
+
+    public ShardOutboxRelay(ShardedUserRepository repository, KafkaTemplate<String, String> kafkaTemplate,
+                            int batchSize, long sendTimeoutMs) {
+        this.repository = repository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.advisoryLocks = new boolean[repository.shardCount()];
+        for (int shard = 0; shard < advisoryLocks.length; shard++) {
+            String product = repository.shard(shard).execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            advisoryLocks[shard] = "PostgreSQL".equalsIgnoreCase(product);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:500}")
+    public void publishPending() {
+        for (int shard = 0; shard < repository.shardCount(); shard++) {
+            try {
+                publishPending(shard);
+            } catch (RuntimeException e) {
+                // Недоступный шард не должен задерживать публикацию остальных
+                log.warn("Outbox шарда {} не обработан: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    void publishPending(int shard) {
+        JdbcTemplate jdbc = repository.shard(shard);
+        int published = repository.inShard(shard, () -> {
+            if (advisoryLocks[shard]
+                    && !Boolean.TRUE.equals(jdbc.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, RELAY_LOCK_KEY))) {
+                return 0;
+            }
+
+            List<Object[]> batch = jdbc.query("SELECT id, aggregate_id, payload FROM user_outbox ORDER BY id LIMIT ?",
+                    (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getString(3)}, batchSize);
+            List<ProducerRecord<String, String>> records = new ArrayList<>(batch.size());
+            for (Object[] event : batch) {
+                ProducerRecord<String, String> record =
+                        new ProducerRecord<>(OutboxRelay.TOPIC, String.valueOf(event[1]), (String) event[2]);
+                record.headers().add("outbox-id", String.valueOf(event[0]).getBytes(StandardCharsets.UTF_8));
+                record.headers().add("outbox-shard", String.valueOf(shard).getBytes(StandardCharsets.UTF_8));
+                records.add(record);
+            }
+
+            int sent = OutboxRelay.sendInOrder(kafkaTemplate, records, sendTimeoutMs);
+            for (Object[] event : batch.subList(0, sent)) {
+                jdbc.update("DELETE FROM user_outbox WHERE id = ?", event[0]);
+            }
+            return sent;
+        });
+        if (published > 0) {
+            log.debug("Опубликовано {} событий изменения пользователей из шарда {}", published, shard);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ru.astondevs.learn.vorobev.sharding;
+
+/**
+ * Размещение пользователей по шардам.
+ * <p>
+ * Младшие {@link #BUCKET_BITS} бит ID — номер виртуального бакета, остальные — значение
+ * общей последовательности. Бакет — хеш этого значения, шард бакета — остаток от деления на число
+ * шардов. Поэтому ID целиком определяется номером из последовательности, шард находится по одному
+ * ID, без справочника, а при добавлении шардов данные переносятся целыми бакетами.
+ */
+public final class ShardRouter {
+
+    public static final int BUCKET_BITS = 8;
+    public static final int BUCKETS = 1 << BUCKET_BITS;
+    private static final long BUCKET_MASK = BUCKETS - 1;
+
+    private final int shardCount;
+
+    public ShardRouter(int shardCount) {
+        if (shardCount < 1 || shardCount > BUCKETS) {
+            throw new IllegalArgumentException("Число шардов должно быть от 1 до " + BUCKETS + ": " + shardCount);
+        }
+        this.shardCount = shardCount;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public long idFor(long sequence) {
+        return encodeId(sequence, bucketFor(sequence));
+    }
+
+    public static int bucketFor(long sequence) {
+        // Фибоначчиево хеширование: подряд идущие номера равномерно расходятся по бакетам
+        return (int) ((sequence * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - BUCKET_BITS));
+    }
+
+    public int shardOfBucket(int bucket) {
+        return bucket % shardCount;
+    }
+
+    public int shardOf(long id) {
+        return shardOfBucket(bucketOf(id));
+    }
+
+    public static int bucketOf(long id) {
+        return (int) (id & BUCKET_MASK);
+    }
+
+    public static long encodeId(long sequence, int bucket) {
+        return (sequence << BUCKET_BITS) | bucket;
+    }
+}
@@ -0,0 +1,31 @@
+package ru.astondevs.learn.vorobev.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import ru.astondevs.learn.vorobev.service.TombstonePurger;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * {@link TombstonePurger} для шардов: удаляет надгробия старше {@code app.sync.tombstone-retention}.
+ */
+@Slf4j
+public class ShardTombstonePurger {
+
+    private final ShardedUserRepository repository;
+    private final Duration retention;
+
+    public ShardTombstonePurger(ShardedUserRepository repository, Duration retention) {
+        this.repository = repository;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${app.sync.purge-interval-ms:3600000}")
+    public void purge() {
+        int deleted = repository.deleteTombstonesOlderThan(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Удалено {} устаревших записей об удалении пользователей в шардах", deleted);
+        }
+    }
+}
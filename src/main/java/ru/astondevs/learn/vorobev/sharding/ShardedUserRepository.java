@@ -0,0 +1,350 @@
+package ru.astondevs.learn.vorobev.sharding;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.dto.UserSuggestion;
+import ru.astondevs.learn.vorobev.entity.User;
+import ru.astondevs.learn.vorobev.entity.UserTombstone;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Доступ к пользователям, разложенным по нескольким БД ({@link ShardRouter}), и к глобальному
+ * справочнику email в основной БД. Запросы по ID идут в один шард, списки собираются со всех
+ * шардов параллельно и сливаются по ключу сортировки ({@link #merge}).
+ */
+public class ShardedUserRepository implements Closeable {
+
+    private static final String USER_COLUMNS = "id, name, email, age, created_at, updated_at, version";
+
+    private static final RowMapper<User> USER_MAPPER = (rs, rowNum) -> User.builder()
+            .id(rs.getLong("id"))
+            .name(rs.getString("name"))
+            .email(rs.getString("email"))
+            .age(rs.getInt("age"))
+            .createdAt(rs.getObject("created_at", LocalDateTime.class))
+            .updatedAt(rs.getObject("updated_at", LocalDateTime.class))
+            .version(rs.getObject("version", Long.class))
+            .build();
+
+    private static final RowMapper<UserResponse> RESPONSE_MAPPER = (rs, rowNum) -> new UserResponse(
+            rs.getLong("id"), rs.getString("name"), rs.getString("email"), rs.getInt("age"),
+            rs.getObject("created_at", LocalDateTime.class));
+
+    private final ShardRouter router;
+    private final List<DataSource> shardDataSources;
+    private final List<JdbcTemplate> shards;
+    private final List<TransactionTemplate> transactions;
+    private final DataSource directoryDataSource;
+    private final JdbcTemplate directory;
+    private final ExecutorService scatterExecutor;
+    private final Duration scatterTimeout;
+    private volatile Boolean postgresShards;
+
+    public ShardedUserRepository(List<DataSource> shardDataSources, DataSource directoryDataSource,
+                                 int scatterThreads, Duration scatterTimeout) {
+        this.router = new ShardRouter(shardDataSources.size());
+        this.shardDataSources = List.copyOf(shardDataSources);
+        this.shards = new ArrayList<>(shardDataSources.size());
+        this.transactions = new ArrayList<>(shardDataSources.size());
+        for (DataSource dataSource : shardDataSources) {
+            shards.add(new JdbcTemplate(dataSource));
+            transactions.add(new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        }
+        this.directoryDataSource = directoryDataSource;
+        this.directory = new JdbcTemplate(directoryDataSource);
+        this.scatterTimeout = scatterTimeout;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.scatterExecutor = Executors.newFixedThreadPool(Math.max(1, scatterThreads), task -> {
+            Thread thread = new Thread(task, "shard-query-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public ShardRouter router() {
+        return router;
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public JdbcTemplate shard(int shard) {
+        return shards.get(shard);
+    }
+
+    public void initializeSchema() {
+        for (DataSource dataSource : shardDataSources) {
+            new ResourceDatabasePopulator(new ClassPathResource("sharding/shard-schema.sql")).execute(dataSource);
+        }
+        new ResourceDatabasePopulator(new ClassPathResource("sharding/directory-schema.sql")).execute(directoryDataSource);
+    }
+
+    // --- Справочник email ---
+
+    /** false — email уже занят (возможно, брошенным резервом: см. {@link #takeOverReservation}). */
+    public boolean reserveEmail(String email, long userId) {
+        try {
+            directory.update("INSERT INTO user_email_directory (email, user_id, reserved_at) VALUES (?, ?, ?)",
+                    email, userId, LocalDateTime.now());
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    public Optional<Long> findEmailOwner(String email) {
+        return directory.query("SELECT user_id FROM user_email_directory WHERE email = ?",
+                (rs, rowNum) -> rs.getLong(1), email).stream().findFirst();
+    }
+
+    /** Перехватывает резерв, если он все еще принадлежит {@code staleOwner} и старше {@code reservedBefore}. */
+    public boolean takeOverReservation(String email, long staleOwner, long userId, LocalDateTime reservedBefore) {
+        return directory.update("UPDATE user_email_directory SET user_id = ?, reserved_at = ? "
+                        + "WHERE email = ? AND user_id = ? AND reserved_at < ?",
+                userId, LocalDateTime.now(), email, staleOwner, reservedBefore) == 1;
+    }
+
+    public void releaseEmail(String email, long userId) {
+        directory.update("DELETE FROM user_email_directory WHERE email = ? AND user_id = ?", email, userId);
+    }
+
+    /** Новый ID: номер берется из общей последовательности справочника, шард — по его хешу. */
+    public long nextId() {
+        Long sequence = directory.queryForObject("SELECT nextval('user_id_seq')", Long.class);
+        return router.idFor(sequence);
+    }
+
+    // --- Один шард ---
+
+    public Optional<User> findById(long id) {
+        return shards.get(router.shardOf(id))
+                .query("SELECT " + USER_COLUMNS + " FROM users WHERE id = ?", USER_MAPPER, id)
+                .stream().findFirst();
+    }
+
+    /** Выполняет {@code work} в транзакции шарда, которому принадлежит {@code userId}. */
+    public <T> T inShardTransaction(long userId, Function<JdbcTemplate, T> work) {
+        int shard = router.shardOf(userId);
+        JdbcTemplate jdbc = shards.get(shard);
+        return transactions.get(shard).execute(status -> work.apply(jdbc));
+    }
+
+    /** Выполняет {@code work} в транзакции шарда с номером {@code shard}. */
+    public <T> T inShard(int shard, Supplier<T> work) {
+        return transactions.get(shard).execute(status -> work.get());
+    }
+
+    public static void insert(JdbcTemplate shard, User user) {
+        shard.update("INSERT INTO users (" + USER_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?)",
+                user.getId(), user.getName(), user.getEmail(), user.getAge(),
+                user.getCreatedAt(), user.getUpdatedAt(), user.getVersion());
+    }
+
+    /** Обновление с проверкой версии, как {@code @Version} у JPA-сущности; версия в {@code user} увеличивается. */
+    public static void update(JdbcTemplate shard, User user) {
+        int updated = shard.update("UPDATE users SET name = ?, email = ?, age = ?, updated_at = ?, version = version + 1 "
+                        + "WHERE id = ? AND version = ?",
+                user.getName(), user.getEmail(), user.getAge(), user.getUpdatedAt(), user.getId(), user.getVersion());
+        if (updated != 1) {
+            throw new OptimisticLockingFailureException("Пользователь " + user.getId() + " изменен параллельно");
+        }
+        user.setVersion(user.getVersion() + 1);
+    }
+
+    public static void delete(JdbcTemplate shard, long id, LocalDateTime deletedAt) {
+        shard.update("DELETE FROM users WHERE id = ?", id);
+        // ID не переиспользуются (общая последовательность user_id_seq справочника), поэтому надгробие вставляется без upsert
+        shard.update("INSERT INTO user_tombstones (user_id, deleted_at) VALUES (?, ?)", id, deletedAt);
+    }
+
+    public static void insertOutbox(JdbcTemplate shard, long userId, String operation, String payload, LocalDateTime createdAt) {
+        shard.update("INSERT INTO user_outbox (aggregate_id, operation, payload, created_at) VALUES (?, ?, ?, ?)",
+                userId, operation, payload, createdAt);
+    }
+
+    // --- Все шарды ---
+
+    public List<List<UserResponse>> findAllResponses() {
+        return scatter(jdbc -> jdbc.query("SELECT id, name, email, age, created_at FROM users ORDER BY id", RESPONSE_MAPPER));
+    }
+
+    public List<List<UserResponse>> findResponsesAfter(long afterId, int limit) {
+        return scatter(jdbc -> jdbc.query("SELECT id, name, email, age, created_at FROM users WHERE id > ? ORDER BY id LIMIT ?",
+                RESPONSE_MAPPER, afterId, limit));
+    }
+
+    public List<List<UserResponse>> findResponsesByAge(int minAge, int maxAge) {
+        return scatter(jdbc -> jdbc.query("SELECT id, name, email, age, created_at FROM users "
+                + "WHERE age BETWEEN ? AND ? ORDER BY id", RESPONSE_MAPPER, minAge, maxAge));
+    }
+
+    public long countByAge(int minAge, int maxAge) {
+        long total = 0;
+        for (List<Long> count : scatter(jdbc -> jdbc.queryForList(
+                "SELECT count(*) FROM users WHERE age BETWEEN ? AND ?", Long.class, minAge, maxAge))) {
+            total += count.get(0);
+        }
+        return total;
+    }
+
+    /**
+     * Шард сортирует в том же порядке, что и {@link String#compareTo} при слиянии: иначе под
+     * лингвистической сортировкой PostgreSQL (кириллические имена) LIMIT шарда отрезал бы строки,
+     * которые после слияния вошли бы в первые {@code limit}.
+     */
+    public List<List<UserSuggestion>> findSuggestions(String pattern, int limit) {
+        String sql = "SELECT id, name, email FROM users "
+                + "WHERE lower(name) LIKE ? ESCAPE '\\' OR lower(email) LIKE ? ESCAPE '\\' ORDER BY "
+                + binaryOrder("name") + ", id LIMIT ?";
+        return scatter(jdbc -> jdbc.query(sql,
+                (rs, rowNum) -> new UserSuggestion(rs.getLong("id"), rs.getString("name"), rs.getString("email")),
+                pattern, pattern, limit));
+    }
+
+    // H2 (локальные проверки) и так сравнивает строки как String.compareTo, а COLLATE в ORDER BY не понимает
+    private String binaryOrder(String column) {
+        Boolean postgres = postgresShards;
+        if (postgres == null) {
+            String product = shards.get(0).execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+            postgresShards = postgres;
+        }
+        return postgres ? column + " COLLATE \"C\"" : column;
+    }
+
+    public List<List<User>> findChangedAfter(LocalDateTime afterTime, long afterId, LocalDateTime upTo, int limit) {
+        return scatter(jdbc -> jdbc.query("SELECT " + USER_COLUMNS + " FROM users WHERE updated_at <= ? "
+                        + "AND (updated_at > ? OR (updated_at = ? AND id > ?)) ORDER BY updated_at, id LIMIT ?",
+                USER_MAPPER, upTo, afterTime, afterTime, afterId, limit));
+    }
+
+    public List<List<UserTombstone>> findDeletedAfter(LocalDateTime afterTime, long afterId, LocalDateTime upTo, int limit) {
+        return scatter(jdbc -> jdbc.query("SELECT user_id, deleted_at FROM user_tombstones WHERE deleted_at <= ? "
+                        + "AND (deleted_at > ? OR (deleted_at = ? AND user_id > ?)) ORDER BY deleted_at, user_id LIMIT ?",
+                (rs, rowNum) -> new UserTombstone(rs.getLong("user_id"), rs.getObject("deleted_at", LocalDateTime.class)),
+                upTo, afterTime, afterTime, afterId, limit));
+    }
+
+    public int deleteTombstonesOlderThan(LocalDateTime before) {
+        int deleted = 0;
+        for (List<Integer> count : scatter(jdbc -> List.of(
+                jdbc.update("DELETE FROM user_tombstones WHERE deleted_at < ?", before)))) {
+            deleted += count.get(0);
+        }
+        return deleted;
+    }
+
+    /** Один и тот же запрос ко всем шардам параллельно; результат — по списку на шард в порядке шардов. */
+    public <T> List<List<T>> scatter(Function<JdbcTemplate, List<T>> query) {
+        if (shards.size() == 1) {
+            return List.of(query.apply(shards.get(0)));
+        }
+        List<Future<List<T>>> futures = new ArrayList<>(shards.size());
+        for (JdbcTemplate shard : shards) {
+            futures.add(scatterExecutor.submit(() -> query.apply(shard)));
+        }
+
+        long deadline = System.nanoTime() + scatterTimeout.toNanos();
+        List<List<T>> results = new ArrayList<>(shards.size());
+        try {
+            for (Future<List<T>> future : futures) {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Запрос к шардам прерван", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause()
+                    : new IllegalStateException("Запрос к шарду не выполнен", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Шарды не ответили за " + scatterTimeout.toMillis() + " мс", e);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    /**
+     * Слияние отсортированных ответов шардов: первые {@code limit} элементов в порядке {@code order}.
+     * Для keyset-пагинации каждый шард должен вернуть не меньше {@code limit} строк после курсора.
+     */
+    public static <T> List<T> merge(List<List<T>> parts, Comparator<? super T> order, int limit) {
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>(Math.max(1, parts.size()),
+                (a, b) -> order.compare(a.head(), b.head()));
+        for (List<T> part : parts) {
+            if (!part.isEmpty()) {
+                heads.add(new Cursor<>(part));
+            }
+        }
+        List<T> merged = new ArrayList<>(Math.min(limit, parts.stream().mapToInt(List::size).sum()));
+        while (merged.size() < limit && !heads.isEmpty()) {
+            Cursor<T> cursor = heads.poll();
+            merged.add(cursor.head());
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void close() {
+        scatterExecutor.shutdownNow();
+        for (DataSource dataSource : shardDataSources) {
+            if (dataSource instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) dataSource).close();
+                } catch (Exception ignored) {
+                    // Остановка приложения: закрываем остальные пулы
+                }
+            }
+        }
+    }
+
+    private static final class Cursor<T> {
+        private final List<T> items;
+        private int position;
+
+        private Cursor(List<T> items) {
+            this.items = items;
+        }
+
+        T head() {
+            return items.get(position);
+        }
+
+        boolean advance() {
+            return ++position < items.size();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.astondevs.learn.vorobev.sharding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.core.KafkaTemplate;
+import ru.astondevs.learn.vorobev.service.ShardedUserService;
+import ru.astondevs.learn.vorobev.service.UserEventPublisher;
+import ru.astondevs.learn.vorobev.service.UserService;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Шардированное хранение пользователей ({@code app.sharding.enabled=true}). Основная БД остается
+ * справочником email и хранилищем остальных таблиц; {@link ShardedUserService} подменяет
+ * {@link ru.astondevs.learn.vorobev.service.UserServiceImpl}. Компоненты, работающие с таблицей
+ * {@code users} основной БД (UserServiceImpl с его индексами, прогрев кэша, журнал записей,
+ * очистка надгробий), отключены через {@code @ConditionalOnProperty} на самих классах.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public ShardedUserRepository shardedUserRepository(ShardingProperties properties, DataSource dataSource) {
+        if (properties.getShards().isEmpty()) {
+            throw new IllegalStateException("app.sharding.enabled=true, но app.sharding.shards не заданы");
+        }
+        List<DataSource> shards = new ArrayList<>(properties.getShards().size());
+        for (int i = 0; i < properties.getShards().size(); i++) {
+            ShardingProperties.Shard shard = properties.getShards().get(i);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("user-shard-" + i);
+            pool.setJdbcUrl(shard.getUrl());
+            pool.setUsername(shard.getUsername());
+            pool.setPassword(shard.getPassword());
+            pool.setMaximumPoolSize(shard.getMaximumPoolSize());
+            shards.add(pool);
+        }
+
+        ShardedUserRepository repository = new ShardedUserRepository(shards, dataSource,
+                properties.getScatterThreads(), properties.getScatterTimeout());
+        if (properties.isInitializeSchema()) {
+            repository.initializeSchema();
+        }
+        return repository;
+    }
+
+    @Bean
+    @Primary
+    public UserService shardedUserService(ShardedUserRepository repository,
+                                          UserEventPublisher userEventPublisher,
+                                          ObjectMapper objectMapper,
+                                          ShardingProperties properties,
+                                          @Value("${app.sync.lag:5s}") Duration syncLag,
+                                          @Value("${app.sync.tombstone-retention:30d}") Duration tombstoneRetention) {
+        return new ShardedUserService(repository, userEventPublisher, objectMapper,
+                properties.getReservationTimeout(), syncLag, tombstoneRetention);
+    }
+
+    @Bean
+    public ShardOutboxRelay shardOutboxRelay(ShardedUserRepository repository,
+                                             KafkaTemplate<String, String> changeEventKafkaTemplate,
+                                             @Value("${app.outbox.batch-size:100}") int batchSize,
+                                             @Value("${app.outbox.send-timeout-ms:5000}") long sendTimeoutMs) {
+        return new ShardOutboxRelay(repository, changeEventKafkaTemplate, batchSize, sendTimeoutMs);
+    }
+
+    @Bean
+    public ShardTombstonePurger shardTombstonePurger(ShardedUserRepository repository,
+                                                     @Value("${app.sync.tombstone-retention:30d}") Duration retention) {
+        return new ShardTombstonePurger(repository, retention);
+    }
+}
@@ -0,0 +1,41 @@
+package ru.astondevs.learn.vorobev.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Шардирование таблицы пользователей ({@code app.sharding}). По умолчанию выключено:
+ * пользователи хранятся в основной БД, как раньше.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    /** Создавать таблицы шардов и справочника email при старте (IF NOT EXISTS). */
+    private boolean initializeSchema = true;
+
+    /** Порядок шардов менять нельзя: номер шарда вычисляется из ID. */
+    private List<Shard> shards = new ArrayList<>();
+
+    /** Потоки для параллельных запросов ко всем шардам. */
+    private int scatterThreads = 8;
+
+    private Duration scatterTimeout = Duration.ofSeconds(5);
+
+    /** Через сколько резерв email без пользователя в шарде считается брошенным. */
+    private Duration reservationTimeout = Duration.ofMinutes(1);
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,63 @@
+package ru.astondevs.learn.vorobev.web;
+
+import ru.astondevs.learn.vorobev.config.RateLimitProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Адаптивный лимит одновременных запросов по схеме AIMD: лимит растет на 1 после каждого
+ * быстрого ответа и умножается на backoff-ratio после медленного или отклоненного.
+ * Лишние запросы отбрасываются сразу, до того как займут соединение Hikari или продюсер Kafka.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final RateLimitProperties.Concurrency properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    public AdaptiveConcurrencyLimiter(RateLimitProperties.Concurrency properties) {
+        this.properties = properties;
+        this.limit = properties.getInitialLimit();
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /** Освобождает разрешение без учета времени ответа (например, для асинхронных запросов). */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public void release(long latencyNanos, boolean overloaded) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        onSample(latencyNanos, overloaded, inFlightBefore);
+    }
+
+    private synchronized void onSample(long latencyNanos, boolean overloaded, int inFlightBefore) {
+        double newLimit = limit;
+        if (overloaded || latencyNanos > properties.getLatencyThreshold().toNanos()) {
+            newLimit = limit * properties.getBackoffRatio();
+        } else if (inFlightBefore * 2 >= limit) {
+            // Растем только под реальной нагрузкой, иначе лимит уйдет в максимум при простое
+            newLimit = limit + 1;
+        }
+        limit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), newLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
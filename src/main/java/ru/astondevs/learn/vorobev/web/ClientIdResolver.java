@@ -0,0 +1,42 @@
+package ru.astondevs.learn.vorobev.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import ru.astondevs.learn.vorobev.config.RateLimitProperties;
+
+/**
+ * Определяет клиента запроса для поклиентских лимитов.
+ * <p>
+ * Ключ из заголовка учитывается, только если он выдан клиенту ({@code app.rate-limit.api-keys}):
+ * иначе клиент, меняющий ключ на каждом запросе, каждый раз получал бы новый бюджет.
+ * По той же причине адрес берется из {@code X-Forwarded-For} справа: каждый доверенный прокси
+ * дописывает в конец адрес, с которого к нему пришли, а все, что левее, мог прислать сам клиент.
+ */
+public class ClientIdResolver {
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    private final RateLimitProperties properties;
+
+    public ClientIdResolver(RateLimitProperties properties) {
+        this.properties = properties;
+    }
+
+    public String resolve(HttpServletRequest request) {
+        String apiKey = request.getHeader(properties.getClientHeader());
+        if (apiKey != null && properties.getApiKeys().contains(apiKey)) {
+            return "key:" + apiKey;
+        }
+        return "ip:" + clientAddress(request);
+    }
+
+    private String clientAddress(HttpServletRequest request) {
+        int trustedProxies = properties.getTrustedProxies();
+        String forwardedFor = request.getHeader(FORWARDED_FOR);
+        if (trustedProxies <= 0 || forwardedFor == null || forwardedFor.isBlank()) {
+            return request.getRemoteAddr();
+        }
+        // С одним Gateway адрес клиента — последний: его дописал сам Gateway
+        String[] hops = forwardedFor.split(",");
+        return hops[Math.max(0, hops.length - trustedProxies)].trim();
+    }
+}
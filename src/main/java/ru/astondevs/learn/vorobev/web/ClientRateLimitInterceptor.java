@@ -0,0 +1,128 @@
+package ru.astondevs.learn.vorobev.web;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import ru.astondevs.learn.vorobev.config.RateLimitProperties;
+import ru.astondevs.learn.vorobev.exception.RateLimitExceededException;
+import ru.astondevs.learn.vorobev.exception.ServiceOverloadedException;
+
+import java.time.Duration;
+
+/**
+ * Ограничивает частоту запросов каждого клиента (отдельные бюджеты на чтение и запись)
+ * и общее число одновременно обрабатываемых запросов экземпляра.
+ */
+public class ClientRateLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String STARTED_AT = ClientRateLimitInterceptor.class.getName() + ".startedAt";
+
+    private final RateLimitProperties properties;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ClientIdResolver clientIdResolver;
+    private final Cache<String, RateLimiter> limiters;
+
+    public ClientRateLimitInterceptor(RateLimitProperties properties, AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                      ClientIdResolver clientIdResolver) {
+        this.properties = properties;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.clientIdResolver = clientIdResolver;
+        this.limiters = Caffeine.newBuilder()
+                .expireAfterAccess(properties.getClientIdleTimeout())
+                .maximumSize(properties.getMaxClients())
+                .build();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Повторные (ASYNC/ERROR) диспетчеризации того же запроса не тарифицируем
+        if (!properties.isEnabled() || request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+
+        boolean read = isRead(request);
+        RateLimitProperties.Budget budget = read ? properties.getRead() : properties.getWrite();
+        String limiterKey = (read ? "read:" : "write:") + clientIdResolver.resolve(request);
+        RateLimiter limiter = limiters.get(limiterKey, key -> RateLimiter.of(key, toConfig(budget)));
+        limiter = adjust(limiterKey, limiter, budget);
+
+        if (!limiter.acquirePermission()) {
+            throw new RateLimitExceededException(
+                    "Превышен лимит запросов для клиента", retryAfterSeconds(budget.getRefreshPeriod()));
+        }
+
+        if (properties.getConcurrency().isEnabled()) {
+            if (!concurrencyLimiter.tryAcquire()) {
+                throw new ServiceOverloadedException("Сервис перегружен, повторите запрос позже");
+            }
+            request.setAttribute(STARTED_AT, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Долгие асинхронные ответы (потоки, SSE) не держат разрешение и не искажают замеры задержки
+        if (request.getAttribute(STARTED_AT) != null) {
+            request.removeAttribute(STARTED_AT);
+            concurrencyLimiter.release();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object startedAt = request.getAttribute(STARTED_AT);
+        if (startedAt == null) {
+            return;
+        }
+        request.removeAttribute(STARTED_AT);
+        boolean overloaded = response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value();
+        concurrencyLimiter.release(System.nanoTime() - (Long) startedAt, overloaded);
+    }
+
+    /**
+     * Бюджет мог измениться после {@code /actuator/refresh}: лимит за период меняется у существующего
+     * лимитера, а при смене периода лимитер клиента создается заново.
+     */
+    private RateLimiter adjust(String limiterKey, RateLimiter limiter, RateLimitProperties.Budget budget) {
+        RateLimiterConfig config = limiter.getRateLimiterConfig();
+        if (!config.getLimitRefreshPeriod().equals(budget.getRefreshPeriod())) {
+            RateLimiter replacement = RateLimiter.of(limiterKey, toConfig(budget));
+            limiters.put(limiterKey, replacement);
+            return replacement;
+        }
+        if (config.getLimitForPeriod() != budget.getLimitForPeriod()) {
+            limiter.changeLimitForPeriod(budget.getLimitForPeriod());
+        }
+        return limiter;
+    }
+
+    public void reset() {
+        limiters.invalidateAll();
+    }
+
+    // OPTIONS (preflight CORS) дешевле любой записи, поэтому тарифицируется как чтение
+    private static boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method);
+    }
+
+    private static RateLimiterConfig toConfig(RateLimitProperties.Budget budget) {
+        return RateLimiterConfig.custom()
+                .limitForPeriod(budget.getLimitForPeriod())
+                .limitRefreshPeriod(budget.getRefreshPeriod())
+                .timeoutDuration(Duration.ZERO)
+                .build();
+    }
+
+    private static long retryAfterSeconds(Duration refreshPeriod) {
+        return Math.max(1, (refreshPeriod.toMillis() + 999) / 1000);
+    }
+}
@@ -0,0 +1,166 @@
+package ru.astondevs.learn.vorobev.web;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import ru.astondevs.learn.vorobev.dto.UserChangeEvent;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * Готовые байты ответов {@code GET /api/v1/users/{id}}: повторное чтение пользователя не создает
+ * {@code UserResponse}, не строит HATEOAS-ссылки и не сериализует JSON заново.
+ * <p>
+ * Ссылки в теле абсолютные, поэтому кэшируются только запросы, пришедшие на настроенный внешний адрес
+ * ({@code app.response-cache.base-url}). Вариант ответа — один из фиксированного списка типов
+ * ({@link #VARIANTS}), так что у пользователя не больше четырех вариантов, какие бы заголовки ни прислал клиент;
+ * запросы с другим {@code Accept} обслуживаются контроллером без кэша.
+ * <p>
+ * Версия пользователя до чтения неизвестна, поэтому записи не ключуются по ней, а удаляются при изменении:
+ * сразу после {@code updateUser}/{@code deleteUser} на этом экземпляре и по потоку {@code user-changes}
+ * на остальных; отставание ограничено {@code app.response-cache.ttl}, как у L1. Ответ, построенный
+ * до такого удаления, в кэш уже не попадает: фильтр сверяет {@link #generation} до и после обработки.
+ */
+public class EncodedResponseCache {
+
+    private static final Pattern USER_PATH = Pattern.compile("^/api/v1/users/(\\d{1,18})$");
+    private static final String ANY = "*/*";
+    private static final Set<String> VARIANTS = Set.of(ANY, "application/hal+json", "application/json", "application/cbor");
+    private static final int GENERATION_SLOTS = 4096;
+
+    private final Cache<Long, Map<String, Entry>> entries;
+    private final String baseUrl;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_SLOTS);
+    private final AtomicLong epoch = new AtomicLong();
+
+    public EncodedResponseCache(long maxUsers, Duration ttl, String baseUrl) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(ttl)
+                .build();
+        this.baseUrl = normalize(baseUrl);
+    }
+
+    /** ID пользователя, если запрос — кэшируемое чтение одного пользователя, иначе null. */
+    static Long cacheableUserId(HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return null;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        Matcher matcher = USER_PATH.matcher(path);
+        return matcher.matches() ? Long.valueOf(matcher.group(1)) : null;
+    }
+
+    /** Вариант ответа для запроса или null, если такой запрос не кэшируется. */
+    String variant(HttpServletRequest request) {
+        if (baseUrl.isEmpty() || !baseUrl.equals(requestBaseUrl(request))) {
+            return null;
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return ANY;
+        }
+        try {
+            List<MediaType> types = MediaType.parseMediaTypes(accept);
+            if (types.size() != 1) {
+                return null;
+            }
+            String type = types.get(0).getType() + '/' + types.get(0).getSubtype();
+            return VARIANTS.contains(type) ? type : null;
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+    }
+
+    Entry get(long userId, String variant) {
+        Map<String, Entry> variants = entries.getIfPresent(userId);
+        return variants != null ? variants.get(variant) : null;
+    }
+
+    /** Поколение записей пользователя; меняется при каждом сбросе. Берется до обработки запроса. */
+    long generation(long userId) {
+        return epoch.get() + generations.get(slot(userId));
+    }
+
+    /** Запоминает ответ, если записи пользователя не сбрасывались с момента {@code generation}; иначе null. */
+    Entry put(long userId, String variant, long generation, String contentType, byte[] body) {
+        if (generation(userId) != generation) {
+            return null;
+        }
+        Entry entry = new Entry(contentType, body);
+        // Если пользователя удалят из кэша между get и put, запись уйдет в уже отброшенную карту — это безопасно
+        Map<String, Entry> variants = entries.get(userId, id -> new ConcurrentHashMap<>());
+        variants.put(variant, entry);
+        // Сброс мог прийтись на саму запись: поколение сдвигается до удаления, поэтому проверки после хватает
+        if (generation(userId) != generation) {
+            variants.remove(variant, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    public void invalidate(long userId) {
+        generations.incrementAndGet(slot(userId));
+        entries.invalidate(userId);
+    }
+
+    public void invalidateAll() {
+        epoch.incrementAndGet();
+        entries.invalidateAll();
+    }
+
+    @EventListener
+    public void onUserChange(UserChangeEvent event) {
+        if (event.getUserId() != null) {
+            invalidate(event.getUserId());
+        }
+    }
+
+    private static String requestBaseUrl(HttpServletRequest request) {
+        String scheme = request.getScheme();
+        int port = request.getServerPort();
+        boolean defaultPort = port <= 0 || ("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443);
+        return normalize(scheme + "://" + request.getServerName() + (defaultPort ? "" : ":" + port));
+    }
+
+    private static String normalize(String url) {
+        if (url == null) {
+            return "";
+        }
+        String trimmed = url.trim().toLowerCase(Locale.ROOT);
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    private static int slot(long userId) {
+        return Long.hashCode(userId) & (GENERATION_SLOTS - 1);
+    }
+
+    static final class Entry {
+        final String contentType;
+        final byte[] body;
+        final String etag;
+
+        private Entry(String contentType, byte[] body) {
+            this.contentType = contentType;
+            this.body = body;
+            CRC32C crc = new CRC32C();
+            crc.update(body);
+            this.etag = "\"" + Long.toHexString(crc.getValue()) + '-' + Integer.toHexString(body.length) + "\"";
+        }
+    }
+}
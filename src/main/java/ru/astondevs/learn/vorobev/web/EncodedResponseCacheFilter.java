@@ -0,0 +1,55 @@
+package ru.astondevs.learn.vorobev.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+/**
+ * Запоминает байты успешного ответа {@code GET /api/v1/users/{id}} в {@link EncodedResponseCache}.
+ * Попадания в кэш обслуживает {@link EncodedResponseCacheInterceptor}: фильтр стоит до лимитов запросов
+ * и отдавать ответы сам не должен.
+ */
+public class EncodedResponseCacheFilter extends OncePerRequestFilter {
+
+    private final EncodedResponseCache cache;
+
+    public EncodedResponseCacheFilter(EncodedResponseCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return EncodedResponseCache.cacheableUserId(request) == null || cache.variant(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long userId = EncodedResponseCache.cacheableUserId(request);
+        String variant = cache.variant(request);
+        // До контроллера: изменение, зафиксированное во время запроса, не даст закэшировать старые байты
+        long generation = cache.generation(userId);
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, wrapper);
+            if (request.getAttribute(EncodedResponseCacheInterceptor.HIT) == null
+                    && wrapper.getStatus() == HttpServletResponse.SC_OK
+                    && wrapper.getContentType() != null
+                    && wrapper.getContentSize() > 0) {
+                EncodedResponseCache.Entry entry = cache.put(userId, variant, generation,
+                        wrapper.getContentType(), wrapper.getContentAsByteArray());
+                if (entry != null) {
+                    wrapper.setHeader(HttpHeaders.ETAG, entry.etag);
+                }
+            }
+        } finally {
+            wrapper.copyBodyToResponse();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ru.astondevs.learn.vorobev.web;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+/**
+ * Отдает пользователя из {@link EncodedResponseCache}, не вызывая контроллер. Стоит после
+ * {@link ClientRateLimitInterceptor}, поэтому попадания в кэш тоже тарифицируются и учитываются
+ * адаптивным лимитом. Байты пишутся прямо в ответ контейнера, минуя буфер {@link EncodedResponseCacheFilter}.
+ */
+public class EncodedResponseCacheInterceptor implements HandlerInterceptor {
+
+    static final String HIT = EncodedResponseCacheInterceptor.class.getName() + ".hit";
+
+    private final EncodedResponseCache cache;
+
+    public EncodedResponseCacheInterceptor(EncodedResponseCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        Long userId = EncodedResponseCache.cacheableUserId(request);
+        if (userId == null) {
+            return true;
+        }
+        String variant = cache.variant(request);
+        EncodedResponseCache.Entry entry = variant != null ? cache.get(userId, variant) : null;
+        if (entry == null) {
+            return true;
+        }
+
+        request.setAttribute(HIT, Boolean.TRUE);
+        HttpServletResponse target = unwrap(response);
+        target.setHeader(HttpHeaders.ETAG, entry.etag);
+        if (entry.etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            target.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        target.setStatus(HttpServletResponse.SC_OK);
+        target.setContentType(entry.contentType);
+        target.setContentLength(entry.body.length);
+        target.getOutputStream().write(entry.body);
+        return false;
+    }
+
+    private static HttpServletResponse unwrap(HttpServletResponse response) {
+        if (response instanceof ContentCachingResponseWrapper) {
+            ServletResponse inner = ((ContentCachingResponseWrapper) response).getResponse();
+            if (inner instanceof HttpServletResponse) {
+                return (HttpServletResponse) inner;
+            }
+        }
+        return response;
+    }
+}
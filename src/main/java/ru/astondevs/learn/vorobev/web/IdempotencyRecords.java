@@ -0,0 +1,44 @@
+package ru.astondevs.learn.vorobev.web;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Хранилище ключей для {@link IdempotencyStore}. Ключ уникален в паре с ID клиента; запись без ответа
+ * означает, что запрос еще выполняется владельцем ({@code owner}) до {@code lockedUntil}.
+ */
+public interface IdempotencyRecords {
+
+    /** Занимает ключ; false — ключ уже занят, его состояние читается через {@link #find}. */
+    boolean claim(String clientId, String key, String requestHash, String owner,
+                  LocalDateTime now, LocalDateTime lockedUntil);
+
+    Optional<Entry> find(String clientId, String key);
+
+    /** Перехватывает ключ без ответа, владелец которого не уложился в {@code lockedUntil}. */
+    boolean takeOver(String clientId, String key, String owner, LocalDateTime now, LocalDateTime lockedUntil);
+
+    /** Сохраняет ответ; побеждает первый завершившийся запрос. */
+    void complete(String clientId, String key, String response);
+
+    /** Освобождает ключ без ответа, если им все еще владеет {@code owner}. */
+    void release(String clientId, String key, String owner);
+
+    /** Удаляет ключ, созданный раньше {@code createdBefore}; true — ключ удален. */
+    boolean expire(String clientId, String key, LocalDateTime createdBefore);
+
+    int purgeCreatedBefore(LocalDateTime createdBefore);
+
+    @Getter
+    @RequiredArgsConstructor
+    final class Entry {
+        private final String requestHash;
+        private final String response; // null, пока запрос выполняется
+        private final String owner;
+        private final LocalDateTime lockedUntil;
+        private final LocalDateTime createdAt;
+    }
+}
@@ -0,0 +1,192 @@
+package ru.astondevs.learn.vorobev.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.dto.UserSnapshot;
+import ru.astondevs.learn.vorobev.exception.IdempotencyKeyConflictException;
+import ru.astondevs.learn.vorobev.exception.IdempotencyKeyMismatchException;
+import ru.astondevs.learn.vorobev.exception.InvalidIdempotencyKeyException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Обработка заголовка {@code Idempotency-Key} для создания пользователей.
+ * Повтор запроса с тем же ключом и телом возвращает сохраненный ответ без обращения к сервису.
+ * Поведение следует черновику IETF httpapi-idempotency-key-header: запрос с ключом, который
+ * еще обрабатывается, получает 409, повтор ключа с другим телом — 422, слишком длинный ключ — 400.
+ * <p>
+ * Ключи хранятся в {@link IdempotencyRecords} ({@code app.idempotency.store}, по умолчанию — таблица
+ * в основной БД), поэтому повтор, попавший на другой экземпляр, тоже получит сохраненный ответ.
+ * Ограничения:
+ * <ul>
+ *     <li>ключ действует в пределах клиента ({@link ClientIdResolver}): без API-ключа это IP,
+ *     и клиент, сменивший адрес, повтор не узнает;</li>
+ *     <li>ответ хранится {@code app.idempotency.ttl-minutes}, после этого ключ можно использовать заново;</li>
+ *     <li>ответ записывается после фиксации создания пользователя, а не в той же транзакции: если экземпляр
+ *     упал между ними, ключ через {@code app.idempotency.lock-timeout} перехватит повтор, и тот получит
+ *     409 из-за уже занятого email вместо сохраненного ответа;</li>
+ *     <li>запрос, выполняющийся дольше {@code lock-timeout}, может быть выполнен повторно — дубликат
+ *     отсекает уникальный индекс email;</li>
+ *     <li>сроки считаются по часам экземпляров, расхождение часов сдвигает их;</li>
+ *     <li>пока хранилище недоступно, запросы с ключом завершаются ошибкой и не попадают в журнал записи.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecords records;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration lockTimeout;
+
+    public IdempotencyStore(IdempotencyRecords records,
+                            ObjectMapper objectMapper,
+                            @Value("${app.idempotency.ttl-minutes:1440}") long ttlMinutes,
+                            @Value("${app.idempotency.lock-timeout:30s}") Duration lockTimeout) {
+        this.records = records;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.lockTimeout = lockTimeout;
+    }
+
+    public Outcome execute(String clientId, String key, Object request, Supplier<UserResponse> action) {
+        if (key == null || key.isBlank()) {
+            return new Outcome(action.get(), false);
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(
+                    "Idempotency-Key не должен быть длиннее " + MAX_KEY_LENGTH + " символов");
+        }
+
+        String requestHash = hash(request);
+        String owner = UUID.randomUUID().toString();
+        Outcome replayed = claimOrReplay(clientId, key, requestHash, owner);
+        if (replayed != null) {
+            return replayed;
+        }
+
+        UserResponse response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            // Ошибки не запоминаем: клиент должен иметь возможность повторить запрос
+            records.release(clientId, key, owner);
+            throw e;
+        }
+        try {
+            records.complete(clientId, key, serialize(response));
+        } catch (DataAccessException e) {
+            // Пользователь уже создан: ответ отдаем, а ключ освободится по lock-timeout
+            log.warn("Не удалось сохранить ответ для Idempotency-Key {}: {}", key, e.getMessage());
+        }
+        return new Outcome(response, false);
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        int removed = records.purgeCreatedBefore(LocalDateTime.now().minus(ttl));
+        if (removed > 0) {
+            log.debug("Удалено {} устаревших ключей Idempotency-Key", removed);
+        }
+    }
+
+    // null — ключ занят этим запросом и его нужно выполнить
+    private Outcome claimOrReplay(String clientId, String key, String requestHash, String owner) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            LocalDateTime now = LocalDateTime.now();
+            if (records.claim(clientId, key, requestHash, owner, now, now.plus(lockTimeout))) {
+                return null;
+            }
+
+            Optional<IdempotencyRecords.Entry> existing = records.find(clientId, key);
+            if (existing.isEmpty()) {
+                continue; // Владелец освободил ключ после ошибки
+            }
+            IdempotencyRecords.Entry entry = existing.get();
+            if (entry.getCreatedAt().isBefore(now.minus(ttl))) {
+                records.expire(clientId, key, now.minus(ttl));
+                continue;
+            }
+            if (!entry.getRequestHash().equals(requestHash)) {
+                throw new IdempotencyKeyMismatchException(
+                        "Idempotency-Key " + key + " уже использован для другого запроса");
+            }
+            if (entry.getResponse() != null) {
+                return new Outcome(deserialize(entry.getResponse()), true);
+            }
+            if (entry.getLockedUntil().isAfter(now)
+                    || !records.takeOver(clientId, key, owner, now, now.plus(lockTimeout))) {
+                break;
+            }
+            log.warn("Idempotency-Key {} перехвачен: предыдущий запрос не завершился за {}", key, lockTimeout);
+            return null;
+        }
+        throw new IdempotencyKeyConflictException("Запрос с Idempotency-Key " + key + " еще обрабатывается");
+    }
+
+    String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Не удалось вычислить отпечаток запроса", e);
+        }
+    }
+
+    // Хранится снимок без ссылок HATEOAS: контроллер добавляет их к каждому ответу заново
+    private String serialize(UserResponse response) {
+        try {
+            return objectMapper.writeValueAsString(new UserSnapshot(
+                    response.getId(),
+                    response.getName(),
+                    response.getEmail(),
+                    response.getAge(),
+                    response.getCreatedAt()
+            ));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сохранить ответ для Idempotency-Key", e);
+        }
+    }
+
+    private UserResponse deserialize(String stored) {
+        try {
+            UserSnapshot snapshot = objectMapper.readValue(stored, UserSnapshot.class);
+            return new UserResponse(
+                    snapshot.getId(),
+                    snapshot.getName(),
+                    snapshot.getEmail(),
+                    snapshot.getAge(),
+                    snapshot.getCreatedAt()
+            );
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось прочитать сохраненный ответ для Idempotency-Key", e);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static final class Outcome {
+        private final UserResponse response;
+        private final boolean replayed;
+    }
+}
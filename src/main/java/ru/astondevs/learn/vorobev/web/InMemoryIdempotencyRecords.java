@@ -0,0 +1,89 @@
+package ru.astondevs.learn.vorobev.web;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Ключи в памяти процесса: повтор, попавший на другой экземпляр, выполнится заново.
+ * Только для одного экземпляра и тестов ({@code app.idempotency.store=memory}).
+ */
+public class InMemoryIdempotencyRecords implements IdempotencyRecords {
+
+    private final ConcurrentMap<String, Entry> entries;
+
+    public InMemoryIdempotencyRecords(Duration ttl, long maxKeys) {
+        this.entries = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxKeys)
+                .<String, Entry>build()
+                .asMap();
+    }
+
+    @Override
+    public boolean claim(String clientId, String key, String requestHash, String owner,
+                         LocalDateTime now, LocalDateTime lockedUntil) {
+        return entries.putIfAbsent(id(clientId, key), new Entry(requestHash, null, owner, lockedUntil, now)) == null;
+    }
+
+    @Override
+    public Optional<Entry> find(String clientId, String key) {
+        return Optional.ofNullable(entries.get(id(clientId, key)));
+    }
+
+    @Override
+    public boolean takeOver(String clientId, String key, String owner, LocalDateTime now, LocalDateTime lockedUntil) {
+        boolean[] taken = new boolean[1];
+        entries.computeIfPresent(id(clientId, key), (id, entry) -> {
+            if (entry.getResponse() != null || entry.getLockedUntil().isAfter(now)) {
+                return entry;
+            }
+            taken[0] = true;
+            return new Entry(entry.getRequestHash(), null, owner, lockedUntil, entry.getCreatedAt());
+        });
+        return taken[0];
+    }
+
+    @Override
+    public void complete(String clientId, String key, String response) {
+        entries.computeIfPresent(id(clientId, key), (id, entry) -> entry.getResponse() != null ? entry
+                : new Entry(entry.getRequestHash(), response, entry.getOwner(), entry.getLockedUntil(), entry.getCreatedAt()));
+    }
+
+    @Override
+    public void release(String clientId, String key, String owner) {
+        entries.computeIfPresent(id(clientId, key), (id, entry) ->
+                entry.getResponse() == null && entry.getOwner().equals(owner) ? null : entry);
+    }
+
+    @Override
+    public boolean expire(String clientId, String key, LocalDateTime createdBefore) {
+        boolean[] removed = new boolean[1];
+        entries.computeIfPresent(id(clientId, key), (id, entry) -> {
+            removed[0] = entry.getCreatedAt().isBefore(createdBefore);
+            return removed[0] ? null : entry;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public int purgeCreatedBefore(LocalDateTime createdBefore) {
+        int removed = 0;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            if (it.next().getCreatedAt().isBefore(createdBefore)) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    // Перевода строки не бывает ни в значениях HTTP-заголовков, ни в ID клиента
+    private static String id(String clientId, String key) {
+        return clientId + '\n' + key;
+    }
+}
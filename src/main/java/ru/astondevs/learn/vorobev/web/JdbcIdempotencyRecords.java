@@ -0,0 +1,74 @@
+package ru.astondevs.learn.vorobev.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Ключи в таблице {@code idempotency_keys} основной БД (схема — {@code db/idempotency-keys.sql}).
+ * Каждая операция — отдельная короткая транзакция: занятый ключ должен быть виден остальным
+ * экземплярам до того, как запрос начнет создавать пользователя.
+ */
+@RequiredArgsConstructor
+public class JdbcIdempotencyRecords implements IdempotencyRecords {
+
+    private final JdbcTemplate jdbc;
+
+    @Override
+    public boolean claim(String clientId, String key, String requestHash, String owner,
+                         LocalDateTime now, LocalDateTime lockedUntil) {
+        try {
+            jdbc.update("INSERT INTO idempotency_keys (client_id, idempotency_key, request_hash, lock_owner, locked_until, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)", clientId, key, requestHash, owner, lockedUntil, now);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Optional<Entry> find(String clientId, String key) {
+        return jdbc.query("SELECT request_hash, response, lock_owner, locked_until, created_at FROM idempotency_keys "
+                        + "WHERE client_id = ? AND idempotency_key = ?",
+                (rs, rowNum) -> new Entry(
+                        rs.getString(1),
+                        rs.getString(2),
+                        rs.getString(3),
+                        rs.getTimestamp(4).toLocalDateTime(),
+                        rs.getTimestamp(5).toLocalDateTime()),
+                clientId, key).stream().findFirst();
+    }
+
+    @Override
+    public boolean takeOver(String clientId, String key, String owner, LocalDateTime now, LocalDateTime lockedUntil) {
+        return jdbc.update("UPDATE idempotency_keys SET lock_owner = ?, locked_until = ? "
+                + "WHERE client_id = ? AND idempotency_key = ? AND response IS NULL AND locked_until <= ?",
+                owner, lockedUntil, clientId, key, now) == 1;
+    }
+
+    @Override
+    public void complete(String clientId, String key, String response) {
+        jdbc.update("UPDATE idempotency_keys SET response = ? "
+                + "WHERE client_id = ? AND idempotency_key = ? AND response IS NULL", response, clientId, key);
+    }
+
+    @Override
+    public void release(String clientId, String key, String owner) {
+        jdbc.update("DELETE FROM idempotency_keys "
+                + "WHERE client_id = ? AND idempotency_key = ? AND lock_owner = ? AND response IS NULL", clientId, key, owner);
+    }
+
+    @Override
+    public boolean expire(String clientId, String key, LocalDateTime createdBefore) {
+        return jdbc.update("DELETE FROM idempotency_keys WHERE client_id = ? AND idempotency_key = ? AND created_at < ?",
+                clientId, key, createdBefore) == 1;
+    }
+
+    @Override
+    public int purgeCreatedBefore(LocalDateTime createdBefore) {
+        return jdbc.update("DELETE FROM idempotency_keys WHERE created_at < ?", createdBefore);
+    }
+}
@@ -0,0 +1,279 @@
+package ru.astondevs.learn.vorobev.web;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.astondevs.learn.vorobev.dto.UserChangeEvent;
+import ru.astondevs.learn.vorobev.exception.ServiceOverloadedException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Рассылает изменения пользователей подписчикам Server-Sent Events ({@code /api/v1/users/changes}).
+ * <p>
+ * Источник — {@link UserChangeEvent} из потока {@code user-changes}, поэтому подписчик видит изменения,
+ * сделанные на любом экземпляре. Простаивающая подписка — асинхронный запрос Tomcat NIO:
+ * она держит только соединение, без потока.
+ * <p>
+ * У каждого подписчика своя ограниченная очередь, а отправку выполняет небольшой пул
+ * {@code sse-dispatch}, поэтому поток Kafka никогда не ждет медленного клиента. Если очередь
+ * переполнена, накопленные события выбрасываются и клиенту уходит одно событие {@code resync}:
+ * ему нужно перечитать интересующих пользователей, как после переподключения.
+ * <p>
+ * Запись в ответ блокирующая: клиент, который перестал читать, держит поток пула, пока не
+ * сработает таймаут сокета Tomcat. Поэтому запись дольше {@code app.sse.write-timeout}
+ * отключает подписчика, а пул на время зависшей записи получает поток взамен занятого.
+ * Сам ответ завершает поток рассылки, когда запись вернется: зависшая {@code send} держит
+ * монитор SseEmitter, и завершение из планировщика заблокировало бы его общий пул.
+ */
+@Slf4j
+@Component
+public class UserChangeBroadcaster {
+
+    static final String RESYNC_EVENT = "resync";
+    private static final Message HEARTBEAT = new Message(null, null, "heartbeat");
+    private static final Message RESYNC = new Message(RESYNC_EVENT, "Пропущены изменения, перечитайте данные", null);
+
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final ThreadPoolExecutor dispatcher;
+
+    @Value("${app.sse.max-subscribers:15000}")
+    private int maxSubscribers;
+
+    @Value("${app.sse.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${app.sse.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${app.sse.write-timeout:10s}")
+    private Duration writeTimeout;
+
+    public UserChangeBroadcaster(@Value("${app.sse.dispatch-threads:4}") int dispatchThreads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        int threads = Math.max(1, dispatchThreads);
+        this.dispatcher = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "sse-dispatch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Подписка на изменения; пустой или null {@code userIds} — на всех пользователей. */
+    public SseEmitter subscribe(Set<Long> userIds) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        register(emitter, userIds);
+        return emitter;
+    }
+
+    void register(SseEmitter emitter, Set<Long> userIds) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ServiceOverloadedException("Достигнут предел подписок на изменения, повторите позже");
+        }
+        long id = subscriberIds.incrementAndGet();
+        Subscriber subscriber = new Subscriber(id, emitter, userIds == null || userIds.isEmpty() ? null : Set.copyOf(userIds),
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)));
+        subscribers.put(id, subscriber);
+        emitter.onCompletion(() -> subscribers.remove(id));
+        emitter.onTimeout(() -> subscribers.remove(id));
+        emitter.onError(e -> subscribers.remove(id));
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @EventListener
+    public void onUserChange(UserChangeEvent event) {
+        if (event.getUserId() == null || subscribers.isEmpty()) {
+            return;
+        }
+        // В очередь кладется само событие: SseEventBuilder изменяется при build() и не может быть общим
+        Message message = new Message(event.getOperation(), event, null);
+        for (Subscriber subscriber : subscribers.values()) {
+            if (subscriber.accepts(event.getUserId())) {
+                subscriber.enqueue(message);
+            }
+        }
+    }
+
+    // Держит соединение живым за прокси и обнаруживает отключившихся клиентов
+    @Scheduled(fixedDelayString = "${app.sse.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.enqueue(HEARTBEAT);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.sse.write-check-interval-ms:1000}")
+    public void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.dropIfStalled(now);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    private void resizeDispatcher(int delta) {
+        synchronized (dispatcher) {
+            if (delta > 0) {
+                dispatcher.setMaximumPoolSize(dispatcher.getMaximumPoolSize() + delta);
+                dispatcher.setCorePoolSize(dispatcher.getCorePoolSize() + delta);
+            } else {
+                dispatcher.setCorePoolSize(dispatcher.getCorePoolSize() + delta);
+                dispatcher.setMaximumPoolSize(dispatcher.getMaximumPoolSize() + delta);
+            }
+        }
+    }
+
+    /** Неизменяемое сообщение очереди; SseEventBuilder создается заново для каждой отправки. */
+    private static final class Message {
+        private final String name;
+        private final Object data;
+        private final String comment;
+
+        private Message(String name, Object data, String comment) {
+            this.name = name;
+            this.data = data;
+            this.comment = comment;
+        }
+
+        SseEmitter.SseEventBuilder toEvent() {
+            SseEmitter.SseEventBuilder event = SseEmitter.event();
+            if (comment != null) {
+                return event.comment(comment);
+            }
+            return event.name(name).data(data);
+        }
+    }
+
+    private final class Subscriber {
+        private final long id;
+        private final SseEmitter emitter;
+        private final Set<Long> userIds;
+        private final BlockingQueue<Message> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile long writeStartedNanos;
+        private volatile boolean stalled;
+
+        private Subscriber(long id, SseEmitter emitter, Set<Long> userIds, BlockingQueue<Message> queue) {
+            this.id = id;
+            this.emitter = emitter;
+            this.userIds = userIds;
+            this.queue = queue;
+        }
+
+        boolean accepts(long userId) {
+            return userIds == null || userIds.contains(userId);
+        }
+
+        void enqueue(Message message) {
+            if (!queue.offer(message)) {
+                synchronized (this) {
+                    if (!queue.offer(message)) {
+                        queue.clear();
+                        queue.offer(RESYNC);
+                        log.debug("Подписчик {} не успевает читать изменения, отправлен resync", id);
+                    }
+                }
+            }
+            scheduleDrain();
+        }
+
+        // Только помечает подписчика: emitter завершит поток, застрявший в send, когда запись вернется
+        void dropIfStalled(long now) {
+            synchronized (this) {
+                long started = writeStartedNanos;
+                if (stalled || started == 0 || now - started < writeTimeout.toNanos()) {
+                    return;
+                }
+                stalled = true;
+                // Зависшая запись держит поток пула, пока не сработает таймаут сокета; остальным — поток взамен
+                resizeDispatcher(1);
+            }
+            subscribers.remove(id);
+            queue.clear();
+            log.warn("Подписчик {} не читает ответ дольше {}, отключен", id, writeTimeout);
+        }
+
+        private void scheduleDrain() {
+            if (stalled) {
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Message message;
+                while (!stalled && (message = queue.poll()) != null) {
+                    write(message);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Клиент отключился или ответ уже завершен; сам ответ закроет контейнер
+                subscribers.remove(id);
+                queue.clear();
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // Событие могло прийти между последним poll и сбросом флага
+            if (!queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void write(Message message) throws IOException {
+            writeStartedNanos = System.nanoTime();
+            try {
+                emitter.send(message.toEvent());
+            } finally {
+                if (writeFinished()) {
+                    emitter.completeWithError(new IOException("Клиент не читает поток изменений дольше " + writeTimeout));
+                }
+            }
+        }
+
+        // true — запись была признана зависшей и подписчик уже отключен
+        private synchronized boolean writeFinished() {
+            writeStartedNanos = 0;
+            if (stalled) {
+                // Поток вернулся из зависшей записи: добавленный взамен поток больше не нужен
+                resizeDispatcher(-1);
+            }
+            return stalled;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package ru.astondevs.learn.vorobev.web;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Сериализатор {@link UserResponse} без рефлексии и поиска сериализаторов на каждое поле.
+ * <p>
+ * Порядок свойств, их имена, правила включения null и формат {@code createdAt} берутся из
+ * стандартного BeanSerializer при {@link #resolve}, поэтому вывод совпадает с ним байт в байт.
+ * Ссылки и все неизвестные свойства (в том числе {@code _links} в HAL) пишет стандартный writer.
+ */
+public class UserResponseSerializer extends StdSerializer<UserResponse> implements ResolvableSerializer {
+
+    private static final int ID = 0;
+    private static final int NAME = 1;
+    private static final int EMAIL = 2;
+    private static final int AGE = 3;
+    private static final int CREATED_AT = 4;
+    private static final int OTHER = -1;
+
+    private final BeanSerializerBase defaultSerializer;
+
+    private BeanPropertyWriter[] writers;
+    private int[] kinds;
+    private DateTimeFormatter createdAtFormat;
+
+    public UserResponseSerializer(BeanSerializerBase defaultSerializer) {
+        super(UserResponse.class);
+        this.defaultSerializer = defaultSerializer;
+    }
+
+    /** Подменяет стандартный сериализатор {@link UserResponse}; регистрируется модулем Jackson. */
+    public static BeanSerializerModifier modifier() {
+        return new BeanSerializerModifier() {
+            @Override
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc,
+                                                      JsonSerializer<?> serializer) {
+                if (beanDesc.getBeanClass() == UserResponse.class && serializer instanceof BeanSerializerBase) {
+                    return new UserResponseSerializer((BeanSerializerBase) serializer);
+                }
+                return serializer;
+            }
+        };
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        defaultSerializer.resolve(provider);
+
+        // Для NON_EMPTY/NON_DEFAULT/CUSTOM решения о пропуске значений принимает только стандартный writer
+        JsonInclude.Include inclusion = provider.getConfig()
+                .getDefaultPropertyInclusion(UserResponse.class).getValueInclusion();
+        if (inclusion != JsonInclude.Include.ALWAYS
+                && inclusion != JsonInclude.Include.NON_NULL
+                && inclusion != JsonInclude.Include.USE_DEFAULTS) {
+            writers = null;
+            return;
+        }
+
+        List<BeanPropertyWriter> properties = new ArrayList<>();
+        Iterator<PropertyWriter> it = defaultSerializer.properties();
+        while (it.hasNext()) {
+            PropertyWriter property = it.next();
+            if (!(property instanceof BeanPropertyWriter)) {
+                // Нестандартный writer — целиком полагаемся на стандартный сериализатор
+                writers = null;
+                return;
+            }
+            properties.add((BeanPropertyWriter) property);
+        }
+
+        writers = properties.toArray(new BeanPropertyWriter[0]);
+        kinds = new int[writers.length];
+        for (int i = 0; i < writers.length; i++) {
+            kinds[i] = kindOf(writers[i]);
+        }
+    }
+
+    @Override
+    public void serialize(UserResponse user, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (writers == null || provider.getActiveView() != null) {
+            defaultSerializer.serialize(user, gen, provider);
+            return;
+        }
+
+        gen.writeStartObject(user);
+        for (int i = 0; i < writers.length; i++) {
+            BeanPropertyWriter writer = writers[i];
+            switch (kinds[i]) {
+                case ID:
+                    writeNumber(gen, writer, user.getId());
+                    break;
+                case NAME:
+                    writeString(gen, writer, user.getName());
+                    break;
+                case EMAIL:
+                    writeString(gen, writer, user.getEmail());
+                    break;
+                case AGE:
+                    writeNumber(gen, writer, user.getAge());
+                    break;
+                case CREATED_AT:
+                    writeString(gen, writer, user.getCreatedAt() != null ? createdAtFormat.format(user.getCreatedAt()) : null);
+                    break;
+                default:
+                    try {
+                        writer.serializeAsField(user, gen, provider);
+                    } catch (Exception e) {
+                        wrapAndThrow(provider, e, user, writer.getName());
+                    }
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(UserResponse user, JsonGenerator gen, SerializerProvider provider,
+                                  TypeSerializer typeSer) throws IOException {
+        defaultSerializer.serializeWithType(user, gen, provider, typeSer);
+    }
+
+    private int kindOf(BeanPropertyWriter writer) {
+        // Быстрый путь только для свойств без собственных сериализаторов и настроек включения
+        if (writer.getMember() == null
+                || writer.getAnnotation(JsonSerialize.class) != null
+                || writer.getAnnotation(JsonInclude.class) != null) {
+            return OTHER;
+        }
+        switch (writer.getMember().getName()) {
+            case "getId":
+            case "id":
+                return ID;
+            case "getName":
+            case "name":
+                return NAME;
+            case "getEmail":
+            case "email":
+                return EMAIL;
+            case "getAge":
+            case "age":
+                return AGE;
+            case "getCreatedAt":
+            case "createdAt":
+                JsonFormat format = writer.getAnnotation(JsonFormat.class);
+                if (format == null || format.pattern().isEmpty()) {
+                    return OTHER;
+                }
+                createdAtFormat = DateTimeFormatter.ofPattern(format.pattern());
+                return CREATED_AT;
+            default:
+                return OTHER;
+        }
+    }
+
+    private static void writeNumber(JsonGenerator gen, BeanPropertyWriter writer, Number value) throws IOException {
+        if (value == null) {
+            writeNull(gen, writer);
+            return;
+        }
+        gen.writeFieldName(writer.getSerializedName());
+        if (value instanceof Long) {
+            gen.writeNumber(value.longValue());
+        } else {
+            gen.writeNumber(value.intValue());
+        }
+    }
+
+    private static void writeString(JsonGenerator gen, BeanPropertyWriter writer, String value) throws IOException {
+        if (value == null) {
+            writeNull(gen, writer);
+            return;
+        }
+        gen.writeFieldName(writer.getSerializedName());
+        gen.writeString(value);
+    }
+
+    private static void writeNull(JsonGenerator gen, BeanPropertyWriter writer) throws IOException {
+        if (!writer.willSuppressNulls()) {
+            gen.writeFieldName(writer.getSerializedName());
+            gen.writeNull();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ru.astondevs.learn.vorobev.web;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Mix-in для {@link org.springframework.hateoas.RepresentationModel}: убирает ссылки из вывода
+ * там, где клиенту нужна только модель данных (CBOR, потоковая выгрузка).
+ */
+@JsonIgnoreProperties("links")
+public abstract class WithoutLinksMixin {
+}
@@ -0,0 +1,14 @@
+-- Ключи Idempotency-Key (IdempotencyStore), общие для всех экземпляров сервиса. Живет в основной БД:
+-- psql -f db/idempotency-keys.sql или app.idempotency.initialize-schema=true.
+-- Ключ уникален в паре с клиентом (ClientIdResolver): разные клиенты могут использовать одинаковые ключи.
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    client_id       VARCHAR(255) NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash    VARCHAR(64)  NOT NULL,
+    response        TEXT,
+    lock_owner      VARCHAR(36)  NOT NULL,
+    locked_until    TIMESTAMP    NOT NULL,
+    created_at      TIMESTAMP    NOT NULL,
+    PRIMARY KEY (client_id, idempotency_key)
+);
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created_at ON idempotency_keys (created_at);
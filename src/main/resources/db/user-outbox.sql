@@ -0,0 +1,9 @@
+-- Outbox изменений пользователей (UserChangeRecorder пишет, OutboxRelay публикует в user-changes).
+-- Применяется к основной БД до развертывания версии с outbox: psql -f db/user-outbox.sql
+CREATE TABLE IF NOT EXISTS user_outbox (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    aggregate_id BIGINT      NOT NULL,
+    operation    VARCHAR(16) NOT NULL,
+    payload      TEXT        NOT NULL,
+    created_at   TIMESTAMP   NOT NULL
+);
@@ -0,0 +1,8 @@
+-- Отметки об удалении пользователей для инкрементальной синхронизации (UserTombstone, TombstonePurger).
+-- Применяется к основной БД до развертывания версии с /api/v1/users/sync: psql -f db/user-tombstones.sql
+CREATE TABLE IF NOT EXISTS user_tombstones (
+    user_id    BIGINT PRIMARY KEY,
+    deleted_at TIMESTAMP NOT NULL
+);
+-- Keyset-пагинация по (deleted_at, user_id) в UserTombstoneRepository.findDeletedAfter
+CREATE INDEX IF NOT EXISTS idx_user_tombstones_deleted_at_user_id ON user_tombstones (deleted_at, user_id);
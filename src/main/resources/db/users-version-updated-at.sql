@@ -0,0 +1,14 @@
+-- Версия строки (оптимистическая блокировка, версия в user-events) и время последнего изменения
+-- (инкрементальная синхронизация /api/v1/users/sync). Применяется к основной БД до развертывания:
+-- psql -f db/users-version-updated-at.sql (без --single-transaction: индекс строится CONCURRENTLY)
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP;
+
+-- Существующие строки: Hibernate считает сущность с version = NULL новой, а строки без updated_at
+-- не попадают в выборку изменений. На большой таблице обновлять пачками по id.
+UPDATE users SET version = 0 WHERE version IS NULL;
+UPDATE users SET updated_at = created_at WHERE updated_at IS NULL;
+ALTER TABLE users ALTER COLUMN version SET DEFAULT 0;
+
+-- Keyset-пагинация по (updated_at, id) в UserRepository.findChangedAfter
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_updated_at_id ON users (updated_at, id);
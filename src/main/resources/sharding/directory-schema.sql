@@ -0,0 +1,11 @@
+-- Глобальный справочник email -> ID пользователя (шард вычисляется из ID). Живет в основной БД.
+CREATE TABLE IF NOT EXISTS user_email_directory (
+    email       VARCHAR(100) PRIMARY KEY,
+    user_id     BIGINT       NOT NULL,
+    reserved_at TIMESTAMP    NOT NULL
+);
+
+-- Общая последовательность ID: бакет и шард вычисляются из ее значения (ShardRouter).
+-- При переходе со старых последовательностей шардов начните ее выше их максимума (setval),
+-- иначе новый ID может совпасть с выданным раньше.
+CREATE SEQUENCE IF NOT EXISTS user_id_seq;
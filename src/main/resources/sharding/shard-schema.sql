@@ -0,0 +1,28 @@
+-- Схема одного шарда пользователей. Совместима с PostgreSQL и H2 (MODE=PostgreSQL) для локальных проверок.
+-- Своей последовательности у шарда нет: ID выдает ShardedUserRepository из общей user_id_seq справочника
+-- (directory-schema.sql), поэтому ID уникальны между шардами и не переиспользуются.
+
+CREATE TABLE IF NOT EXISTS users (
+    id         BIGINT PRIMARY KEY,
+    name       VARCHAR(100) NOT NULL,
+    email      VARCHAR(100) NOT NULL UNIQUE,
+    age        INTEGER      NOT NULL,
+    created_at TIMESTAMP    NOT NULL,
+    updated_at TIMESTAMP,
+    version    BIGINT
+);
+CREATE INDEX IF NOT EXISTS idx_users_updated_at_id ON users (updated_at, id);
+
+CREATE TABLE IF NOT EXISTS user_outbox (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    aggregate_id BIGINT      NOT NULL,
+    operation    VARCHAR(16) NOT NULL,
+    payload      TEXT        NOT NULL,
+    created_at   TIMESTAMP   NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS user_tombstones (
+    user_id    BIGINT PRIMARY KEY,
+    deleted_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_user_tombstones_deleted_at_user_id ON user_tombstones (deleted_at, user_id);
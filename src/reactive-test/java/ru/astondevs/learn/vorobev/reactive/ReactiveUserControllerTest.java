@@ -0,0 +1,95 @@
+package ru.astondevs.learn.vorobev.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.astondevs.learn.vorobev.dto.CreateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.exception.ResourceNotFoundException;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(ReactiveUserController.class)
+class ReactiveUserControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveUserService userService;
+
+    @Test
+    void getUserById_ShouldReturnUserWithLinks() {
+        when(userService.getUserById(1L)).thenReturn(Mono.just(
+                new UserResponse(1L, "Иван Иванов", "ivan@example.com", 25, LocalDateTime.of(2024, 5, 1, 12, 30, 15))));
+
+        webTestClient.get().uri("/api/v1/users/{id}", 1L)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.createdAt").isEqualTo("2024-05-01 12:30:15")
+                .jsonPath("$._links.self.href").isEqualTo("http://localhost/api/v1/users/1")
+                .jsonPath("$._links.delete.href").exists();
+    }
+
+    @Test
+    void getUserById_ShouldReturnProblemDetail_WhenUserNotExists() {
+        when(userService.getUserById(999L))
+                .thenReturn(Mono.error(new ResourceNotFoundException("Пользователь с ID 999 не найден")));
+
+        webTestClient.get().uri("/api/v1/users/{id}", 999L)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectHeader().contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .expectBody()
+                .jsonPath("$.type").isEqualTo("RESOURCE_NOT_FOUND")
+                .jsonPath("$.message").isEqualTo("Пользователь с ID 999 не найден");
+    }
+
+    @Test
+    void createUser_ShouldReturnValidationProblem_WhenInvalidData() {
+        webTestClient.post().uri("/api/v1/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new CreateUserRequest("", "invalid-email", -5))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.type").isEqualTo("VALIDATION_FAILED")
+                .jsonPath("$.fieldErrors.email").exists();
+
+        verify(userService, never()).createUser(any(CreateUserRequest.class));
+    }
+
+    @Test
+    void streamAllUsers_ShouldWriteNdjsonWithoutLinks() {
+        when(userService.getUsersAfter(0L, 500)).thenReturn(Flux.just(
+                new UserResponse(1L, "Иван", "ivan@example.com", 25, null),
+                new UserResponse(2L, "Петр", "petr@example.com", 30, null)));
+
+        String body = webTestClient.get().uri("/api/v1/users")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        assertThat(body.split("\n")).hasSize(2);
+        assertThat(body).doesNotContain("links");
+        // Пачка меньше stream-batch-size — последняя
+        verify(userService, never()).getUsersAfter(eq(2L), anyInt());
+    }
+}
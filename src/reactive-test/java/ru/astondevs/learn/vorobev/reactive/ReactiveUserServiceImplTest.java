@@ -0,0 +1,78 @@
+package ru.astondevs.learn.vorobev.reactive;
+
+import io.r2dbc.spi.R2dbcDataIntegrityViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import ru.astondevs.learn.vorobev.dto.UserEvent;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveUserServiceImplTest {
+
+    private final ReactiveUserRepository userRepository = mock(ReactiveUserRepository.class);
+    private final ReactiveUserChangeRecorder changeRecorder = mock(ReactiveUserChangeRecorder.class);
+    private final ReactiveUserEventSender userEventSender = mock(ReactiveUserEventSender.class);
+    private final TransactionalOperator transactionalOperator = mock(TransactionalOperator.class);
+    private final List<String> steps = new CopyOnWriteArrayList<>();
+
+    private ReactiveUserServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ReactiveUserServiceImpl(userRepository, changeRecorder, userEventSender, transactionalOperator);
+        UserRow user = UserRow.builder().id(1L).name("Иван").email("ivan@example.com").age(25)
+                .createdAt(LocalDateTime.now()).build();
+        when(userRepository.findById(1L)).thenReturn(Mono.just(user));
+        when(userRepository.deleteById(1L)).thenReturn(Mono.empty());
+        when(changeRecorder.recordDelete(any(UserRow.class))).thenReturn(Mono.empty());
+        doAnswer(invocation -> steps.add("send")).when(userEventSender).send(any(UserEvent.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deleteUser_ShouldSendEventAfterCommit() {
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation ->
+                ((Mono<Object>) invocation.getArgument(0)).doOnSuccess(value -> steps.add("commit")));
+
+        StepVerifier.create(service.deleteUser(1L)).verifyComplete();
+
+        assertThat(steps).containsExactly("commit", "send");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deleteUser_ShouldNotSendEvent_WhenCommitFails() {
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation ->
+                ((Mono<Object>) invocation.getArgument(0)).then(Mono.error(new IllegalStateException("commit failed"))));
+
+        StepVerifier.create(service.deleteUser(1L)).verifyError(IllegalStateException.class);
+
+        verify(userEventSender, never()).send(any(UserEvent.class));
+    }
+
+    @Test
+    void isDuplicateEmail_ShouldMatchOnlyUniqueViolations() {
+        assertThat(ReactiveUserServiceImpl.isDuplicateEmail(violation("23505"))).isTrue();
+        assertThat(ReactiveUserServiceImpl.isDuplicateEmail(violation("23514"))).isFalse();
+        assertThat(ReactiveUserServiceImpl.isDuplicateEmail(violation("23502"))).isFalse();
+    }
+
+    private static DataIntegrityViolationException violation(String sqlState) {
+        return new DataIntegrityViolationException("violation",
+                new R2dbcDataIntegrityViolationException("violation", sqlState));
+    }
+}
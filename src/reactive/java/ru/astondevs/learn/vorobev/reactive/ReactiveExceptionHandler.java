@@ -0,0 +1,40 @@
+package ru.astondevs.learn.vorobev.reactive;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.ProblemDetail;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import ru.astondevs.learn.vorobev.exception.GlobalExceptionHandler;
+import ru.astondevs.learn.vorobev.exception.ProblemType;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ошибки, которые есть только в WebFlux. Остальные обрабатывает общий {@link GlobalExceptionHandler},
+ * поэтому формат ответов у обоих вариантов один.
+ */
+@RestControllerAdvice
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveExceptionHandler {
+
+    // Аналог MethodArgumentNotValidException для @Valid @RequestBody в WebFlux
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ProblemDetail handleValidationExceptions(WebExchangeBindException ex) {
+        Map<String, String> fieldErrors = new HashMap<>();
+
+        ex.getBindingResult().getAllErrors().forEach(error -> {
+            String fieldName = ((FieldError) error).getField();
+            fieldErrors.put(fieldName, error.getDefaultMessage());
+        });
+
+        ProblemDetail problem = GlobalExceptionHandler.problem(ProblemType.VALIDATION_FAILED, null);
+        problem.setProperty("fieldErrors", fieldErrors);
+        return problem;
+    }
+}
@@ -0,0 +1,44 @@
+package ru.astondevs.learn.vorobev.reactive;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+import ru.astondevs.learn.vorobev.dto.UserEvent;
+import ru.astondevs.learn.vorobev.kafka.UserEventSerializer;
+
+import java.util.Map;
+
+/**
+ * Продюсеры reactor-kafka с теми же настройками {@code spring.kafka.producer}, что и в
+ * {@link ru.astondevs.learn.vorobev.config.KafkaProducerConfig}: Avro для {@code user-events}
+ * и строковый JSON для {@code user-changes}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveKafkaConfig {
+
+    @Bean(destroyMethod = "close")
+    public KafkaSender<String, UserEvent> userEventSender(KafkaProperties kafkaProperties,
+                                                          ObjectProvider<SslBundles> sslBundles) {
+        Map<String, Object> props = kafkaProperties.buildProducerProperties(sslBundles.getIfAvailable());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, UserEventSerializer.class);
+        return KafkaSender.create(SenderOptions.create(props));
+    }
+
+    @Bean(destroyMethod = "close")
+    public KafkaSender<String, String> changeEventSender(KafkaProperties kafkaProperties,
+                                                         ObjectProvider<SslBundles> sslBundles) {
+        Map<String, Object> props = kafkaProperties.buildProducerProperties(sslBundles.getIfAvailable());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        return KafkaSender.create(SenderOptions.create(props));
+    }
+}
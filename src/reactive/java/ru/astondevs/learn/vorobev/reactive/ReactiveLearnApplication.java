@@ -0,0 +1,43 @@
+package ru.astondevs.learn.vorobev.reactive;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Import;
+import org.springframework.hateoas.config.EnableHypermediaSupport;
+import org.springframework.hateoas.config.EnableHypermediaSupport.HypermediaType;
+import org.springframework.hateoas.support.WebStack;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import ru.astondevs.learn.vorobev.config.JacksonConfig;
+import ru.astondevs.learn.vorobev.exception.GlobalExceptionHandler;
+
+/**
+ * Неблокирующий вариант API пользователей: WebFlux на Netty, R2DBC и reactor-kafka.
+ * Собирается профилем {@code -Preactive} в тот же jar, что и {@link ru.astondevs.learn.vorobev.LearnApplication}.
+ * <p>
+ * Сканируется только этот пакет: из сервлетного приложения берутся DTO, формат ошибок
+ * ({@link GlobalExceptionHandler}) и настройки Jackson. Настройки читаются из {@code reactive.yml}.
+ * Сервлетное приложение сканирует и этот пакет, поэтому все бины здесь помечены
+ * {@code @ConditionalOnWebApplication(type = REACTIVE)}.
+ */
+@SpringBootApplication(exclude = {
+        DataSourceAutoConfiguration.class,
+        DataSourceTransactionManagerAutoConfiguration.class,
+        HibernateJpaAutoConfiguration.class
+})
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableHypermediaSupport(type = HypermediaType.HAL, stacks = WebStack.WEBFLUX)
+@EnableScheduling
+@Import({GlobalExceptionHandler.class, JacksonConfig.class})
+public class ReactiveLearnApplication {
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveLearnApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .properties("spring.config.name=reactive")
+                .run(args);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.astondevs.learn.vorobev.reactive;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+import ru.astondevs.learn.vorobev.service.OutboxRelay;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Аналог {@link OutboxRelay} для реактивного варианта: та же advisory-блокировка, поэтому
+ * с сервлетными экземплярами на общей БД события публикует только кто-то один.
+ * Пачка обрабатывается на потоке планировщика, а не на event loop Netty.
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveOutboxRelay {
+
+    private static final long RELAY_LOCK_KEY = 0x75736572L; // "user", как в OutboxRelay
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final KafkaSender<String, String> changeEventSender;
+
+    @Value("${app.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.outbox.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:500}")
+    public void publishPending() {
+        Integer published = relayBatch().block();
+        if (published != null && published > 0) {
+            log.debug("Опубликовано {} событий изменения пользователей", published);
+        }
+    }
+
+    Mono<Integer> relayBatch() {
+        return databaseClient.sql("SELECT pg_try_advisory_xact_lock(:key)")
+                .bind("key", RELAY_LOCK_KEY)
+                .map(row -> row.get(0, Boolean.class))
+                .one()
+                .filter(Boolean::booleanValue)
+                .flatMapMany(locked -> databaseClient.sql("SELECT id, aggregate_id, payload FROM user_outbox ORDER BY id LIMIT :limit")
+                        .bind("limit", batchSize)
+                        .map(row -> new Pending(row.get("id", Long.class), row.get("aggregate_id", Long.class),
+                                row.get("payload", String.class)))
+                        .all())
+                .concatMap(this::send)
+                // Останавливаемся на первой ошибке, чтобы не нарушить порядок событий
+                .onErrorResume(e -> {
+                    log.warn("Не удалось опубликовать событие outbox: {}", e.getMessage());
+                    return Flux.empty();
+                })
+                .collectList()
+                .flatMap(this::delete)
+                .as(transactionalOperator::transactional)
+                .defaultIfEmpty(0);
+    }
+
+    private Mono<Long> send(Pending event) {
+        ProducerRecord<String, String> record =
+                new ProducerRecord<>(OutboxRelay.TOPIC, String.valueOf(event.aggregateId), event.payload);
+        record.headers().add("outbox-id", String.valueOf(event.id).getBytes(StandardCharsets.UTF_8));
+        return changeEventSender.send(Mono.just(SenderRecord.create(record, event.id)))
+                .next()
+                .timeout(Duration.ofMillis(sendTimeoutMs))
+                .flatMap(result -> result.exception() != null ? Mono.error(result.exception()) : Mono.just(event.id));
+    }
+
+    private Mono<Integer> delete(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(0);
+        }
+        return databaseClient.sql("DELETE FROM user_outbox WHERE id IN (:ids)")
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated()
+                .map(Long::intValue);
+    }
+
+    private static final class Pending {
+        final Long id;
+        final Long aggregateId;
+        final String payload;
+
+        private Pending(Long id, Long aggregateId, String payload) {
+            this.id = id;
+            this.aggregateId = aggregateId;
+            this.payload = payload;
+        }
+    }
+}
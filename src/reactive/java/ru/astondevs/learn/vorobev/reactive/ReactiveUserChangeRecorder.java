@@ -0,0 +1,62 @@
+package ru.astondevs.learn.vorobev.reactive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import ru.astondevs.learn.vorobev.dto.UserChangeEvent;
+import ru.astondevs.learn.vorobev.dto.UserSnapshot;
+import ru.astondevs.learn.vorobev.service.UserChangeRecorder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Аналог {@link UserChangeRecorder} на R2DBC: та же строка в {@code user_outbox} и тот же
+ * надгробный камень в {@code user_tombstones}. Вызывается внутри транзакции сервиса.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveUserChangeRecorder {
+
+    private final DatabaseClient databaseClient;
+    private final ObjectMapper objectMapper;
+
+    public Mono<Void> recordCreate(UserRow created) {
+        return record(created.getId(), UserChangeRecorder.CREATE, null, created.toSnapshot());
+    }
+
+    public Mono<Void> recordUpdate(UserSnapshot before, UserRow updated) {
+        return record(updated.getId(), UserChangeRecorder.UPDATE, before, updated.toSnapshot());
+    }
+
+    public Mono<Void> recordDelete(UserRow deleted) {
+        return record(deleted.getId(), UserChangeRecorder.DELETE, deleted.toSnapshot(), null)
+                .then(databaseClient.sql("INSERT INTO user_tombstones (user_id, deleted_at) VALUES (:userId, :deletedAt) "
+                                + "ON CONFLICT (user_id) DO UPDATE SET deleted_at = EXCLUDED.deleted_at")
+                        .bind("userId", deleted.getId())
+                        .bind("deletedAt", LocalDateTime.now())
+                        .then());
+    }
+
+    private Mono<Void> record(Long userId, String operation, UserSnapshot before, UserSnapshot after) {
+        LocalDateTime now = LocalDateTime.now();
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(new UserChangeEvent(userId, operation, before, after, now));
+        } catch (JsonProcessingException e) {
+            return Mono.error(new IllegalStateException("Не удалось сериализовать событие изменения пользователя " + userId, e));
+        }
+
+        return databaseClient.sql("INSERT INTO user_outbox (aggregate_id, operation, payload, created_at) "
+                        + "VALUES (:aggregateId, :operation, :payload, :createdAt)")
+                .bind("aggregateId", userId)
+                .bind("operation", operation)
+                .bind("payload", payload)
+                .bind("createdAt", now)
+                .then();
+    }
+}
@@ -0,0 +1,121 @@
+package ru.astondevs.learn.vorobev.reactive;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.astondevs.learn.vorobev.config.UserApiProperties;
+import ru.astondevs.learn.vorobev.dto.CreateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UpdateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+
+import java.util.List;
+
+import static org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.methodOn;
+
+/**
+ * Тот же контракт {@code /api/v1/users}, что у {@link ru.astondevs.learn.vorobev.controller.UserController},
+ * для основных операций: CRUD, поиск по возрасту, подсчет и NDJSON-выгрузка. Подсказки, {@code /sync}
+ * и SSE-подписка опираются на индексы и рассылку в памяти сервлетного приложения и здесь пока не реализованы.
+ */
+@RestController
+@RequestMapping("/api/v1/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveUserController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final ReactiveUserService userService;
+    private final UserApiProperties userApiProperties;
+
+    @PostMapping
+    public Mono<ResponseEntity<UserResponse>> createUser(@Valid @RequestBody CreateUserRequest request,
+                                                         ServerWebExchange exchange) {
+        return userService.createUser(request)
+                .flatMap(user -> withLinks(user, exchange))
+                .map(user -> ResponseEntity.status(HttpStatus.CREATED).body(user));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<UserResponse>> getUserById(@PathVariable Long id, ServerWebExchange exchange) {
+        return userService.getUserById(id)
+                .flatMap(user -> withLinks(user, exchange))
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<List<UserResponse>>> getAllUsers(ServerWebExchange exchange) {
+        return withLinks(userService.getAllUsers(), exchange);
+    }
+
+    @GetMapping("/search")
+    public Mono<ResponseEntity<List<UserResponse>>> findUsersByAge(
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge,
+            ServerWebExchange exchange) {
+        return withLinks(userService.findUsersByAge(minAge, maxAge), exchange);
+    }
+
+    @GetMapping("/count")
+    public Mono<ResponseEntity<Long>> countUsers(
+            @RequestParam(required = false) Integer minAge,
+            @RequestParam(required = false) Integer maxAge) {
+        return userService.countUsers(minAge, maxAge).map(ResponseEntity::ok);
+    }
+
+    /** Пачки читаются по мере того, как клиент забирает ответ: медленный клиент не держит соединение с БД. */
+    @GetMapping(produces = NDJSON)
+    public Flux<UserResponse> streamAllUsers(@RequestParam(defaultValue = "0") long afterId) {
+        int batchSize = userApiProperties.getStreamBatchSize();
+        return userService.getUsersAfter(afterId, batchSize).collectList()
+                .expand(batch -> batch.size() < batchSize
+                        ? Mono.empty()
+                        : userService.getUsersAfter(batch.get(batch.size() - 1).getId(), batchSize).collectList())
+                .flatMapIterable(batch -> batch);
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<UserResponse>> updateUser(@PathVariable Long id,
+                                                         @Valid @RequestBody UpdateUserRequest request,
+                                                         ServerWebExchange exchange) {
+        return userService.updateUser(id, request)
+                .flatMap(user -> withLinks(user, exchange))
+                .map(ResponseEntity::ok);
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteUser(@PathVariable Long id) {
+        return userService.deleteUser(id).thenReturn(ResponseEntity.noContent().build());
+    }
+
+    private Mono<ResponseEntity<List<UserResponse>>> withLinks(Flux<UserResponse> users, ServerWebExchange exchange) {
+        return users.concatMap(user -> withLinks(user, exchange))
+                .collectList()
+                .map(ResponseEntity::ok);
+    }
+
+    private Mono<UserResponse> withLinks(UserResponse user, ServerWebExchange exchange) {
+        return Flux.concat(
+                        linkTo(methodOn(ReactiveUserController.class).getUserById(user.getId(), null), exchange)
+                                .withSelfRel().toMono(),
+                        linkTo(methodOn(ReactiveUserController.class).getAllUsers(null), exchange)
+                                .withRel("users_list").toMono(),
+                        linkTo(methodOn(ReactiveUserController.class).updateUser(user.getId(), null, null), exchange)
+                                .withRel("update").toMono(),
+                        linkTo(methodOn(ReactiveUserController.class).deleteUser(user.getId()), exchange)
+                                .withRel("delete").toMono())
+                .collectList()
+                .map(links -> {
+                    user.add(links);
+                    return user;
+                });
+    }
+}
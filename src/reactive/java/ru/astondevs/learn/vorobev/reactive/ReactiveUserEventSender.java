@@ -0,0 +1,35 @@
+package ru.astondevs.learn.vorobev.reactive;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+import ru.astondevs.learn.vorobev.dto.UserEvent;
+import ru.astondevs.learn.vorobev.service.UserEventPublisher;
+
+/**
+ * Отправляет {@link UserEvent} в {@code user-events}, не дожидаясь подтверждения: как и в
+ * {@link UserEventPublisher}, надежная доставка изменений — задача outbox, а ответ клиенту
+ * не должен ждать Kafka.
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveUserEventSender {
+
+    private final KafkaSender<String, UserEvent> userEventSender;
+
+    public void send(UserEvent event) {
+        ProducerRecord<String, UserEvent> record =
+                new ProducerRecord<>(UserEventPublisher.TOPIC, String.valueOf(event.getUserId()), event);
+        userEventSender.send(Mono.just(SenderRecord.create(record, event.getUserId())))
+                .subscribe(result -> { },
+                        e -> log.warn("Событие {} для пользователя {} не отправлено: {}",
+                                event.getOperation(), event.getUserId(), e.getMessage()));
+    }
+}
@@ -0,0 +1,23 @@
+package ru.astondevs.learn.vorobev.reactive;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveUserRepository extends R2dbcRepository<UserRow, Long> {
+
+    Mono<Boolean> existsByEmail(String email);
+
+    Mono<UserRow> findByEmail(String email);
+
+    @Query("SELECT * FROM users WHERE age BETWEEN :minAge AND :maxAge ORDER BY id")
+    Flux<UserRow> findByAgeRange(int minAge, int maxAge);
+
+    @Query("SELECT count(*) FROM users WHERE age BETWEEN :minAge AND :maxAge")
+    Mono<Long> countByAgeRange(int minAge, int maxAge);
+
+    // Keyset-выгрузка для NDJSON: каждая пачка — отдельный короткий запрос
+    @Query("SELECT * FROM users WHERE id > :afterId ORDER BY id LIMIT :limit")
+    Flux<UserRow> findPageAfter(long afterId, int limit);
+}
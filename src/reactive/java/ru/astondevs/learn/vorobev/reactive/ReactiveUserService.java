@@ -0,0 +1,22 @@
+package ru.astondevs.learn.vorobev.reactive;
+
+import ru.astondevs.learn.vorobev.dto.CreateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UpdateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Неблокирующий аналог {@link ru.astondevs.learn.vorobev.service.UserService}: те же правила
+ * и те же исключения, но результат — {@link Mono}/{@link Flux}, а ошибки приходят сигналом error.
+ */
+public interface ReactiveUserService {
+    Mono<UserResponse> createUser(CreateUserRequest request);
+    Mono<UserResponse> getUserById(Long id);
+    Flux<UserResponse> getAllUsers();
+    Flux<UserResponse> getUsersAfter(long afterId, int limit);
+    Flux<UserResponse> findUsersByAge(Integer minAge, Integer maxAge);
+    Mono<Long> countUsers(Integer minAge, Integer maxAge);
+    Mono<UserResponse> updateUser(Long id, UpdateUserRequest request);
+    Mono<Void> deleteUser(Long id);
+}
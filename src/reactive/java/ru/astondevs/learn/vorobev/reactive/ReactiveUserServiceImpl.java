@@ -0,0 +1,194 @@
+package ru.astondevs.learn.vorobev.reactive;
+
+import io.r2dbc.postgresql.api.PostgresqlException;
+import io.r2dbc.spi.R2dbcException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.astondevs.learn.vorobev.dto.CreateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UpdateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UserEvent;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.dto.UserSnapshot;
+import ru.astondevs.learn.vorobev.exception.DuplicateEmailException;
+import ru.astondevs.learn.vorobev.exception.ResourceNotFoundException;
+import ru.astondevs.learn.vorobev.service.UserServiceImpl;
+
+import java.time.LocalDateTime;
+
+/**
+ * Правила те же, что в {@link ru.astondevs.learn.vorobev.service.UserServiceImpl}, без его кэшей
+ * и индексов в памяти: каждое чтение идет в БД, но не занимает поток на время запроса.
+ * Изменения, как и там, пишутся в outbox в той же транзакции. Транзакцию записи задает
+ * {@link TransactionalOperator}, а не {@code @Transactional}: событие {@code user-events} отправляется
+ * после того, как транзакционный издатель завершился, то есть после коммита.
+ */
+@Slf4j
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+
+    private final ReactiveUserRepository userRepository;
+    private final ReactiveUserChangeRecorder changeRecorder;
+    private final ReactiveUserEventSender userEventSender;
+    private final TransactionalOperator transactionalOperator;
+
+    @Override
+    public Mono<UserResponse> createUser(CreateUserRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        UserRow user = UserRow.builder()
+                .name(request.getName())
+                .email(request.getEmail())
+                .age(request.getAge())
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+
+        return userRepository.existsByEmail(request.getEmail())
+                .flatMap(exists -> exists
+                        ? Mono.<UserRow>error(duplicateEmail(request.getEmail()))
+                        : userRepository.save(user))
+                // Гонку между проверкой и вставкой закрывает уникальный индекс
+                .onErrorMap(DataIntegrityViolationException.class, e -> duplicateEmailOr(e, request.getEmail()))
+                .flatMap(saved -> changeRecorder.recordCreate(saved).thenReturn(saved))
+                .as(transactionalOperator::transactional)
+                .doOnNext(saved -> {
+                    log.info("Создан новый пользователь с ID: {}", saved.getId());
+                    userEventSender.send(new UserEvent(saved.getId(), saved.getVersion(), saved.getEmail(), "CREATE"));
+                })
+                .map(UserRow::toResponse);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Mono<UserResponse> getUserById(Long id) {
+        return findExisting(id).map(UserRow::toResponse);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<UserResponse> getAllUsers() {
+        return userRepository.findAll(Sort.by("id")).map(UserRow::toResponse);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<UserResponse> getUsersAfter(long afterId, int limit) {
+        return userRepository.findPageAfter(afterId, limit).map(UserRow::toResponse);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<UserResponse> findUsersByAge(Integer minAge, Integer maxAge) {
+        return userRepository.findByAgeRange(lower(minAge), upper(maxAge)).map(UserRow::toResponse);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Mono<Long> countUsers(Integer minAge, Integer maxAge) {
+        if (minAge == null && maxAge == null) {
+            return userRepository.count();
+        }
+        return userRepository.countByAgeRange(lower(minAge), upper(maxAge));
+    }
+
+    @Override
+    public Mono<UserResponse> updateUser(Long id, UpdateUserRequest request) {
+        return findExisting(id).flatMap(user -> {
+            UserSnapshot before = user.toSnapshot();
+            boolean needsUpdate = false;
+
+            if (request.getName() != null && !request.getName().trim().isEmpty()
+                    && !request.getName().trim().equals(user.getName())) {
+                user.setName(request.getName().trim());
+                needsUpdate = true;
+            }
+
+            Mono<Void> emailCheck = Mono.empty();
+            if (request.getEmail() != null && !request.getEmail().trim().isEmpty()
+                    && !request.getEmail().trim().equals(user.getEmail())) {
+                String newEmail = request.getEmail().trim();
+                emailCheck = userRepository.findByEmail(newEmail)
+                        .filter(existing -> !existing.getId().equals(id))
+                        .flatMap(existing -> Mono.error(duplicateEmail(newEmail)));
+                user.setEmail(newEmail);
+                needsUpdate = true;
+            }
+
+            if (request.getAge() != null && !request.getAge().equals(user.getAge())) {
+                user.setAge(request.getAge());
+                needsUpdate = true;
+            }
+
+            if (!needsUpdate) {
+                return Mono.just(user.toResponse());
+            }
+            user.setUpdatedAt(LocalDateTime.now());
+            return emailCheck
+                    .then(userRepository.save(user))
+                    .onErrorMap(DataIntegrityViolationException.class, e -> duplicateEmailOr(e, user.getEmail()))
+                    .flatMap(updated -> changeRecorder.recordUpdate(before, updated).thenReturn(updated))
+                    .doOnNext(updated -> log.info("Пользователь с ID {} успешно обновлен", id))
+                    .map(UserRow::toResponse);
+        }).as(transactionalOperator::transactional);
+    }
+
+    @Override
+    public Mono<Void> deleteUser(Long id) {
+        return findExisting(id)
+                .flatMap(user -> userRepository.deleteById(id)
+                        .then(changeRecorder.recordDelete(user))
+                        .thenReturn(user))
+                .as(transactionalOperator::transactional)
+                .doOnNext(user -> {
+                    userEventSender.send(new UserEvent(id, user.getVersion(), user.getEmail(), "DELETE"));
+                    log.info("Пользователь с ID {} удален", id);
+                })
+                .then();
+    }
+
+    private Mono<UserRow> findExisting(Long id) {
+        return userRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Пользователь с ID " + id + " не найден")));
+    }
+
+    // Остальные нарушения целостности остаются DataIntegrityViolationException (409 DATA_CONFLICT)
+    private static Throwable duplicateEmailOr(DataIntegrityViolationException e, String email) {
+        return isDuplicateEmail(e) ? duplicateEmail(email) : e;
+    }
+
+    /** Правило {@link UserServiceImpl#isDuplicateEmail}; SQLState и имя ограничения — из исключений R2DBC. */
+    static boolean isDuplicateEmail(DataIntegrityViolationException e) {
+        String sqlState = null;
+        String constraint = null;
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PostgresqlException) {
+                constraint = ((PostgresqlException) cause).getErrorDetails().getConstraintName().orElse(null);
+            }
+            if (sqlState == null && cause instanceof R2dbcException) {
+                sqlState = ((R2dbcException) cause).getSqlState();
+            }
+        }
+        return UserServiceImpl.isDuplicateEmail(sqlState, constraint);
+    }
+
+    private static DuplicateEmailException duplicateEmail(String email) {
+        return new DuplicateEmailException("Пользователь с email " + email + " уже существует");
+    }
+
+    private static int lower(Integer minAge) {
+        return minAge != null ? minAge : Integer.MIN_VALUE;
+    }
+
+    private static int upper(Integer maxAge) {
+        return maxAge != null ? maxAge : Integer.MAX_VALUE;
+    }
+}
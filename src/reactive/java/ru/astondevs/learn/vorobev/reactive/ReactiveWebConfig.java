@@ -0,0 +1,45 @@
+package ru.astondevs.learn.vorobev.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import ru.astondevs.learn.vorobev.config.UserApiProperties;
+import ru.astondevs.learn.vorobev.web.WithoutLinksMixin;
+
+/**
+ * NDJSON-выгрузка, как и в сервлетном варианте, идет без навигационных ссылок. NDJSON пишет
+ * стандартный Jackson-encoder (пользовательские encoder'ы стоят после него и до них очередь не доходит),
+ * поэтому ему для {@code application/x-ndjson} задается ObjectMapper с {@link WithoutLinksMixin};
+ * остальные ответы пишет HAL.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableConfigurationProperties(UserApiProperties.class)
+public class ReactiveWebConfig implements WebFluxConfigurer {
+
+    // После CodecCustomizer Spring Boot, который задает стандартный Jackson-encoder
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public CodecCustomizer ndjsonWithoutLinksCodecCustomizer(ObjectMapper objectMapper) {
+        ObjectMapper withoutLinks = objectMapper.copy().addMixIn(RepresentationModel.class, WithoutLinksMixin.class);
+        return configurer -> {
+            Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper);
+            // Для зарегистрированного типа encoder не берет ObjectMapper по умолчанию: JSON перечислен явно
+            encoder.registerObjectMappersForType(RepresentationModel.class, mappers -> {
+                mappers.put(MediaType.APPLICATION_NDJSON, withoutLinks);
+                mappers.put(MediaType.APPLICATION_JSON, objectMapper);
+                mappers.put(new MediaType("application", "*+json"), objectMapper);
+            });
+            configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package ru.astondevs.learn.vorobev.reactive;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.dto.UserSnapshot;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка таблицы {@code users} для R2DBC. Схема общая с JPA-сущностью
+ * {@link ru.astondevs.learn.vorobev.entity.User}: DDL создает сервлетное приложение.
+ */
+@Table("users")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class UserRow {
+    @Id
+    private Long id;
+
+    private String name;
+
+    private String email;
+
+    private Integer age;
+
+    @Column("created_at")
+    private LocalDateTime createdAt;
+
+    @Column("updated_at")
+    private LocalDateTime updatedAt;
+
+    @Version
+    private Long version;
+
+    public UserResponse toResponse() {
+        return new UserResponse(id, name, email, age, createdAt);
+    }
+
+    public UserSnapshot toSnapshot() {
+        return new UserSnapshot(id, name, email, age, createdAt);
+    }
+}
@@ -1,19 +1,38 @@
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.astondevs.learn.vorobev.dto.CreateUserRequest;
 import ru.astondevs.learn.vorobev.dto.UpdateUserRequest;
 import ru.astondevs.learn.vorobev.dto.UserEvent;
 import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.dto.UserDeltaResponse;
+import ru.astondevs.learn.vorobev.entity.UserTombstone;
+import ru.astondevs.learn.vorobev.exception.SyncCursorExpiredException;
 import ru.astondevs.learn.vorobev.entity.User;
 import ru.astondevs.learn.vorobev.exception.DuplicateEmailException;
 import ru.astondevs.learn.vorobev.exception.ResourceNotFoundException;
+import ru.astondevs.learn.vorobev.dto.UserSnapshot;
 import ru.astondevs.learn.vorobev.repository.UserRepository;
+import ru.astondevs.learn.vorobev.repository.UserTombstoneRepository;
+import ru.astondevs.learn.vorobev.service.UserChangeRecorder;
+import ru.astondevs.learn.vorobev.service.UserEventPublisher;
+import ru.astondevs.learn.vorobev.service.UserExistenceFilter;
+import ru.astondevs.learn.vorobev.cache.CachedUser;
+import ru.astondevs.learn.vorobev.cache.ColumnarUserStore;
+import ru.astondevs.learn.vorobev.cache.UserCache;
+import ru.astondevs.learn.vorobev.cache.UserPrefixIndex;
+import ru.astondevs.learn.vorobev.journal.UserWriteJournal;
 import ru.astondevs.learn.vorobev.service.UserServiceImpl;
 
+import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
@@ -23,6 +42,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,7 +52,28 @@ class UserServiceImplUnitTest {
     private UserRepository userRepository;
 
     @Mock
-    private KafkaTemplate<String, UserEvent> kafkaTemplate;
+    private UserEventPublisher userEventPublisher;
+
+    @Mock
+    private UserChangeRecorder userChangeRecorder;
+
+    @Mock
+    private UserExistenceFilter userExistenceFilter;
+
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private ColumnarUserStore columnarUserStore;
+
+    @Mock
+    private UserWriteJournal userWriteJournal;
+
+    @Mock
+    private UserPrefixIndex userPrefixIndex;
+
+    @Mock
+    private UserTombstoneRepository userTombstoneRepository;
 
     @InjectMocks
     private UserServiceImpl userService;
@@ -68,6 +109,34 @@ class UserServiceImplUnitTest {
 
         verify(userRepository, times(1)).existsByEmail("ivan@example.com");
         verify(userRepository, times(1)).save(any(User.class));
+        verify(userChangeRecorder, times(1)).recordCreate(savedUser);
+        verify(userEventPublisher, times(1)).publish(new UserEvent(1L, null, "ivan@example.com", "CREATE"));
+    }
+
+    @Test
+    void createUser_ShouldPublishEventOnlyAfterCommit() {
+        CreateUserRequest request = new CreateUserRequest("Иван Иванов", "ivan@example.com", 25);
+        User savedUser = User.builder()
+                .id(1L)
+                .name("Иван Иванов")
+                .email("ivan@example.com")
+                .age(25)
+                .createdAt(LocalDateTime.now())
+                .build();
+        when(userRepository.existsByEmail("ivan@example.com")).thenReturn(false);
+        when(userRepository.save(any(User.class))).thenReturn(savedUser);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userService.createUser(request);
+            verify(userEventPublisher, never()).publish(any());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(userEventPublisher, times(1)).publish(new UserEvent(1L, null, "ivan@example.com", "CREATE"));
     }
 
     @Test
@@ -91,17 +160,83 @@ class UserServiceImplUnitTest {
     }
 
     @Test
-    void getUserById_ShouldReturnUser_WhenExists() {
+    void createUser_ShouldThrowDuplicateEmail_WhenEmailUniqueConstraintViolated() {
+        CreateUserRequest request = new CreateUserRequest("Иван Иванов", "ivan@example.com", 25);
+        when(userRepository.existsByEmail("ivan@example.com")).thenReturn(false);
+        when(userRepository.save(any(User.class))).thenThrow(integrityViolation("23505", "users_email_key"));
+
+        assertThatThrownBy(() -> userService.createUser(request))
+                .isInstanceOf(DuplicateEmailException.class);
+    }
+
+    @Test
+    void createUser_ShouldRethrowOtherIntegrityViolations() {
+        CreateUserRequest request = new CreateUserRequest("Иван Иванов", "ivan@example.com", 25);
+        DataIntegrityViolationException notNull = integrityViolation("23502", null);
+        when(userRepository.existsByEmail("ivan@example.com")).thenReturn(false);
+        when(userRepository.save(any(User.class))).thenThrow(notNull);
+
+        assertThatThrownBy(() -> userService.createUser(request)).isSameAs(notNull);
+        verifyNoInteractions(userChangeRecorder);
+    }
+
+    @Test
+    void createUser_ShouldRethrowUniqueViolationOfOtherConstraint() {
+        CreateUserRequest request = new CreateUserRequest("Иван Иванов", "ivan@example.com", 25);
+        DataIntegrityViolationException primaryKey = integrityViolation("23505", "users_pkey");
+        when(userRepository.existsByEmail("ivan@example.com")).thenReturn(false);
+        when(userRepository.save(any(User.class))).thenThrow(primaryKey);
+
+        assertThatThrownBy(() -> userService.createUser(request)).isSameAs(primaryKey);
+    }
+
+    @Test
+    void createUser_ShouldSkipEmailLookup_WhenFilterSaysEmailIsFree() {
         // Arrange
-        User user = User.builder()
+        CreateUserRequest request = new CreateUserRequest(
+                "Иван Иванов",
+                "new@example.com",
+                25
+        );
+
+        User savedUser = User.builder()
                 .id(1L)
                 .name("Иван Иванов")
-                .email("ivan@example.com")
+                .email("new@example.com")
                 .age(25)
-                .createdAt(LocalDateTime.now())
                 .build();
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userExistenceFilter.definitelyMissingEmail("new@example.com")).thenReturn(true);
+        when(userRepository.save(any(User.class))).thenReturn(savedUser);
+
+        // Act
+        UserResponse response = userService.createUser(request);
+
+        // Assert
+        assertThat(response.getId()).isEqualTo(1L);
+        verify(userRepository, never()).existsByEmail(anyString());
+        verify(userExistenceFilter, times(1)).onEmailAdded("new@example.com");
+    }
+
+    @Test
+    void getUserById_ShouldThrowWithoutQuery_WhenFilterSaysIdIsMissing() {
+        // Arrange
+        when(userExistenceFilter.definitelyMissingId(404L)).thenReturn(true);
+
+        // Act & Assert
+        assertThatThrownBy(() -> userService.getUserById(404L))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("не найден");
+
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void getUserById_ShouldReturnUser_WhenExists() {
+        // Arrange
+        CachedUser user = new CachedUser(1L, "Иван Иванов", "ivan@example.com", 25, LocalDateTime.now(), 0L);
+
+        when(userRepository.findCachedById(1L)).thenReturn(Optional.of(user));
 
         // Act
         UserResponse response = userService.getUserById(1L);
@@ -111,41 +246,80 @@ class UserServiceImplUnitTest {
         assertThat(response.getName()).isEqualTo("Иван Иванов");
         assertThat(response.getEmail()).isEqualTo("ivan@example.com");
 
-        verify(userRepository, times(1)).findById(1L);
+        verify(userRepository, times(1)).findCachedById(1L);
+        verify(userRepository, never()).findById(anyLong());
+        verify(userCache, times(1)).putLoaded(user, 0L);
+    }
+
+    @Test
+    void getUserById_ShouldReturnCachedUser_WithoutQuery() {
+        // Arrange
+        CachedUser cached = new CachedUser(1L, "Иван Иванов", "ivan@example.com", 25, LocalDateTime.now(), 0L);
+        when(userCache.get(1L)).thenReturn(Optional.of(cached));
+
+        // Act
+        UserResponse response = userService.getUserById(1L);
+
+        // Assert
+        assertThat(response.getId()).isEqualTo(1L);
+        assertThat(response.getEmail()).isEqualTo("ivan@example.com");
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void getUserById_ShouldReturnFromColumnarStore_WithoutCacheOrQuery() {
+        // Arrange
+        UserResponse stored = new UserResponse(1L, "Иван Иванов", "ivan@example.com", 25, null);
+        when(columnarUserStore.find(1L)).thenReturn(Optional.of(stored));
+
+        // Act
+        UserResponse response = userService.getUserById(1L);
+
+        // Assert
+        assertThat(response).isSameAs(stored);
+        verifyNoInteractions(userRepository, userCache);
+    }
+
+    @Test
+    void countUsers_ShouldUseColumnarStore_WhenReady() {
+        // Arrange
+        when(columnarUserStore.isReady()).thenReturn(true);
+        when(columnarUserStore.countByAge(18, null)).thenReturn(42L);
+
+        // Act & Assert
+        assertThat(userService.countUsers(18, null)).isEqualTo(42L);
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void countUsers_ShouldQueryDatabase_WhenColumnarStoreIsNotReady() {
+        // Arrange
+        when(userRepository.countByAge(18, 30)).thenReturn(7L);
+
+        // Act & Assert
+        assertThat(userService.countUsers(18, 30)).isEqualTo(7L);
     }
 
     @Test
     void getUserById_ShouldThrowException_WhenNotExists() {
         // Arrange
-        when(userRepository.findById(999L)).thenReturn(Optional.empty());
+        when(userRepository.findCachedById(999L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThatThrownBy(() -> userService.getUserById(999L))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessageContaining("не найден");
 
-        verify(userRepository, times(1)).findById(999L);
+        verify(userRepository, times(1)).findCachedById(999L);
     }
 
     @Test
     void getAllUsers_ShouldReturnAllUsers() {
         // Arrange
-        User user1 = User.builder()
-                .id(1L)
-                .name("Иван Иванов")
-                .email("ivan@example.com")
-                .age(25)
-                .build();
-
-        User user2 = User.builder()
-                .id(2L)
-                .name("Петр Петров")
-                .email("petr@example.com")
-                .age(30)
-                .build();
+        UserResponse user1 = new UserResponse(1L, "Иван Иванов", "ivan@example.com", 25, null);
+        UserResponse user2 = new UserResponse(2L, "Петр Петров", "petr@example.com", 30, null);
 
-        List<User> users = Arrays.asList(user1, user2);
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.findAllResponses()).thenReturn(Arrays.asList(user1, user2));
 
         // Act
         List<UserResponse> responses = userService.getAllUsers();
@@ -155,7 +329,8 @@ class UserServiceImplUnitTest {
         assertThat(responses.get(0).getId()).isEqualTo(1L);
         assertThat(responses.get(1).getId()).isEqualTo(2L);
 
-        verify(userRepository, times(1)).findAll();
+        verify(userRepository, times(1)).findAllResponses();
+        verify(userRepository, never()).findAll();
     }
 
     @Test
@@ -196,6 +371,7 @@ class UserServiceImplUnitTest {
         verify(userRepository, times(1)).findById(1L);
         verify(userRepository, times(1)).findByEmail("ivan.updated@example.com");
         verify(userRepository, times(1)).save(any(User.class));
+        verify(userChangeRecorder, times(1)).recordUpdate(any(UserSnapshot.class), eq(updatedUser));
     }
 
     @Test
@@ -273,7 +449,10 @@ class UserServiceImplUnitTest {
         // Assert
         verify(userRepository, times(1)).findById(userId);
         verify(userRepository, times(1)).deleteById(userId);
-        verify(kafkaTemplate, times(1)).send(anyString(), any(UserEvent.class));
+        verify(userCache, times(1)).evictAfterCommit(userId);
+        verify(columnarUserStore, times(1)).evictAfterCommit(userId);
+        verify(userEventPublisher, times(1)).publish(new UserEvent(1L, null, "test@example.com", "DELETE"));
+        verify(userChangeRecorder, times(1)).recordDelete(user);
     }
 
     @Test
@@ -289,6 +468,65 @@ class UserServiceImplUnitTest {
 
         verify(userRepository, times(1)).findById(userId);
         verify(userRepository, never()).deleteById(anyLong());
-        verify(kafkaTemplate, never()).send(anyString(), any());
+        verify(userEventPublisher, never()).publish(any());
+        verifyNoInteractions(userChangeRecorder);
+    }
+
+    @Test
+    void getChangesSince_ShouldReturnChangesAndCursorThatContinuesAfterThem() {
+        // Arrange
+        LocalDateTime updatedAt = LocalDateTime.now().minusMinutes(1).withNano(0);
+        User changed = User.builder().id(5L).name("Иван").email("ivan@example.com").age(25)
+                .createdAt(updatedAt).updatedAt(updatedAt).build();
+        when(userRepository.findChangedAfter(any(), anyLong(), any(), any())).thenReturn(List.of(changed));
+        when(userTombstoneRepository.findDeletedAfter(any(), anyLong(), any(), any()))
+                .thenReturn(List.of(new UserTombstone(3L, updatedAt)));
+
+        // Act
+        UserDeltaResponse first = userService.getChangesSince(null, 10);
+        userService.getChangesSince(first.getCursor(), 10);
+
+        // Assert
+        assertThat(first.getChanged()).extracting(UserResponse::getId).containsExactly(5L);
+        assertThat(first.getDeleted()).containsExactly(3L);
+        assertThat(first.isHasMore()).isFalse();
+        verify(userRepository).findChangedAfter(eq(updatedAt), eq(5L), any(), any());
+        // Страница удалений неполная: следующий запрос начинается с upTo первого, а не с последнего удаления
+        verify(userTombstoneRepository).findDeletedAfter(argThat(time -> time.isAfter(updatedAt)),
+                eq(Long.MAX_VALUE), any(), any());
+    }
+
+    @Test
+    void getChangesSince_ShouldAdvanceTombstonePosition_WhenAllDeletesReturned() {
+        // Arrange: последнее удаление было 20 дней назад, новых нет
+        when(userRepository.findChangedAfter(any(), anyLong(), any(), any())).thenReturn(List.of());
+        when(userTombstoneRepository.findDeletedAfter(any(), anyLong(), any(), any()))
+                .thenReturn(List.of(new UserTombstone(3L, LocalDateTime.now().minusDays(20))));
+        String cursor = userService.getChangesSince(null, 10).getCursor();
+
+        // Act & Assert: курсор указывает на момент запроса, а не на старое удаление
+        ReflectionTestUtils.setField(userService, "tombstoneRetention", Duration.ofDays(1));
+        when(userTombstoneRepository.findDeletedAfter(any(), anyLong(), any(), any())).thenReturn(List.of());
+        assertThat(userService.getChangesSince(cursor, 10).getDeleted()).isEmpty();
+    }
+
+    @Test
+    void getChangesSince_ShouldRejectCursorOlderThanTombstoneRetention() {
+        // Arrange: курсор, выданный 60 дней назад
+        when(userRepository.findChangedAfter(any(), anyLong(), any(), any())).thenReturn(List.of());
+        when(userTombstoneRepository.findDeletedAfter(any(), anyLong(), any(), any()))
+                .thenReturn(List.of(new UserTombstone(3L, LocalDateTime.now().minusDays(60))));
+        // Страница заполнена целиком, поэтому курсор остается на отданном удалении
+        String staleCursor = userService.getChangesSince(null, 1).getCursor();
+
+        // Act & Assert
+        assertThatThrownBy(() -> userService.getChangesSince(staleCursor, 10))
+                .isInstanceOf(SyncCursorExpiredException.class);
+    }
+
+    private static DataIntegrityViolationException integrityViolation(String sqlState, String constraint) {
+        SQLException sqlException = new SQLException("constraint violated", sqlState);
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", sqlException, constraint));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_ShouldNeverMissAddedKeys() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+
+        for (long id = 1; id <= 10_000; id++) {
+            filter.put(id);
+            filter.put("user" + id + "@example.com");
+        }
+
+        for (long id = 1; id <= 10_000; id++) {
+            assertThat(filter.mightContain(id)).isTrue();
+            assertThat(filter.mightContain("user" + id + "@example.com")).isTrue();
+        }
+    }
+
+    @Test
+    void mightContain_ShouldKeepFalsePositiveRateNearTarget() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (long id = 1; id <= 10_000; id++) {
+            filter.put(id);
+        }
+
+        int falsePositives = 0;
+        for (long id = 1_000_000; id < 1_100_000; id++) {
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives).isLessThan(2_000); // < 2% на 100 000 проверок
+    }
+
+    @Test
+    void mightContain_ShouldReturnFalse_WhenEmpty() {
+        BloomFilter filter = BloomFilter.create(100, 0.01);
+
+        assertThat(filter.mightContain(1L)).isFalse();
+        assertThat(filter.mightContain("ivan@example.com")).isFalse();
+    }
+}
@@ -0,0 +1,172 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.astondevs.learn.vorobev.dto.UserChangeEvent;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.dto.UserSnapshot;
+import ru.astondevs.learn.vorobev.entity.User;
+import ru.astondevs.learn.vorobev.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ColumnarUserStoreTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 5, 1, 12, 30, 15);
+
+    @Mock
+    private UserRepository userRepository;
+
+    private ColumnarUserStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ColumnarUserStore(userRepository);
+        ReflectionTestUtils.setField(store, "enabled", true);
+    }
+
+    @Test
+    void find_ShouldReturnEmpty_BeforeBootstrap() {
+        assertThat(store.isReady()).isFalse();
+        assertThat(store.find(1L)).isEmpty();
+    }
+
+    @Test
+    void rebuild_ShouldLoadAllRowsFromScan() {
+        bootstrap(row(1L, "Иван", "ivan@example.com", 25), row(2L, "Петр", "petr@example.com", 40));
+
+        assertThat(store.isReady()).isTrue();
+        UserResponse user = store.find(2L).orElseThrow();
+        assertThat(user.getName()).isEqualTo("Петр");
+        assertThat(user.getEmail()).isEqualTo("petr@example.com");
+        assertThat(user.getAge()).isEqualTo(40);
+        assertThat(user.getCreatedAt()).isEqualTo(CREATED_AT);
+        assertThat(store.countByAge(null, null)).isEqualTo(2);
+    }
+
+    @Test
+    void onUserChange_ShouldApplyCreateUpdateAndDelete() {
+        bootstrap(row(1L, "Иван", "ivan@example.com", 25));
+
+        store.onUserChange(change(2L, "CREATE", new UserSnapshot(2L, "Анна", "anna@example.com", 30, CREATED_AT)));
+        store.onUserChange(change(1L, "UPDATE", new UserSnapshot(1L, "Иван", "ivan@new.example.com", 26, CREATED_AT)));
+        store.onUserChange(change(2L, "DELETE", null));
+
+        assertThat(store.find(2L)).isEmpty();
+        assertThat(store.find(1L).orElseThrow().getEmail()).isEqualTo("ivan@new.example.com");
+        assertThat(store.countByAge(null, null)).isEqualTo(1);
+        assertThat(store.findByAge(26, 26)).extracting(UserResponse::getId).containsExactly(1L);
+    }
+
+    @Test
+    void afterCommit_ShouldApplyLocalWritesWithoutWaitingForEvent() {
+        bootstrap(row(1L, "Иван", "ivan@example.com", 25), row(2L, "Петр", "petr@example.com", 40));
+        User updated = User.builder().id(1L).name("Иван").email("ivan@new.example.com").age(26).createdAt(CREATED_AT).build();
+
+        // Вне транзакции изменение применяется сразу, как после коммита
+        store.putAfterCommit(updated, LocalDateTime.now());
+        store.evictAfterCommit(2L);
+
+        assertThat(store.find(1L).orElseThrow().getEmail()).isEqualTo("ivan@new.example.com");
+        assertThat(store.find(2L)).isEmpty();
+        assertThat(store.findByAge(null, null)).extracting(UserResponse::getId).containsExactly(1L);
+    }
+
+    @Test
+    void onUserChange_ShouldIgnoreDelayedEvent_WhenNewerLocalWriteApplied() {
+        bootstrap(row(1L, "Иван", "ivan@example.com", 25));
+        LocalDateTime firstUpdate = LocalDateTime.now();
+        LocalDateTime secondUpdate = firstUpdate.plusNanos(1_000);
+
+        store.putAfterCommit(User.builder().id(1L).name("Иван").email("ivan@second.example.com").age(27)
+                .createdAt(CREATED_AT).build(), secondUpdate);
+        store.onUserChange(new UserChangeEvent(1L, "UPDATE", null,
+                new UserSnapshot(1L, "Иван", "ivan@first.example.com", 26, CREATED_AT), firstUpdate));
+
+        assertThat(store.find(1L).orElseThrow().getEmail()).isEqualTo("ivan@second.example.com");
+        assertThat(store.find(1L).orElseThrow().getAge()).isEqualTo(27);
+    }
+
+    @Test
+    void onUserChange_ShouldNotRestoreDeletedUser_WhenDelayedUpdateArrives() {
+        bootstrap(row(1L, "Иван", "ivan@example.com", 25));
+        LocalDateTime update = LocalDateTime.now();
+
+        store.evictAfterCommit(1L);
+        store.onUserChange(new UserChangeEvent(1L, "UPDATE", null,
+                new UserSnapshot(1L, "Иван", "ivan@new.example.com", 26, CREATED_AT), update));
+
+        assertThat(store.find(1L)).isEmpty();
+        assertThat(store.countByAge(null, null)).isZero();
+    }
+
+    @Test
+    void rebuild_ShouldKeepDeletedUsersHidden_FromEventsDelayedPastRebuild() {
+        bootstrap(row(1L, "Иван", "ivan@example.com", 25), row(2L, "Петр", "petr@example.com", 40));
+        store.evictAfterCommit(1L);
+        bootstrap(row(2L, "Петр", "petr@example.com", 40));
+
+        store.onUserChange(change(1L, "UPDATE", new UserSnapshot(1L, "Иван", "ivan@new.example.com", 26, CREATED_AT)));
+
+        assertThat(store.find(1L)).isEmpty();
+    }
+
+    @Test
+    void findByAge_ShouldFilterInclusiveRange() {
+        bootstrap(row(1L, "A", "a@example.com", 17), row(2L, "B", "b@example.com", 18),
+                row(3L, "C", "c@example.com", 30), row(4L, "D", "d@example.com", 31));
+
+        assertThat(store.findByAge(18, 30)).extracting(UserResponse::getId).containsExactly(2L, 3L);
+        assertThat(store.countByAge(18, null)).isEqualTo(3);
+        assertThat(store.countByAge(null, 17)).isEqualTo(1);
+    }
+
+    @Test
+    void longIntHashMap_ShouldSurviveRandomPutsAndRemoves() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            long key = 1 + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                assertThat(map.remove(key)).isEqualTo(removed != null ? removed : LongIntHashMap.MISSING);
+            } else {
+                expected.put(key, i);
+                map.put(key, i);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = 1; key <= 5_000; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, LongIntHashMap.MISSING));
+        }
+    }
+
+    private void bootstrap(Object[]... rows) {
+        when(userRepository.count()).thenReturn((long) rows.length);
+        when(userRepository.streamAllRows()).thenReturn(Stream.of(rows));
+        store.rebuild();
+    }
+
+    private static Object[] row(Long id, String name, String email, Integer age) {
+        return new Object[]{id, name, email, age, CREATED_AT, CREATED_AT};
+    }
+
+    private static UserChangeEvent change(Long id, String operation, UserSnapshot after) {
+        return new UserChangeEvent(id, operation, null, after, LocalDateTime.now());
+    }
+}
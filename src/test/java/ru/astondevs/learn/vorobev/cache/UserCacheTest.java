@@ -0,0 +1,108 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserCacheTest {
+
+    private final CachedUser user =
+            new CachedUser(1L, "Иван Иванов", "ivan@example.com", 25, LocalDateTime.of(2024, 5, 1, 12, 30, 15), 3L);
+
+    private InMemorySharedUserCache shared;
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        shared = new InMemorySharedUserCache(1_000);
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void codec_ShouldRoundTripUser() {
+        byte[] encoded = CachedUserCodec.encode(user);
+
+        assertThat(CachedUserCodec.decode(encoded)).isEqualTo(user);
+        assertThat(CachedUserCodec.decode(new byte[]{99})).isNull();
+    }
+
+    @Test
+    void get_ShouldWarmLocalTierFromSharedTier() {
+        newCache().put(user);
+
+        // Новый экземпляр с пустым L1, но общим L2
+        UserCache restarted = newCache();
+
+        assertThat(restarted.get(1L)).contains(user);
+        assertThat(restarted.get(1L)).contains(user);
+        assertThat(count("local", "hit")).isEqualTo(1);
+        assertThat(count("memory", "hit")).isEqualTo(1);
+    }
+
+    @Test
+    void evict_ShouldRemoveFromBothTiers() {
+        UserCache cache = newCache();
+        cache.put(user);
+
+        cache.evict(1L);
+
+        assertThat(cache.get(1L)).isEmpty();
+        assertThat(newCache().get(1L)).isEmpty();
+    }
+
+    @Test
+    void putLoaded_ShouldKeepNewerVersionWrittenByAnotherInstance() {
+        UserCache reader = newCache();
+        UserCache writer = newCache();
+        CachedUser updated = new CachedUser(1L, "Иван Петров", "ivan@example.com", 25, user.getCreatedAt(), 4L);
+
+        long stamp = reader.changeStamp(1L);
+        // Обновление с другого экземпляра зафиксировано, пока reader читал старую версию из БД
+        writer.put(updated);
+        reader.putLoaded(user, stamp);
+
+        assertThat(newCache().get(1L)).contains(updated);
+    }
+
+    @Test
+    void putLoaded_ShouldNotResurrectUserDeletedDuringRead() {
+        UserCache cache = newCache();
+        UserCache other = newCache();
+
+        long stamp = cache.changeStamp(1L);
+        cache.evictAfterCommit(1L);
+        cache.putLoaded(user, stamp);
+
+        assertThat(cache.get(1L)).isEmpty();
+        assertThat(newCache().get(1L)).isEmpty();
+
+        // Удаление на другом экземпляре: L1 читателя еще не знает о нем, но L2 не перезаписывается
+        long otherStamp = other.changeStamp(2L);
+        CachedUser second = new CachedUser(2L, "Петр", "petr@example.com", 30, user.getCreatedAt(), 1L);
+        cache.evict(2L);
+        other.putLoaded(second, otherStamp);
+
+        assertThat(newCache().get(2L)).isEmpty();
+    }
+
+    private UserCache newCache() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("sharedUserCache", shared);
+        beanFactory.registerSingleton("meterRegistry", registry);
+        return new UserCache(
+                beanFactory.getBeanProvider(SharedUserCache.class),
+                beanFactory.getBeanProvider(MeterRegistry.class),
+                1_000, Duration.ofMinutes(1), Duration.ofMinutes(10));
+    }
+
+    private double count(String tier, String result) {
+        return registry.get("user.cache.gets").tag("tier", tier).tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,117 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.astondevs.learn.vorobev.dto.UserChangeEvent;
+import ru.astondevs.learn.vorobev.repository.UserRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserCacheWarmerTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ApplicationInfoManager applicationInfoManager;
+
+    private UserCache userCache;
+    private UserCacheWarmer warmer;
+
+    @BeforeEach
+    void setUp() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("applicationInfoManager", applicationInfoManager);
+        userCache = new UserCache(
+                beanFactory.getBeanProvider(SharedUserCache.class),
+                beanFactory.getBeanProvider(MeterRegistry.class),
+                1_000, Duration.ofMinutes(1), Duration.ofMinutes(10));
+        warmer = new UserCacheWarmer(userRepository, userCache, beanFactory.getBeanProvider(ApplicationInfoManager.class));
+        ReflectionTestUtils.setField(warmer, "enabled", true);
+        ReflectionTestUtils.setField(warmer, "maxUsers", 100);
+        ReflectionTestUtils.setField(warmer, "batchSize", 2);
+        ReflectionTestUtils.setField(warmer, "parallelism", 2);
+        ReflectionTestUtils.setField(warmer, "timeBudget", Duration.ofSeconds(5));
+    }
+
+    @Test
+    void run_ShouldLoadRecentUsersInBatchesAndMarkInstanceUp() {
+        when(userRepository.findRecentlyUpdatedIds(any(Pageable.class))).thenReturn(List.of(1L, 2L, 3L, 4L, 5L));
+        when(userRepository.findCachedByIdIn(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(this::cached).collect(Collectors.toList());
+        });
+
+        warmer.run(null);
+
+        verify(userRepository, times(3)).findCachedByIdIn(anyList());
+        assertThat(userCache.localSize()).isEqualTo(5);
+        assertThat(userCache.get(3L)).isPresent();
+        verify(applicationInfoManager).setInstanceStatus(InstanceStatus.UP);
+    }
+
+    @Test
+    void run_ShouldSkipUser_WhenChangedWhileBatchLoaded() {
+        when(userRepository.findRecentlyUpdatedIds(any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(userRepository.findCachedByIdIn(anyList())).thenAnswer(invocation -> {
+            // Изменение пришло между отметкой и результатом запроса — прочитанная копия устарела
+            userCache.onUserChange(new UserChangeEvent(2L, "UPDATE", null, null, LocalDateTime.now()));
+            List<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(this::cached).collect(Collectors.toList());
+        });
+
+        warmer.run(null);
+
+        assertThat(userCache.localSize()).isEqualTo(1);
+        assertThat(userCache.get(2L)).isEmpty();
+    }
+
+    @Test
+    void run_ShouldMarkInstanceUp_WhenWarmUpFails() {
+        when(userRepository.findRecentlyUpdatedIds(any(Pageable.class))).thenThrow(new IllegalStateException("db down"));
+
+        warmer.run(null);
+
+        assertThat(userCache.localSize()).isZero();
+        verify(applicationInfoManager).setInstanceStatus(InstanceStatus.UP);
+    }
+
+    @Test
+    void run_ShouldStopAtTimeBudget() {
+        ReflectionTestUtils.setField(warmer, "timeBudget", Duration.ofMillis(200));
+        ReflectionTestUtils.setField(warmer, "parallelism", 1);
+        when(userRepository.findRecentlyUpdatedIds(any(Pageable.class))).thenReturn(List.of(1L, 2L, 3L, 4L));
+        when(userRepository.findCachedByIdIn(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(10_000);
+            return List.of();
+        });
+
+        long started = System.nanoTime();
+        warmer.run(null);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+        verify(applicationInfoManager).setInstanceStatus(InstanceStatus.UP);
+    }
+
+    private CachedUser cached(Long id) {
+        return new CachedUser(id, "Пользователь " + id, "user" + id + "@example.com", 30, LocalDateTime.now(), 0L);
+    }
+}
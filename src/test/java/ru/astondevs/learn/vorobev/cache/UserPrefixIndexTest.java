@@ -0,0 +1,87 @@
+package ru.astondevs.learn.vorobev.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.astondevs.learn.vorobev.dto.UserChangeEvent;
+import ru.astondevs.learn.vorobev.dto.UserSnapshot;
+import ru.astondevs.learn.vorobev.dto.UserSuggestion;
+import ru.astondevs.learn.vorobev.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserPrefixIndexTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserPrefixIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserPrefixIndex(userRepository);
+        ReflectionTestUtils.setField(index, "enabled", true);
+    }
+
+    @Test
+    void search_ShouldReturnEmpty_BeforeBootstrap() {
+        assertThat(index.isReady()).isFalse();
+        assertThat(index.search("ив", 10)).isEmpty();
+    }
+
+    @Test
+    void search_ShouldMatchNameWordsAndEmailIgnoringCase() {
+        bootstrap(row(1L, "Иван Петров", "ivan@example.com"),
+                row(2L, "Петр Иванов", "petr@example.com"),
+                row(3L, "Анна", "anna@example.com"));
+
+        assertThat(index.search("ИВ", 10)).extracting(UserSuggestion::getId).containsExactly(1L, 2L);
+        assertThat(index.search("petr@", 10)).extracting(UserSuggestion::getId).containsExactly(2L);
+        assertThat(index.search("  ан ", 10)).extracting(UserSuggestion::getName).containsExactly("Анна");
+        assertThat(index.search("x", 10)).isEmpty();
+    }
+
+    @Test
+    void search_ShouldReturnDistinctUsersUpToLimit() {
+        bootstrap(row(1L, "Иван Иванов", "ivan@example.com"),
+                row(2L, "Иванна", "ivanna@example.com"),
+                row(3L, "Иннокентий", "inn@example.com"));
+
+        assertThat(index.search("ив", 2)).extracting(UserSuggestion::getId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void onUserChange_ShouldReplaceOldTermsAndRemoveDeletedUsers() {
+        bootstrap(row(1L, "Иван", "ivan@example.com"), row(2L, "Анна", "anna@example.com"));
+
+        index.onUserChange(change(1L, new UserSnapshot(1L, "Игорь", "igor@example.com", 30, null)));
+        index.onUserChange(change(2L, null));
+        index.onUserChange(change(3L, new UserSnapshot(3L, "Алла", "alla@example.com", 20, null)));
+
+        assertThat(index.search("иван", 10)).isEmpty();
+        assertThat(index.search("ivan", 10)).isEmpty();
+        assertThat(index.search("иг", 10)).extracting(UserSuggestion::getEmail).containsExactly("igor@example.com");
+        assertThat(index.search("а", 10)).extracting(UserSuggestion::getId).containsExactly(3L);
+    }
+
+    private void bootstrap(Object[]... rows) {
+        when(userRepository.streamAllRows()).thenReturn(Stream.of(rows));
+        index.rebuild();
+    }
+
+    private static Object[] row(Long id, String name, String email) {
+        return new Object[]{id, name, email, 25, LocalDateTime.now()};
+    }
+
+    private static UserChangeEvent change(Long id, UserSnapshot after) {
+        return new UserChangeEvent(id, after == null ? "DELETE" : "UPDATE", null, after, LocalDateTime.now());
+    }
+}
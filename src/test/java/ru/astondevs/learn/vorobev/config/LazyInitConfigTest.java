@@ -0,0 +1,29 @@
+package ru.astondevs.learn.vorobev.config;
+
+import org.junit.jupiter.api.Test;
+import ru.astondevs.learn.vorobev.cache.UserCache;
+import ru.astondevs.learn.vorobev.controller.UserController;
+import ru.astondevs.learn.vorobev.repository.UserRepository;
+import ru.astondevs.learn.vorobev.service.OutboxRelay;
+import ru.astondevs.learn.vorobev.service.UserExistenceFilter;
+import ru.astondevs.learn.vorobev.service.UserServiceImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LazyInitConfigTest {
+
+    @Test
+    void isEager_ShouldKeepRequestPathAndBackgroundBeans() {
+        assertThat(LazyInitConfig.isEager(UserController.class)).isTrue();
+        assertThat(LazyInitConfig.isEager(UserServiceImpl.class)).isTrue();
+        assertThat(LazyInitConfig.isEager(UserRepository.class)).isTrue();
+        assertThat(LazyInitConfig.isEager(OutboxRelay.class)).isTrue();
+        assertThat(LazyInitConfig.isEager(UserExistenceFilter.class)).isTrue();
+    }
+
+    @Test
+    void isEager_ShouldLeaveOtherBeansLazy() {
+        assertThat(LazyInitConfig.isEager(OpenApiConfig.class)).isFalse();
+        assertThat(LazyInitConfig.isEager(UserCache.class)).isFalse();
+    }
+}
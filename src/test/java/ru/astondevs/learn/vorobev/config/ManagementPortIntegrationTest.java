@@ -0,0 +1,85 @@
+package ru.astondevs.learn.vorobev.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Actuator (в том числе refresh) должен быть доступен только на служебном порту, а не на порту,
+ * который открыт через Gateway.
+ */
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "management.server.port=0")
+class ManagementPortIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @LocalServerPort
+    private int serverPort;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void refresh_ShouldNotBeServed_OnServerPort() {
+        ResponseEntity<String> response = restTemplate.postForEntity(
+                "http://localhost:" + serverPort + "/actuator/refresh", null, String.class);
+
+        assertThat(managementPort).isNotEqualTo(serverPort);
+        assertThat(response.getStatusCode().is2xxSuccessful()).isFalse();
+    }
+
+    @Test
+    void refresh_ShouldBeServed_OnManagementPort() {
+        ResponseEntity<String> response = restTemplate.postForEntity(
+                "http://localhost:" + managementPort + "/actuator/refresh", null, String.class);
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+    }
+
+    @Test
+    void defaults_ShouldKeepManagementPortApartFromServerPort() throws IOException {
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                .load("application", new ClassPathResource("application.yml"));
+        StandardEnvironment environment = new StandardEnvironment();
+        sources.forEach(environment.getPropertySources()::addLast);
+
+        // Без MANAGEMENT_PORT Spring Boot при совпадении портов отдал бы actuator на основном
+        assertThat(environment.getProperty("management.server.port"))
+                .isNotEqualTo(environment.getProperty("server.port"));
+    }
+}
@@ -0,0 +1,64 @@
+package ru.astondevs.learn.vorobev.config;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.mock.env.MockEnvironment;
+import ru.astondevs.learn.vorobev.cache.UserCache;
+
+import javax.sql.DataSource;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuntimeTuningListenerTest {
+
+    private static final String THRESHOLD = "resilience4j.circuitbreaker.instances.userService.failure-rate-threshold";
+
+    private MockEnvironment environment;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private RuntimeTuningListener listener;
+
+    @BeforeEach
+    void setUp() {
+        environment = new MockEnvironment();
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        circuitBreakerRegistry.circuitBreaker("userService");
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("circuitBreakerRegistry", circuitBreakerRegistry);
+        listener = new RuntimeTuningListener(environment,
+                beanFactory.getBeanProvider(DataSource.class),
+                beanFactory.getBeanProvider(UserCache.class),
+                beanFactory.getBeanProvider(BulkheadRegistry.class),
+                beanFactory.getBeanProvider(CircuitBreakerRegistry.class));
+    }
+
+    @Test
+    void onEnvironmentChange_ShouldReplaceCircuitBreaker_WhenClosed() {
+        environment.setProperty(THRESHOLD, "25");
+
+        listener.onEnvironmentChange(new EnvironmentChangeEvent(Set.of(THRESHOLD)));
+
+        CircuitBreaker breaker = circuitBreakerRegistry.circuitBreaker("userService");
+        assertThat(breaker.getCircuitBreakerConfig().getFailureRateThreshold()).isEqualTo(25f);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void onEnvironmentChange_ShouldKeepOpenCircuitBreaker() {
+        CircuitBreaker open = circuitBreakerRegistry.circuitBreaker("userService");
+        open.transitionToOpenState();
+        environment.setProperty(THRESHOLD, "25");
+
+        listener.onEnvironmentChange(new EnvironmentChangeEvent(Set.of(THRESHOLD)));
+
+        assertThat(circuitBreakerRegistry.circuitBreaker("userService")).isSameAs(open);
+        assertThat(open.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(open.getCircuitBreakerConfig().getFailureRateThreshold()).isEqualTo(50f);
+    }
+}
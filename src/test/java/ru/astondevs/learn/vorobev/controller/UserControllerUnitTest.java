@@ -1,23 +1,38 @@
 package ru.astondevs.learn.vorobev.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.astondevs.learn.vorobev.config.IdempotencyConfig;
 import ru.astondevs.learn.vorobev.dto.CreateUserRequest;
 import ru.astondevs.learn.vorobev.dto.UpdateUserRequest;
 import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.dto.UserSuggestion;
 import ru.astondevs.learn.vorobev.exception.DuplicateEmailException;
 import ru.astondevs.learn.vorobev.exception.ResourceNotFoundException;
+import ru.astondevs.learn.vorobev.exception.WriteAcceptedException;
 import ru.astondevs.learn.vorobev.service.UserService;
+import ru.astondevs.learn.vorobev.web.EncodedResponseCache;
+import ru.astondevs.learn.vorobev.web.IdempotencyStore;
+import ru.astondevs.learn.vorobev.web.UserChangeBroadcaster;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
@@ -25,7 +40,11 @@ import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest(UserController.class)
+@WebMvcTest(controllers = UserController.class, properties = {
+        "app.response-cache.base-url=http://localhost",
+        "app.idempotency.store=memory"
+})
+@Import({IdempotencyStore.class, IdempotencyConfig.class, UserChangeBroadcaster.class})
 class UserControllerUnitTest {
 
     @Autowired
@@ -37,6 +56,17 @@ class UserControllerUnitTest {
     @MockBean
     private UserService userService;
 
+    @Autowired
+    private UserChangeBroadcaster userChangeBroadcaster;
+
+    @Autowired
+    private EncodedResponseCache encodedResponseCache;
+
+    @BeforeEach
+    void clearResponseCache() {
+        encodedResponseCache.invalidateAll();
+    }
+
     @Test
     void createUser_ShouldReturnCreatedUser() throws Exception {
         // Arrange
@@ -108,6 +138,83 @@ class UserControllerUnitTest {
         verify(userService, times(1)).createUser(any(CreateUserRequest.class));
     }
 
+    @Test
+    void createUser_ShouldReplayResponse_WhenIdempotencyKeyRepeated() throws Exception {
+        // Arrange
+        CreateUserRequest request = new CreateUserRequest(
+                "Иван Иванов",
+                "retry@example.com",
+                25
+        );
+
+        UserResponse response = new UserResponse(
+                1L,
+                "Иван Иванов",
+                "retry@example.com",
+                25,
+                LocalDateTime.now()
+        );
+
+        when(userService.createUser(any(CreateUserRequest.class))).thenReturn(response);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/users")
+                        .header("Idempotency-Key", "key-replay")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+
+        mockMvc.perform(post("/api/v1/users")
+                        .header("Idempotency-Key", "key-replay")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.id").value(1L))
+                .andExpect(jsonPath("$.email").value("retry@example.com"));
+
+        verify(userService, times(1)).createUser(any(CreateUserRequest.class));
+    }
+
+    @Test
+    void createUser_ShouldReturnUnprocessableEntity_WhenIdempotencyKeyReusedWithOtherBody() throws Exception {
+        // Arrange
+        CreateUserRequest request = new CreateUserRequest("Иван Иванов", "first@example.com", 25);
+        CreateUserRequest otherRequest = new CreateUserRequest("Петр Петров", "second@example.com", 30);
+
+        when(userService.createUser(any(CreateUserRequest.class)))
+                .thenReturn(new UserResponse(1L, "Иван Иванов", "first@example.com", 25, LocalDateTime.now()));
+
+        mockMvc.perform(post("/api/v1/users")
+                        .header("Idempotency-Key", "key-mismatch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/users")
+                        .header("Idempotency-Key", "key-mismatch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(otherRequest)))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(userService, times(1)).createUser(any(CreateUserRequest.class));
+    }
+
+    @Test
+    void createUser_ShouldReturnBadRequest_WhenIdempotencyKeyTooLong() throws Exception {
+        CreateUserRequest request = new CreateUserRequest("Иван Иванов", "long-key@example.com", 25);
+
+        mockMvc.perform(post("/api/v1/users")
+                        .header("Idempotency-Key", "k".repeat(256))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+
+        verify(userService, never()).createUser(any(CreateUserRequest.class));
+    }
+
     @Test
     void createUser_ShouldReturnBadRequest_WhenRequiredFieldsMissing() throws Exception {
         // Arrange - пустой запрос
@@ -144,6 +251,115 @@ class UserControllerUnitTest {
         verify(userService, times(1)).getUserById(1L);
     }
 
+    @Test
+    void getUserById_ShouldServeCachedBytes_UntilUserUpdated() throws Exception {
+        // Arrange
+        UserResponse response = new UserResponse(1L, "Иван Иванов", "ivan@example.com", 25, LocalDateTime.now());
+        when(userService.getUserById(1L)).thenReturn(response);
+
+        // Act
+        MvcResult first = mockMvc.perform(get("/api/v1/users/{id}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+        byte[] cached = mockMvc.perform(get("/api/v1/users/{id}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andReturn().getResponse().getContentAsByteArray();
+        mockMvc.perform(get("/api/v1/users/{id}", 1L).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        // Assert
+        assertThat(cached).isEqualTo(first.getResponse().getContentAsByteArray());
+        verify(userService, times(1)).getUserById(1L);
+
+        // После обновления ответ снова строится контроллером
+        when(userService.updateUser(eq(1L), any(UpdateUserRequest.class))).thenReturn(
+                new UserResponse(1L, "Петр Петров", "ivan@example.com", 25, LocalDateTime.now()));
+        mockMvc.perform(put("/api/v1/users/{id}", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateUserRequest("Петр Петров", null, null))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/users/{id}", 1L))
+                .andExpect(status().isOk());
+        verify(userService, times(2)).getUserById(1L);
+    }
+
+    @Test
+    void getUserById_ShouldReturnCborWithoutLinks_WhenRequested() throws Exception {
+        // Arrange
+        UserResponse response = new UserResponse(1L, "Иван Иванов", "ivan@example.com", 25,
+                LocalDateTime.of(2024, 5, 1, 12, 30, 15));
+        when(userService.getUserById(1L)).thenReturn(response);
+
+        // Act
+        byte[] body = mockMvc.perform(get("/api/v1/users/{id}", 1L).accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert
+        JsonNode user = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertThat(user.get("id").asLong()).isEqualTo(1L);
+        assertThat(user.get("email").asText()).isEqualTo("ivan@example.com");
+        assertThat(user.get("createdAt").asText()).isEqualTo("2024-05-01 12:30:15");
+        assertThat(user.has("links")).isFalse();
+        assertThat(user.has("_links")).isFalse();
+        assertThat(body.length).isLessThan(objectMapper.writeValueAsBytes(response).length);
+    }
+
+    @Test
+    void streamAllUsers_ShouldWriteNdjsonInBatches() throws Exception {
+        // Arrange
+        List<UserResponse> firstBatch = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            firstBatch.add(new UserResponse(id, "Пользователь " + id, "user" + id + "@example.com", 30, null));
+        }
+        List<UserResponse> lastBatch = List.of(new UserResponse(501L, "Последний", "last@example.com", 40, null));
+        when(userService.getUsersAfter(0L, 500)).thenReturn(firstBatch);
+        when(userService.getUsersAfter(500L, 500)).thenReturn(lastBatch);
+
+        // Act
+        MvcResult asyncResult = mockMvc.perform(get("/api/v1/users").accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        // Assert
+        String[] lines = body.split("\n");
+        assertThat(body).endsWith("\n");
+        assertThat(lines).hasSize(501);
+        assertThat(objectMapper.readTree(lines[0]).get("id").asLong()).isEqualTo(1L);
+        assertThat(objectMapper.readTree(lines[500]).get("email").asText()).isEqualTo("last@example.com");
+        assertThat(objectMapper.readTree(lines[500]).has("links")).isFalse();
+        verify(userService, never()).getAllUsers();
+    }
+
+    @Test
+    void suggestUsers_ShouldCapLimit() throws Exception {
+        // Arrange
+        when(userService.suggestUsers("ив", 50))
+                .thenReturn(List.of(new UserSuggestion(1L, "Иван Иванов", "ivan@example.com")));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/users/autocomplete").param("q", "ив").param("limit", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1L))
+                .andExpect(jsonPath("$[0].email").value("ivan@example.com"));
+    }
+
+    @Test
+    void subscribeToChanges_ShouldOpenEventStream() throws Exception {
+        mockMvc.perform(get("/api/v1/users/changes").param("ids", "1", "2").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        assertThat(userChangeBroadcaster.subscriberCount()).isEqualTo(1);
+    }
+
     @Test
     void getUserById_ShouldReturnNotFound_WhenUserNotExists() throws Exception {
         // Arrange
@@ -157,6 +373,110 @@ class UserControllerUnitTest {
         verify(userService, times(1)).getUserById(999L);
     }
 
+    @Test
+    void getUserById_ShouldReturnProblemDetail_WhenUserNotExists() throws Exception {
+        // Arrange
+        ResourceNotFoundException exception = new ResourceNotFoundException("Пользователь с ID 999 не найден");
+        when(userService.getUserById(999L)).thenThrow(exception);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/users/{id}", 999L))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.type").value("RESOURCE_NOT_FOUND"))
+                .andExpect(jsonPath("$.status").value(404))
+                .andExpect(jsonPath("$.error").value("Not Found"))
+                .andExpect(jsonPath("$.timestamp").doesNotExist())
+                .andExpect(jsonPath("$.detail").value("Пользователь с ID 999 не найден"))
+                .andExpect(jsonPath("$.message").value("Пользователь с ID 999 не найден"));
+
+        assertThat(exception.getStackTrace()).isEmpty();
+    }
+
+    // Контракт прежнего формата ошибок: status, error, message и код в type (время — в заголовке Date)
+    @Test
+    void createUser_ShouldKeepLegacyErrorFields_WhenDuplicateEmail() throws Exception {
+        // Arrange
+        CreateUserRequest request = new CreateUserRequest("Иван Иванов", "duplicate@example.com", 25);
+        when(userService.createUser(any(CreateUserRequest.class)))
+                .thenThrow(new DuplicateEmailException("Email уже существует"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.status").value(409))
+                .andExpect(jsonPath("$.error").value("Conflict"))
+                .andExpect(jsonPath("$.message").value("Email уже существует"))
+                .andExpect(jsonPath("$.type").value("DUPLICATE_EMAIL"));
+    }
+
+    @Test
+    void createUser_ShouldKeepLegacyErrorFields_WhenValidationFails() throws Exception {
+        // Arrange
+        CreateUserRequest request = new CreateUserRequest("", "invalid-email", 0);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.error").value("Validation failed"))
+                .andExpect(jsonPath("$.fieldErrors.email").exists())
+                .andExpect(jsonPath("$.message").doesNotExist());
+    }
+
+    @Test
+    void updateUser_ShouldReturnPrecomputedConflict_WhenOtherConstraintViolated() throws Exception {
+        // Arrange
+        when(userService.updateUser(eq(1L), any(UpdateUserRequest.class)))
+                .thenThrow(new DataIntegrityViolationException("users_age_check"));
+
+        // Act & Assert
+        mockMvc.perform(put("/api/v1/users/{id}", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new UpdateUserRequest("Иван Иванов", null, null))))
+                .andExpect(status().isConflict())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.type").value("DATA_CONFLICT"))
+                .andExpect(jsonPath("$.status").value(409))
+                .andExpect(jsonPath("$.error").value("Conflict"))
+                .andExpect(jsonPath("$.message").value("Нарушено ограничение целостности данных"));
+    }
+
+    @Test
+    void createUser_ShouldReturnAcceptedWithJournalOffset_WhenWriteJournaled() throws Exception {
+        // Arrange
+        when(userService.createUser(any(CreateUserRequest.class)))
+                .thenThrow(new WriteAcceptedException("Изменение принято и будет применено после восстановления БД", 4096));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new CreateUserRequest("Иван Иванов", "ivan@example.com", 25))))
+                .andExpect(status().isAccepted())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.journalOffset").value(4096))
+                .andExpect(jsonPath("$.message").value("Изменение принято и будет применено после восстановления БД"))
+                .andExpect(jsonPath("$.type").doesNotExist());
+    }
+
+    @Test
+    void getUserById_ShouldKeepLegacyErrorFields_WhenUnexpectedError() throws Exception {
+        // Arrange
+        when(userService.getUserById(1L)).thenThrow(new IllegalStateException("Сбой"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/users/{id}", 1L))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.status").value(500))
+                .andExpect(jsonPath("$.error").value("Internal server error"))
+                .andExpect(jsonPath("$.message").value("Сбой"));
+    }
+
     @Test
     void getAllUsers_ShouldReturnUserList() throws Exception {
         // Arrange
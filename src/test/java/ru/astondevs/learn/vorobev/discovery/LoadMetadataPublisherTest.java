@@ -0,0 +1,97 @@
+package ru.astondevs.learn.vorobev.discovery;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.astondevs.learn.vorobev.config.RateLimitProperties;
+import ru.astondevs.learn.vorobev.web.AdaptiveConcurrencyLimiter;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LoadMetadataPublisherTest {
+
+    @Mock
+    private ApplicationInfoManager applicationInfoManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private LoadMetadataPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        concurrencyLimiter = new AdaptiveConcurrencyLimiter(new RateLimitProperties.Concurrency());
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("applicationInfoManager", applicationInfoManager);
+        beanFactory.registerSingleton("meterRegistry", meterRegistry);
+        beanFactory.registerSingleton("circuitBreakerRegistry", circuitBreakerRegistry);
+        publisher = new LoadMetadataPublisher(
+                beanFactory.getBeanProvider(ApplicationInfoManager.class),
+                concurrencyLimiter,
+                beanFactory.getBeanProvider(DataSource.class),
+                beanFactory.getBeanProvider(MeterRegistry.class),
+                beanFactory.getBeanProvider(CircuitBreakerRegistry.class));
+        ReflectionTestUtils.setField(publisher, "enabled", true);
+    }
+
+    @Test
+    void publish_ShouldExposeInFlightLatencyAndBreakerState() {
+        concurrencyLimiter.tryAcquire();
+        Timer timer = Timer.builder("http.server.requests")
+                .tag("uri", "/api/v1/users/{id}")
+                .publishPercentiles(0.99)
+                .register(meterRegistry);
+        for (int i = 0; i < 100; i++) {
+            timer.record(Duration.ofMillis(42));
+        }
+        circuitBreakerRegistry.circuitBreaker("userService").transitionToOpenState();
+
+        Map<String, String> metadata = publisher.collect();
+
+        assertThat(metadata).containsEntry(LoadMetadataPublisher.IN_FLIGHT, "1")
+                .containsEntry(LoadMetadataPublisher.BREAKER, "OPEN")
+                .doesNotContainKey(LoadMetadataPublisher.POOL_UTILIZATION);
+        int p99 = Integer.parseInt(metadata.get(LoadMetadataPublisher.P99_MS));
+        assertThat(p99).isBetween(40, 50);
+    }
+
+    @Test
+    void collect_ShouldOmitBreakerState_WhenShardingEnabled() {
+        ReflectionTestUtils.setField(publisher, "sharded", true);
+        circuitBreakerRegistry.circuitBreaker("userService").transitionToOpenState();
+
+        assertThat(publisher.collect()).doesNotContainKey(LoadMetadataPublisher.BREAKER);
+    }
+
+    @Test
+    void publish_ShouldSkipRegistration_WhenLoadDidNotChange() {
+        publisher.publish();
+        publisher.publish();
+
+        verify(applicationInfoManager, times(1)).registerAppMetadata(anyMap());
+
+        concurrencyLimiter.tryAcquire();
+        publisher.publish();
+
+        verify(applicationInfoManager, times(2)).registerAppMetadata(anyMap());
+    }
+}
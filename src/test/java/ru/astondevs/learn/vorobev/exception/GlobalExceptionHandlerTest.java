@@ -0,0 +1,60 @@
+package ru.astondevs.learn.vorobev.exception;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GlobalExceptionHandlerTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler(objectMapper);
+
+    @Test
+    void handleServiceOverloadedException_ShouldReusePrecomputedBody() throws Exception {
+        ResponseEntity<byte[]> first = handler.handleServiceOverloadedException(
+                new ServiceOverloadedException("Сервис перегружен, повторите запрос позже"));
+        ResponseEntity<byte[]> second = handler.handleServiceOverloadedException(
+                new ServiceOverloadedException("Достигнут предел подписок на изменения, повторите позже"));
+
+        assertThat(second.getBody()).isSameAs(first.getBody());
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(first.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_PROBLEM_JSON);
+        assertThat(first.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+
+        JsonNode body = objectMapper.readTree(first.getBody());
+        assertThat(body.get("type").asText()).isEqualTo("SERVICE_OVERLOADED");
+        assertThat(body.get("status").asInt()).isEqualTo(503);
+        assertThat(body.get("error").asText()).isEqualTo("Service Unavailable");
+        assertThat(body.get("message").asText()).isEqualTo("Сервис перегружен");
+        assertThat(body.has("timestamp")).isFalse();
+    }
+
+    @Test
+    void handleRateLimitExceededException_ShouldSetRetryAfterPerRequest() {
+        ResponseEntity<byte[]> response = handler.handleRateLimitExceededException(
+                new RateLimitExceededException("Превышен лимит запросов для клиента", 7));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("7");
+        assertThat(response.getBody()).isSameAs(
+                handler.handleRateLimitExceededException(new RateLimitExceededException("", 1)).getBody());
+    }
+
+    @Test
+    void handleDataIntegrityViolationException_ShouldNotCarryDatabaseMessage() throws Exception {
+        ResponseEntity<byte[]> response = handler.handleDataIntegrityViolationException(
+                new DataIntegrityViolationException("users_age_check"));
+
+        JsonNode body = objectMapper.readTree(response.getBody());
+        assertThat(body.get("type").asText()).isEqualTo("DATA_CONFLICT");
+        assertThat(body.toString()).doesNotContain("users_age_check");
+    }
+}
@@ -0,0 +1,91 @@
+package ru.astondevs.learn.vorobev.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedJournalTest {
+
+    private static final int SIZE = 4096;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void open_ShouldRecoverPendingRecordsAfterRestart() throws IOException {
+        Path file = dir.resolve("journal.bin");
+        try (MappedJournal journal = MappedJournal.open(file, SIZE, true)) {
+            journal.append(bytes("first"));
+            journal.append(bytes("second"));
+            journal.markReplayed(journal.pending(1).get(0));
+        }
+
+        try (MappedJournal journal = MappedJournal.open(file, SIZE, true)) {
+            List<MappedJournal.Record> pending = journal.pending(10);
+
+            assertThat(pending).hasSize(1);
+            assertThat(new String(pending.get(0).payload, StandardCharsets.UTF_8)).isEqualTo("second");
+        }
+    }
+
+    @Test
+    void open_ShouldDropCorruptedTail() throws IOException {
+        Path file = dir.resolve("journal.bin");
+        int secondOffset;
+        try (MappedJournal journal = MappedJournal.open(file, SIZE, true)) {
+            journal.append(bytes("first"));
+            secondOffset = journal.append(bytes("second"));
+        }
+
+        // Портим полезную нагрузку второй записи, как при обрыве записи на середине
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(secondOffset + 8);
+            raf.write('X');
+        }
+
+        try (MappedJournal journal = MappedJournal.open(file, SIZE, true)) {
+            List<MappedJournal.Record> pending = journal.pending(10);
+
+            assertThat(pending).hasSize(1);
+            assertThat(new String(pending.get(0).payload, StandardCharsets.UTF_8)).isEqualTo("first");
+
+            // Новая запись занимает место отброшенной
+            assertThat(journal.append(bytes("third"))).isEqualTo(secondOffset);
+        }
+    }
+
+    @Test
+    void markReplayed_ShouldRewindWhenEverythingIsApplied() throws IOException {
+        try (MappedJournal journal = MappedJournal.open(dir.resolve("journal.bin"), SIZE, false)) {
+            journal.append(bytes("first"));
+            for (MappedJournal.Record record : journal.pending(10)) {
+                journal.markReplayed(record);
+            }
+
+            assertThat(journal.hasPending()).isFalse();
+            assertThat(journal.append(bytes("next"))).isEqualTo(MappedJournal.HEADER_SIZE);
+        }
+    }
+
+    @Test
+    void append_ShouldRejectWhenFull() throws IOException {
+        try (MappedJournal journal = MappedJournal.open(dir.resolve("journal.bin"), 64, false)) {
+            journal.append(new byte[30]);
+
+            assertThatThrownBy(() -> journal.append(new byte[30]))
+                    .isInstanceOf(MappedJournal.JournalFullException.class);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
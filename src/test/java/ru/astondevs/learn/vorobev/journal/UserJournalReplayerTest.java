@@ -0,0 +1,119 @@
+package ru.astondevs.learn.vorobev.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionOperations;
+import ru.astondevs.learn.vorobev.dto.UpdateUserRequest;
+import ru.astondevs.learn.vorobev.entity.User;
+import ru.astondevs.learn.vorobev.repository.UserRepository;
+import ru.astondevs.learn.vorobev.service.UserService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserJournalReplayerTest {
+
+    @TempDir
+    Path dir;
+
+    private UserWriteJournal journal;
+    private UserService userService;
+    private UserRepository userRepository;
+    private UserJournalReplayer replayer;
+
+    @BeforeEach
+    void setUp() {
+        journal = new UserWriteJournal(new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "path", dir.resolve("journal.bin"));
+        ReflectionTestUtils.setField(journal, "sizeBytes", 64 * 1024);
+        ReflectionTestUtils.setField(journal, "fsync", false);
+        journal.open();
+
+        userService = mock(UserService.class);
+        userRepository = mock(UserRepository.class);
+        replayer = new UserJournalReplayer(journal, userService, CircuitBreakerRegistry.ofDefaults(),
+                userRepository, TransactionOperations.withoutTransaction());
+        ReflectionTestUtils.setField(replayer, "batchSize", 10);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        journal.close();
+    }
+
+    @Test
+    void replayPending_ShouldApplyUpdate_WhenUserUnchangedSinceAccepted() {
+        accept(JournalEntry.update(1L, new UpdateUserRequest("Петр", null, null), 3L));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(3L, LocalDateTime.now().minusHours(1))));
+
+        replayer.replayPending();
+
+        verify(userService, times(1)).updateUser(eq(1L), any(UpdateUserRequest.class));
+        assertThat(journal.hasPending()).isFalse();
+    }
+
+    @Test
+    void replayPending_ShouldSkipUpdate_WhenUserChangedAfterEntryWasAccepted() {
+        accept(JournalEntry.update(1L, new UpdateUserRequest("Петр", null, null), null));
+        // После восстановления БД пользователя изменили через другой экземпляр
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(4L, LocalDateTime.now().plusMinutes(1))));
+
+        replayer.replayPending();
+
+        verify(userService, never()).updateUser(anyLong(), any());
+        assertThat(journal.hasPending()).isFalse();
+    }
+
+    @Test
+    void replayPending_ShouldSkipDelete_WhenVersionMovedPastExpected() {
+        accept(JournalEntry.delete(1L, 3L));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(4L, LocalDateTime.now().minusHours(1))));
+
+        replayer.replayPending();
+
+        verify(userService, never()).deleteUser(anyLong());
+        assertThat(journal.hasPending()).isFalse();
+    }
+
+    @Test
+    void replayPending_ShouldApplySeveralEntriesOfSameUserInOrder() {
+        accept(JournalEntry.update(1L, new UpdateUserRequest("Петр", null, null), 3L));
+        accept(JournalEntry.update(1L, new UpdateUserRequest(null, null, 40), 3L));
+        // Первое применение само обновило updated_at, но версия та, что оставил журнал
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(3L, LocalDateTime.now().minusHours(1))));
+
+        replayer.replayPending();
+
+        verify(userService, times(2)).updateUser(eq(1L), any(UpdateUserRequest.class));
+    }
+
+    private void accept(JournalEntry entry) {
+        journal.degrade(entry, new CannotCreateTransactionException("БД недоступна"));
+    }
+
+    private static User user(long version, LocalDateTime updatedAt) {
+        User user = User.builder().id(1L).name("Иван").email("ivan@example.com").age(25).build();
+        user.setVersion(version);
+        user.setUpdatedAt(updatedAt);
+        return user;
+    }
+}
@@ -0,0 +1,98 @@
+package ru.astondevs.learn.vorobev.kafka;
+
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import ru.astondevs.learn.vorobev.dto.UserEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserEventSerializerTest {
+
+    private final UserEventSerializer serializer = new UserEventSerializer();
+    private final UserEventDeserializer deserializer = new UserEventDeserializer();
+
+    @Test
+    void serialize_ShouldRoundTripAllFields() {
+        UserEvent event = new UserEvent(42L, 3L, "ivan@example.com", "CREATE");
+
+        byte[] bytes = serializer.serialize("user-events", event);
+
+        assertThat(bytes[0]).isEqualTo(UserEventSchemas.MAGIC_BYTE);
+        assertThat(deserializer.deserialize("user-events", bytes)).isEqualTo(event);
+    }
+
+    @Test
+    void serialize_ShouldMatchGenericDatumWriterBytes() throws IOException {
+        for (UserEvent event : new UserEvent[]{
+                new UserEvent(42L, 3L, "иван@example.com", "CREATE"),
+                new UserEvent(Long.MAX_VALUE, -1L, "", "UPDATE"),
+                new UserEvent(null, null, null, "DELETE")}) {
+            byte[] bytes = serializer.serialize("user-events", event);
+
+            byte[] body = Arrays.copyOfRange(bytes, UserEventSchemas.HEADER_SIZE, bytes.length);
+            assertThat(body).isEqualTo(genericAvro(event));
+        }
+    }
+
+    @Test
+    void serialize_ShouldBeSmallerThanJson() {
+        UserEvent event = new UserEvent(42L, 3L, "ivan@example.com", "DELETE");
+
+        byte[] bytes = serializer.serialize("user-events", event);
+
+        // {"userId":42,"version":3,"email":"ivan@example.com","operation":"DELETE"}
+        assertThat(bytes.length).isLessThan(40);
+    }
+
+    @Test
+    void serialize_ShouldKeepNullFields() {
+        UserEvent event = new UserEvent(null, null, null, "DELETE");
+
+        UserEvent restored = deserializer.deserialize("user-events", serializer.serialize("user-events", event));
+
+        assertThat(restored).isEqualTo(event);
+    }
+
+    @Test
+    void serialize_ShouldRejectUnknownOperation() {
+        UserEvent event = new UserEvent(1L, 0L, "ivan@example.com", "MERGE");
+
+        assertThatThrownBy(() -> serializer.serialize("user-events", event))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void deserialize_ShouldRejectUnknownSchemaId() {
+        byte[] bytes = serializer.serialize("user-events", new UserEvent(1L, 0L, "ivan@example.com", "CREATE"));
+        bytes[4] = 99;
+
+        assertThatThrownBy(() -> deserializer.deserialize("user-events", bytes))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("99");
+    }
+
+    private static byte[] genericAvro(UserEvent event) throws IOException {
+        GenericRecord record = new GenericData.Record(UserEventSchemas.CURRENT);
+        record.put("userId", event.getUserId());
+        record.put("version", event.getVersion());
+        record.put("email", event.getEmail());
+        record.put("operation", new GenericData.EnumSymbol(
+                UserEventSchemas.CURRENT.getField("operation").schema(), event.getOperation()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(UserEventSchemas.CURRENT).write(record, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,135 @@
+package ru.astondevs.learn.vorobev.service;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.astondevs.learn.vorobev.entity.OutboxEvent;
+import ru.astondevs.learn.vorobev.repository.OutboxEventRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    private OutboxRelay outboxRelay;
+
+    private final List<OutboxEvent> batch = List.of(event(1L, 10L), event(2L, 20L), event(3L, 10L));
+
+    @BeforeEach
+    void setUp() {
+        outboxRelay = new OutboxRelay(outboxEventRepository, kafkaTemplate);
+        ReflectionTestUtils.setField(outboxRelay, "batchSize", 100);
+        ReflectionTestUtils.setField(outboxRelay, "sendTimeoutMs", 200L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishPending_ShouldSendWholeBatchInOrder_AndDeleteIt() {
+        when(outboxEventRepository.tryRelayLock(anyLong())).thenReturn(true);
+        when(outboxEventRepository.findOldest(100)).thenReturn(batch);
+        givenSends(Map.of());
+
+        outboxRelay.publishPending();
+
+        ArgumentCaptor<ProducerRecord<String, String>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(3)).send(records.capture());
+        assertThat(records.getAllValues())
+                .extracting(ProducerRecord::key, ProducerRecord::value)
+                .containsExactly(
+                        tuple("10", "payload-1"),
+                        tuple("20", "payload-2"),
+                        tuple("10", "payload-3"));
+        assertThat(records.getAllValues().get(0).headers().lastHeader("outbox-id").value())
+                .isEqualTo("1".getBytes());
+        verify(outboxEventRepository).deleteAllInBatch(batch);
+    }
+
+    @Test
+    void publishPending_ShouldDeleteOnlyPublishedPrefix_WhenSendFails() {
+        when(outboxEventRepository.tryRelayLock(anyLong())).thenReturn(true);
+        when(outboxEventRepository.findOldest(100)).thenReturn(batch);
+        // Третья запись подтверждена, но после неудачной второй ее удалять нельзя
+        givenSends(Map.of("payload-2", CompletableFuture.failedFuture(new IllegalStateException("broker down"))));
+
+        outboxRelay.publishPending();
+
+        verify(outboxEventRepository).deleteAllInBatch(List.of(batch.get(0)));
+    }
+
+    @Test
+    void publishPending_ShouldStopAtFirstUnconfirmedSend_WhenTimeoutExpires() {
+        when(outboxEventRepository.tryRelayLock(anyLong())).thenReturn(true);
+        when(outboxEventRepository.findOldest(100)).thenReturn(batch);
+        givenSends(Map.of("payload-2", new CompletableFuture<>()));
+
+        outboxRelay.publishPending();
+
+        verify(outboxEventRepository).deleteAllInBatch(List.of(batch.get(0)));
+    }
+
+    @Test
+    void publishPending_ShouldDeleteNothing_WhenFirstSendFails() {
+        when(outboxEventRepository.tryRelayLock(anyLong())).thenReturn(true);
+        when(outboxEventRepository.findOldest(100)).thenReturn(batch);
+        givenSends(Map.of("payload-1", CompletableFuture.failedFuture(new IllegalStateException("broker down"))));
+
+        outboxRelay.publishPending();
+
+        verify(outboxEventRepository, never()).deleteAllInBatch(anyList());
+    }
+
+    @Test
+    void publishPending_ShouldSkipBatch_WhenAnotherInstanceHoldsLock() {
+        when(outboxEventRepository.tryRelayLock(anyLong())).thenReturn(false);
+
+        outboxRelay.publishPending();
+
+        verify(outboxEventRepository, never()).findOldest(anyInt());
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenSends(Map<String, CompletableFuture<SendResult<String, String>>> overrides) {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            ProducerRecord<String, String> record = invocation.getArgument(0);
+            return overrides.getOrDefault(record.value(), CompletableFuture.completedFuture(null));
+        });
+    }
+
+    private static OutboxEvent event(Long id, Long userId) {
+        return OutboxEvent.builder()
+                .id(id)
+                .aggregateId(userId)
+                .operation(UserChangeRecorder.UPDATE)
+                .payload("payload-" + id)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,187 @@
+package ru.astondevs.learn.vorobev.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.astondevs.learn.vorobev.dto.CreateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UpdateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.dto.UserSuggestion;
+import ru.astondevs.learn.vorobev.exception.DuplicateEmailException;
+import ru.astondevs.learn.vorobev.exception.ResourceNotFoundException;
+import ru.astondevs.learn.vorobev.sharding.ShardedUserRepository;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Три шарда и справочник email — отдельные базы H2 в памяти.
+ */
+class ShardedUserServiceTest {
+
+    private static final int SHARDS = 3;
+
+    private ShardedUserRepository repository;
+    private JdbcTemplate directory;
+    private ShardedUserService service;
+
+    @BeforeEach
+    void setUp() {
+        String run = UUID.randomUUID().toString();
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            shards.add(h2("shard" + i + "-" + run));
+        }
+        DataSource directoryDataSource = h2("directory-" + run);
+        directory = new JdbcTemplate(directoryDataSource);
+
+        repository = new ShardedUserRepository(shards, directoryDataSource, SHARDS, Duration.ofSeconds(5));
+        repository.initializeSchema();
+        service = new ShardedUserService(repository, mock(UserEventPublisher.class),
+                new ObjectMapper().findAndRegisterModules(),
+                Duration.ofMinutes(1), Duration.ZERO, Duration.ofDays(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.close();
+    }
+
+    @Test
+    void createUser_ShouldStoreUserOnShardEncodedInId() {
+        Set<Integer> usedShards = new HashSet<>();
+        for (int i = 0; i < 30; i++) {
+            UserResponse created = service.createUser(new CreateUserRequest("Пользователь " + i, "user" + i + "@example.com", 30));
+            int shard = repository.router().shardOf(created.getId());
+            usedShards.add(shard);
+
+            assertThat(repository.shard(shard).queryForObject(
+                    "SELECT count(*) FROM users WHERE id = ?", Long.class, created.getId())).isEqualTo(1L);
+            assertThat(service.getUserById(created.getId()).getEmail()).isEqualTo("user" + i + "@example.com");
+        }
+
+        assertThat(usedShards).hasSize(SHARDS);
+        assertThat(service.countUsers(null, null)).isEqualTo(30L);
+        assertThat(outboxSize()).isEqualTo(30L);
+    }
+
+    @Test
+    void createUser_ShouldRejectDuplicateEmail() {
+        service.createUser(new CreateUserRequest("Иван", "ivan@example.com", 25));
+
+        assertThatThrownBy(() -> service.createUser(new CreateUserRequest("Другой Иван", "ivan@example.com", 40)))
+                .isInstanceOf(DuplicateEmailException.class);
+        assertThat(service.countUsers(null, null)).isEqualTo(1L);
+    }
+
+    @Test
+    void updateUser_ShouldRejectEmailOwnedByUserOnAnotherShard() {
+        UserResponse first = service.createUser(new CreateUserRequest("Иван", "ivan@example.com", 25));
+        UserResponse other = null;
+        for (int i = 0; other == null; i++) {
+            UserResponse candidate = service.createUser(new CreateUserRequest("Петр", "petr" + i + "@example.com", 30));
+            if (repository.router().shardOf(candidate.getId()) != repository.router().shardOf(first.getId())) {
+                other = candidate;
+            }
+        }
+        long otherId = other.getId();
+
+        assertThatThrownBy(() -> service.updateUser(otherId, new UpdateUserRequest(null, "ivan@example.com", null)))
+                .isInstanceOf(DuplicateEmailException.class);
+
+        // Свободный email переходит к пользователю, старый освобождается
+        service.updateUser(otherId, new UpdateUserRequest(null, "petr.new@example.com", null));
+        assertThat(service.getUserById(otherId).getEmail()).isEqualTo("petr.new@example.com");
+        assertThat(directory.queryForObject("SELECT user_id FROM user_email_directory WHERE email = ?",
+                Long.class, "petr.new@example.com")).isEqualTo(otherId);
+        assertThat(directory.queryForObject("SELECT count(*) FROM user_email_directory WHERE email = ?",
+                Long.class, other.getEmail())).isZero();
+    }
+
+    @Test
+    void getUsersAfter_ShouldMergeKeysetPagesAcrossShards() {
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expected.add(service.createUser(new CreateUserRequest("Пользователь " + i, "page" + i + "@example.com", 20 + i)).getId());
+        }
+        expected.sort(Long::compare);
+
+        List<Long> paged = new ArrayList<>();
+        long afterId = 0;
+        List<UserResponse> page;
+        do {
+            page = service.getUsersAfter(afterId, 7);
+            for (UserResponse user : page) {
+                paged.add(user.getId());
+                afterId = user.getId();
+            }
+        } while (page.size() == 7);
+
+        assertThat(paged).isEqualTo(expected);
+        assertThat(service.findUsersByAge(30, null)).extracting(UserResponse::getAge).allMatch(age -> age >= 30);
+        assertThat(service.countUsers(30, null)).isEqualTo(10L);
+    }
+
+    @Test
+    void deleteUser_ShouldLeaveTombstoneAndReleaseEmail() {
+        UserResponse created = service.createUser(new CreateUserRequest("Иван", "ivan@example.com", 25));
+        String cursor = service.getChangesSince(null, 100).getCursor();
+
+        service.deleteUser(created.getId());
+
+        assertThatThrownBy(() -> service.getUserById(created.getId())).isInstanceOf(ResourceNotFoundException.class);
+        assertThat(service.getChangesSince(cursor, 100).getDeleted()).containsExactly(created.getId());
+        assertThat(service.createUser(new CreateUserRequest("Новый Иван", "ivan@example.com", 30)).getId())
+                .isNotEqualTo(created.getId());
+    }
+
+    @Test
+    void createUser_ShouldTakeOverAbandonedReservation() {
+        // Резерв остался от создания, упавшего до вставки в шард
+        directory.update("INSERT INTO user_email_directory (email, user_id, reserved_at) VALUES (?, ?, ?)",
+                "ivan@example.com", 999_999L, LocalDateTime.now().minusHours(1));
+
+        UserResponse created = service.createUser(new CreateUserRequest("Иван", "ivan@example.com", 25));
+
+        assertThat(directory.queryForObject("SELECT user_id FROM user_email_directory WHERE email = ?",
+                Long.class, "ivan@example.com")).isEqualTo(created.getId());
+    }
+
+    @Test
+    void suggestUsers_ShouldReturnFirstNamesInMergeOrder_WhenMatchesSpreadAcrossShards() {
+        List<String> names = List.of("ивАн", "Иван", "Ивана", "иван", "ИВАН", "Иванов", "ивa", "Ивa");
+        for (int i = 0; i < names.size(); i++) {
+            service.createUser(new CreateUserRequest(names.get(i), "suggest" + i + "@example.com", 30));
+        }
+        List<String> expected = new ArrayList<>(names);
+        expected.sort(String::compareTo);
+
+        assertThat(service.suggestUsers("ив", 4)).extracting(UserSuggestion::getName)
+                .containsExactlyElementsOf(expected.subList(0, 4));
+    }
+
+    private long outboxSize() {
+        long total = 0;
+        for (int shard = 0; shard < SHARDS; shard++) {
+            total += repository.shard(shard).queryForObject("SELECT count(*) FROM user_outbox", Long.class);
+        }
+        return total;
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+    }
+}
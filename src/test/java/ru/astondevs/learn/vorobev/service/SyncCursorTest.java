@@ -0,0 +1,40 @@
+package ru.astondevs.learn.vorobev.service;
+
+import org.junit.jupiter.api.Test;
+import ru.astondevs.learn.vorobev.exception.InvalidSyncCursorException;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SyncCursorTest {
+
+    @Test
+    void decode_ShouldRestoreEncodedPositionWithMicrosecondPrecision() {
+        LocalDateTime userTime = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_000);
+        LocalDateTime tombstoneTime = LocalDateTime.of(2024, 5, 2, 8, 0, 0, 1_000);
+
+        SyncCursor cursor = SyncCursor.decode(new SyncCursor(userTime, 42L, tombstoneTime, 7L).encode());
+
+        assertThat(cursor.userTime).isEqualTo(userTime);
+        assertThat(cursor.userId).isEqualTo(42L);
+        assertThat(cursor.tombstoneTime).isEqualTo(tombstoneTime);
+        assertThat(cursor.tombstoneId).isEqualTo(7L);
+    }
+
+    @Test
+    void encode_ShouldProduceUrlSafeToken() {
+        String token = SyncCursor.initial(LocalDateTime.of(2024, 5, 1, 0, 0)).encode();
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void decode_ShouldRejectForeignOrDamagedCursor() {
+        assertThatThrownBy(() -> SyncCursor.decode("not a cursor"))
+                .isInstanceOf(InvalidSyncCursorException.class);
+        assertThatThrownBy(() -> SyncCursor.decode("djI6MTox"))
+                .isInstanceOf(InvalidSyncCursorException.class);
+    }
+}
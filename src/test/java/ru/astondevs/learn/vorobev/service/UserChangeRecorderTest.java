@@ -0,0 +1,113 @@
+package ru.astondevs.learn.vorobev.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.astondevs.learn.vorobev.dto.UserChangeEvent;
+import ru.astondevs.learn.vorobev.dto.UserSnapshot;
+import ru.astondevs.learn.vorobev.entity.OutboxEvent;
+import ru.astondevs.learn.vorobev.entity.User;
+import ru.astondevs.learn.vorobev.entity.UserTombstone;
+import ru.astondevs.learn.vorobev.repository.OutboxEventRepository;
+import ru.astondevs.learn.vorobev.repository.UserTombstoneRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class UserChangeRecorderTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private UserTombstoneRepository userTombstoneRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private UserChangeRecorder userChangeRecorder;
+
+    @BeforeEach
+    void setUp() {
+        userChangeRecorder = new UserChangeRecorder(outboxEventRepository, userTombstoneRepository, objectMapper);
+    }
+
+    @Test
+    void recordCreate_ShouldWriteOutboxEventWithoutBefore() throws Exception {
+        userChangeRecorder.recordCreate(user("ivan@example.com"));
+
+        UserChangeEvent event = payload(savedEvents(1)[0]);
+        assertThat(event.getOperation()).isEqualTo(UserChangeRecorder.CREATE);
+        assertThat(event.getBefore()).isNull();
+        assertThat(event.getAfter().getEmail()).isEqualTo("ivan@example.com");
+        verify(userTombstoneRepository, never()).save(any());
+    }
+
+    @Test
+    void recordUpdate_ShouldWriteBeforeAndAfterKeyedByUserId() throws Exception {
+        UserSnapshot before = UserSnapshot.fromEntity(user("old@example.com"));
+
+        userChangeRecorder.recordUpdate(before, user("new@example.com"));
+
+        OutboxEvent saved = savedEvents(1)[0];
+        UserChangeEvent event = payload(saved);
+        assertThat(saved.getAggregateId()).isEqualTo(1L);
+        assertThat(saved.getOperation()).isEqualTo(UserChangeRecorder.UPDATE);
+        assertThat(event.getBefore().getEmail()).isEqualTo("old@example.com");
+        assertThat(event.getAfter().getEmail()).isEqualTo("new@example.com");
+    }
+
+    @Test
+    void recordDelete_ShouldWriteOutboxEventAndTombstone() throws Exception {
+        userChangeRecorder.recordDelete(user("ivan@example.com"));
+
+        UserChangeEvent event = payload(savedEvents(1)[0]);
+        assertThat(event.getOperation()).isEqualTo(UserChangeRecorder.DELETE);
+        assertThat(event.getBefore().getEmail()).isEqualTo("ivan@example.com");
+        assertThat(event.getAfter()).isNull();
+
+        ArgumentCaptor<UserTombstone> tombstone = ArgumentCaptor.forClass(UserTombstone.class);
+        verify(userTombstoneRepository).save(tombstone.capture());
+        assertThat(tombstone.getValue().getUserId()).isEqualTo(1L);
+        assertThat(tombstone.getValue().getDeletedAt()).isNotNull();
+    }
+
+    @Test
+    void record_ShouldKeepCallOrder_WhenSameUserChangesTwice() throws Exception {
+        User user = user("ivan@example.com");
+
+        userChangeRecorder.recordCreate(user);
+        userChangeRecorder.recordDelete(user);
+
+        OutboxEvent[] saved = savedEvents(2);
+        assertThat(payload(saved[0]).getOperation()).isEqualTo(UserChangeRecorder.CREATE);
+        assertThat(payload(saved[1]).getOperation()).isEqualTo(UserChangeRecorder.DELETE);
+        assertThat(saved[0].getCreatedAt()).isBeforeOrEqualTo(saved[1].getCreatedAt());
+    }
+
+    private OutboxEvent[] savedEvents(int count) {
+        ArgumentCaptor<OutboxEvent> captor = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository, times(count)).save(captor.capture());
+        return captor.getAllValues().toArray(new OutboxEvent[0]);
+    }
+
+    private UserChangeEvent payload(OutboxEvent event) throws Exception {
+        return objectMapper.readValue(event.getPayload(), UserChangeEvent.class);
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .id(1L)
+                .name("Иван")
+                .email(email)
+                .age(30)
+                .build();
+    }
+}
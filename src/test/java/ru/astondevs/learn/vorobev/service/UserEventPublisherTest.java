@@ -0,0 +1,55 @@
+package ru.astondevs.learn.vorobev.service;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.ThreadPoolBulkhead;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import ru.astondevs.learn.vorobev.dto.UserEvent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class UserEventPublisherTest {
+
+    @Mock
+    private KafkaTemplate<String, UserEvent> kafkaTemplate;
+
+    @InjectMocks
+    private UserEventPublisher userEventPublisher;
+
+    @Test
+    void publish_ShouldSendEventKeyedByUserId() {
+        UserEvent event = new UserEvent(7L, 2L, "ivan@example.com", "CREATE");
+
+        userEventPublisher.publish(event);
+
+        verify(kafkaTemplate, times(1)).send("user-events", "7", event);
+    }
+
+    @Test
+    void publishRejected_ShouldDropEventWithoutSending_WhenPoolIsFull() {
+        UserEvent event = new UserEvent(7L, 2L, "ivan@example.com", "DELETE");
+        BulkheadFullException rejection =
+                BulkheadFullException.createBulkheadFullException(ThreadPoolBulkhead.ofDefaults("kafkaPublisher"));
+
+        CompletableFuture<SendResult<String, UserEvent>> result = userEventPublisher.publishRejected(event, rejection);
+
+        assertThat(result).isCompletedExceptionally();
+        assertThatThrownBy(result::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCause(rejection);
+        verifyNoInteractions(kafkaTemplate);
+    }
+}
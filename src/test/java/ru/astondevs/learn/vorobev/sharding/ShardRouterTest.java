@@ -0,0 +1,42 @@
+package ru.astondevs.learn.vorobev.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardRouterTest {
+
+    @Test
+    void shardOf_ShouldFollowBucketEncodedInId() {
+        ShardRouter router = new ShardRouter(3);
+
+        long id = router.idFor(12345L);
+
+        assertThat(ShardRouter.bucketOf(id)).isEqualTo(ShardRouter.bucketFor(12345L));
+        assertThat(router.shardOf(id)).isEqualTo(router.shardOfBucket(ShardRouter.bucketFor(12345L)));
+        assertThat(id >>> ShardRouter.BUCKET_BITS).isEqualTo(12345L);
+    }
+
+    @Test
+    void bucketFor_ShouldSpreadConsecutiveSequenceValuesEvenlyAcrossShards() {
+        ShardRouter router = new ShardRouter(4);
+        int[] perShard = new int[4];
+
+        for (long sequence = 1; sequence <= 10_000; sequence++) {
+            perShard[router.shardOf(router.idFor(sequence))]++;
+        }
+
+        for (int count : perShard) {
+            assertThat(count).isBetween(2_000, 3_000);
+        }
+    }
+
+    @Test
+    void constructor_ShouldRejectMoreShardsThanBuckets() {
+        assertThatThrownBy(() -> new ShardRouter(ShardRouter.BUCKETS + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ShardRouter(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.astondevs.learn.vorobev.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.astondevs.learn.vorobev.config.RateLimitProperties;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(2).toNanos();
+
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.Concurrency properties = new RateLimitProperties.Concurrency();
+        properties.setInitialLimit(4);
+        properties.setMinLimit(2);
+        properties.setMaxLimit(6);
+        properties.setLatencyThreshold(Duration.ofMillis(500));
+        properties.setBackoffRatio(0.5);
+        limiter = new AdaptiveConcurrencyLimiter(properties);
+    }
+
+    @Test
+    void tryAcquire_ShouldRejectAboveLimit() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.getInFlight()).isEqualTo(4);
+    }
+
+    @Test
+    void release_ShouldGrowLimit_WhenFastUnderLoad() {
+        for (int i = 0; i < 4; i++) {
+            limiter.tryAcquire();
+        }
+
+        limiter.release(FAST, false);
+
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void release_ShouldNotGrowLimit_WhenIdle() {
+        limiter.tryAcquire();
+
+        limiter.release(FAST, false);
+
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void release_ShouldShrinkLimit_WhenSlowOrOverloaded() {
+        limiter.tryAcquire();
+        limiter.release(SLOW, false);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+
+        limiter.tryAcquire();
+        limiter.release(FAST, true);
+        assertThat(limiter.getLimit()).isEqualTo(2); // не ниже min-limit
+    }
+
+    @Test
+    void release_WithoutSample_ShouldKeepLimit() {
+        limiter.tryAcquire();
+
+        limiter.release();
+
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+}
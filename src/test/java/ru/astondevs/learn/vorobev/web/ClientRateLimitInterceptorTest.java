@@ -0,0 +1,123 @@
+package ru.astondevs.learn.vorobev.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.astondevs.learn.vorobev.config.RateLimitProperties;
+import ru.astondevs.learn.vorobev.exception.RateLimitExceededException;
+import ru.astondevs.learn.vorobev.exception.ServiceOverloadedException;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClientRateLimitInterceptorTest {
+
+    private RateLimitProperties properties;
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private ClientRateLimitInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.setRead(new RateLimitProperties.Budget(2, Duration.ofMinutes(1)));
+        properties.setWrite(new RateLimitProperties.Budget(1, Duration.ofMinutes(1)));
+        properties.setApiKeys(Set.of("client-a", "client-b", "client-c"));
+        concurrencyLimiter = new AdaptiveConcurrencyLimiter(properties.getConcurrency());
+        interceptor = new ClientRateLimitInterceptor(properties, concurrencyLimiter, new ClientIdResolver(properties));
+    }
+
+    @Test
+    void preHandle_ShouldRejectClientOverReadBudget() {
+        assertThat(handle(request("GET", "client-a"))).isTrue();
+        assertThat(handle(request("GET", "client-a"))).isTrue();
+
+        assertThatThrownBy(() -> handle(request("GET", "client-a")))
+                .isInstanceOf(RateLimitExceededException.class)
+                .extracting("retryAfterSeconds").isEqualTo(60L);
+    }
+
+    @Test
+    void preHandle_ShouldKeepSeparateBudgetsPerClientAndKind() {
+        handle(request("POST", "client-a"));
+
+        assertThatThrownBy(() -> handle(request("POST", "client-a")))
+                .isInstanceOf(RateLimitExceededException.class);
+        assertThat(handle(request("GET", "client-a"))).isTrue();
+        assertThat(handle(request("POST", "client-b"))).isTrue();
+    }
+
+    @Test
+    void preHandle_ShouldShareBudget_WhenClientRotatesUnknownKeys() {
+        assertThat(handle(request("GET", "random-1"))).isTrue();
+        assertThat(handle(request("GET", "random-2"))).isTrue();
+
+        assertThatThrownBy(() -> handle(request("GET", "random-3")))
+                .isInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    void preHandle_ShouldUseAddressAppendedByGateway_WhenClientSpoofsForwardedFor() {
+        assertThat(handle(forwarded("1.1.1.1, 203.0.113.7"))).isTrue();
+        assertThat(handle(forwarded("2.2.2.2, 203.0.113.7"))).isTrue();
+
+        assertThatThrownBy(() -> handle(forwarded("3.3.3.3, 203.0.113.7")))
+                .isInstanceOf(RateLimitExceededException.class);
+        assertThat(handle(forwarded("203.0.113.8"))).isTrue();
+    }
+
+    @Test
+    void preHandle_ShouldApplyBudgetChangedAtRuntime() {
+        handle(request("POST", "client-a"));
+        assertThatThrownBy(() -> handle(request("POST", "client-a")))
+                .isInstanceOf(RateLimitExceededException.class);
+
+        // Так бюджет меняется после /actuator/refresh: свойства перепривязываются на месте
+        properties.setWrite(new RateLimitProperties.Budget(5, Duration.ofMinutes(2)));
+
+        assertThat(handle(request("POST", "client-a"))).isTrue();
+    }
+
+    @Test
+    void preHandle_ShouldShedLoad_WhenConcurrencyLimitReached() {
+        properties.setRead(new RateLimitProperties.Budget(1000, Duration.ofMinutes(1)));
+        int limit = concurrencyLimiter.getLimit();
+        for (int i = 0; i < limit; i++) {
+            concurrencyLimiter.tryAcquire();
+        }
+
+        assertThatThrownBy(() -> handle(request("GET", "client-c")))
+                .isInstanceOf(ServiceOverloadedException.class);
+    }
+
+    @Test
+    void afterCompletion_ShouldReleaseConcurrencyPermit() {
+        MockHttpServletRequest request = request("GET", "client-a");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, new Object());
+        assertThat(concurrencyLimiter.getInFlight()).isEqualTo(1);
+
+        interceptor.afterCompletion(request, response, new Object(), null);
+        assertThat(concurrencyLimiter.getInFlight()).isZero();
+    }
+
+    private boolean handle(MockHttpServletRequest request) {
+        return interceptor.preHandle(request, new MockHttpServletResponse(), new Object());
+    }
+
+    private static MockHttpServletRequest request(String method, String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/v1/users");
+        request.addHeader("X-API-Key", apiKey);
+        return request;
+    }
+
+    private static MockHttpServletRequest forwarded(String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/users");
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        return request;
+    }
+}
@@ -0,0 +1,54 @@
+package ru.astondevs.learn.vorobev.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EncodedResponseCacheTest {
+
+    private final EncodedResponseCache cache = new EncodedResponseCache(100, Duration.ofMinutes(1), "http://localhost/");
+
+    @Test
+    void put_ShouldSkipResponse_WhenUserInvalidatedWhileItWasBuilt() {
+        long generation = cache.generation(1L);
+
+        // Обновление зафиксировано, пока контроллер строил ответ по старым данным
+        cache.invalidate(1L);
+
+        assertThat(cache.put(1L, "*/*", generation, "application/hal+json", bytes("old"))).isNull();
+        assertThat(cache.get(1L, "*/*")).isNull();
+
+        assertThat(cache.put(1L, "*/*", cache.generation(1L), "application/hal+json", bytes("new"))).isNotNull();
+        assertThat(cache.get(1L, "*/*").body).isEqualTo(bytes("new"));
+    }
+
+    @Test
+    void variant_ShouldBeBounded_WhateverHeadersClientSends() {
+        assertThat(cache.variant(request(null))).isEqualTo("*/*");
+        assertThat(cache.variant(request("application/json"))).isEqualTo("application/json");
+        assertThat(cache.variant(request("application/cbor;q=0.9"))).isEqualTo("application/cbor");
+        assertThat(cache.variant(request("application/x-random-" + System.nanoTime()))).isNull();
+        assertThat(cache.variant(request("application/json, text/plain"))).isNull();
+        assertThat(cache.variant(request("не тип"))).isNull();
+
+        MockHttpServletRequest foreignHost = request("application/json");
+        foreignHost.setServerName("attacker.example");
+        assertThat(cache.variant(foreignHost)).isNull();
+    }
+
+    private static MockHttpServletRequest request(String accept) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/users/1");
+        if (accept != null) {
+            request.addHeader("Accept", accept);
+        }
+        return request;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
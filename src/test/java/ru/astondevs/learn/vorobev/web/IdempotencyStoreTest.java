@@ -0,0 +1,126 @@
+package ru.astondevs.learn.vorobev.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.astondevs.learn.vorobev.dto.CreateUserRequest;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+import ru.astondevs.learn.vorobev.exception.IdempotencyKeyConflictException;
+import ru.astondevs.learn.vorobev.exception.IdempotencyKeyMismatchException;
+import ru.astondevs.learn.vorobev.exception.InvalidIdempotencyKeyException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyStoreTest {
+
+    private static final CreateUserRequest REQUEST = new CreateUserRequest("Иван Иванов", "ivan@example.com", 25);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private InMemoryIdempotencyRecords records;
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        records = new InMemoryIdempotencyRecords(Duration.ofMinutes(10), 1000);
+        store = new IdempotencyStore(records, objectMapper, 10, Duration.ofSeconds(30));
+    }
+
+    @Test
+    void execute_ShouldReplayStoredResponse_WhenSameClientRepeatsKey() {
+        IdempotencyStore.Outcome first = store.execute("key:a", "k1", REQUEST, this::create);
+        IdempotencyStore.Outcome second = store.execute("key:a", "k1", REQUEST, this::create);
+
+        assertThat(first.isReplayed()).isFalse();
+        assertThat(second.isReplayed()).isTrue();
+        assertThat(second.getResponse().getId()).isEqualTo(first.getResponse().getId());
+        assertThat(second.getResponse().getEmail()).isEqualTo("ivan@example.com");
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void execute_ShouldScopeKeysByClient() {
+        store.execute("key:a", "k1", REQUEST, this::create);
+        IdempotencyStore.Outcome other = store.execute("key:b", "k1", REQUEST, this::create);
+
+        assertThat(other.isReplayed()).isFalse();
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void execute_ShouldRejectOtherBody_WithSameKey() {
+        store.execute("key:a", "k1", REQUEST, this::create);
+
+        CreateUserRequest other = new CreateUserRequest("Петр Петров", "petr@example.com", 30);
+        assertThatThrownBy(() -> store.execute("key:a", "k1", other, this::create))
+                .isInstanceOf(IdempotencyKeyMismatchException.class);
+    }
+
+    @Test
+    void execute_ShouldRejectTooLongKey_AsInvalid() {
+        assertThatThrownBy(() -> store.execute("key:a", "k".repeat(256), REQUEST, this::create))
+                .isInstanceOf(InvalidIdempotencyKeyException.class);
+        assertThat(executions).hasValue(0);
+    }
+
+    @Test
+    void execute_ShouldReturnConflict_WhileKeyIsInProgress() {
+        LocalDateTime now = LocalDateTime.now();
+        records.claim("key:a", "k1", store.hash(REQUEST), "other-instance", now, now.plusSeconds(30));
+
+        assertThatThrownBy(() -> store.execute("key:a", "k1", REQUEST, this::create))
+                .isInstanceOf(IdempotencyKeyConflictException.class);
+        assertThat(executions).hasValue(0);
+    }
+
+    @Test
+    void execute_ShouldTakeOverKey_WhenOwnerMissedLockTimeout() {
+        LocalDateTime now = LocalDateTime.now();
+        records.claim("key:a", "k1", store.hash(REQUEST), "crashed-instance", now.minusMinutes(1), now.minusSeconds(1));
+
+        IdempotencyStore.Outcome outcome = store.execute("key:a", "k1", REQUEST, this::create);
+
+        assertThat(outcome.isReplayed()).isFalse();
+        assertThat(executions).hasValue(1);
+        assertThat(records.find("key:a", "k1")).get()
+                .satisfies(entry -> assertThat(entry.getResponse()).isNotNull());
+    }
+
+    @Test
+    void execute_ShouldReleaseKey_WhenActionFails() {
+        Supplier<UserResponse> failing = () -> {
+            throw new IllegalStateException("БД недоступна");
+        };
+
+        assertThatThrownBy(() -> store.execute("key:a", "k1", REQUEST, failing))
+                .isInstanceOf(IllegalStateException.class);
+        IdempotencyStore.Outcome retried = store.execute("key:a", "k1", REQUEST, this::create);
+
+        assertThat(retried.isReplayed()).isFalse();
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void execute_ShouldReuseKey_AfterTtl() {
+        LocalDateTime longAgo = LocalDateTime.now().minusHours(1);
+        records.claim("key:a", "k1", "stale-hash", "old", longAgo, longAgo.plusSeconds(30));
+        records.complete("key:a", "k1", "{}");
+
+        IdempotencyStore.Outcome outcome = store.execute("key:a", "k1", REQUEST, this::create);
+
+        assertThat(outcome.isReplayed()).isFalse();
+        assertThat(executions).hasValue(1);
+    }
+
+    private UserResponse create() {
+        int id = executions.incrementAndGet();
+        return new UserResponse((long) id, "Иван Иванов", "ivan@example.com", 25, LocalDateTime.now());
+    }
+}
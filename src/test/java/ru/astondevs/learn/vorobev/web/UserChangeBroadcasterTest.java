@@ -0,0 +1,177 @@
+package ru.astondevs.learn.vorobev.web;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.astondevs.learn.vorobev.dto.UserChangeEvent;
+import ru.astondevs.learn.vorobev.exception.ServiceOverloadedException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserChangeBroadcasterTest {
+
+    private UserChangeBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new UserChangeBroadcaster(1);
+        ReflectionTestUtils.setField(broadcaster, "maxSubscribers", 3);
+        ReflectionTestUtils.setField(broadcaster, "queueCapacity", 2);
+        ReflectionTestUtils.setField(broadcaster, "timeout", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(broadcaster, "writeTimeout", Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void onUserChange_ShouldDeliverOnlySubscribedUsers() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(1);
+        broadcaster.register(emitter, Set.of(1L));
+
+        broadcaster.onUserChange(change(2L, "UPDATE"));
+        broadcaster.onUserChange(change(1L, "DELETE"));
+
+        assertThat(emitter.delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(emitter.events()).containsExactly("DELETE");
+    }
+
+    @Test
+    void onUserChange_ShouldReplaceBacklogWithResync_WhenSubscriberIsSlow() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(2);
+        emitter.blockFirstSend();
+        broadcaster.register(emitter, null);
+
+        broadcaster.onUserChange(change(1L, "CREATE"));
+        assertThat(emitter.firstSendStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        // Пока первое событие «отправляется», очередь на 2 места переполняется
+        for (long id = 2; id <= 5; id++) {
+            broadcaster.onUserChange(change(id, "UPDATE"));
+        }
+        emitter.releaseFirstSend.countDown();
+
+        assertThat(emitter.delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(emitter.events()).startsWith("CREATE").contains(UserChangeBroadcaster.RESYNC_EVENT);
+        assertThat(emitter.events()).hasSizeLessThan(5);
+    }
+
+    @Test
+    void onUserChange_ShouldSendSameFrameToEverySubscriber() throws Exception {
+        List<RecordingEmitter> emitters = List.of(new RecordingEmitter(2), new RecordingEmitter(2), new RecordingEmitter(2));
+        emitters.forEach(emitter -> broadcaster.register(emitter, null));
+
+        broadcaster.onUserChange(change(1L, "UPDATE"));
+        broadcaster.heartbeat();
+
+        for (RecordingEmitter emitter : emitters) {
+            assertThat(emitter.delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+        List<String> frames = emitters.get(0).sent;
+        assertThat(frames).hasSize(2);
+        assertThat(frames.get(0)).startsWith("event:UPDATE\n").endsWith("\n\n").doesNotEndWith("\n\n\n");
+        assertThat(frames.get(1)).isEqualTo(":heartbeat\n\n");
+        assertThat(emitters.get(1).sent).isEqualTo(frames);
+        assertThat(emitters.get(2).sent).isEqualTo(frames);
+    }
+
+    @Test
+    void dropStalledSubscribers_ShouldDisconnectClientThatStopsReading() throws Exception {
+        RecordingEmitter stuck = new RecordingEmitter(1);
+        stuck.blockFirstSend();
+        broadcaster.register(stuck, null);
+        broadcaster.onUserChange(change(1L, "CREATE"));
+        // Единственный поток рассылки занят записью клиенту, который не читает
+        assertThat(stuck.firstSendStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        RecordingEmitter reader = new RecordingEmitter(1);
+        broadcaster.register(reader, null);
+        broadcaster.onUserChange(change(2L, "UPDATE"));
+        Thread.sleep(100);
+        broadcaster.dropStalledSubscribers();
+
+        assertThat(reader.delivered.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(reader.events()).containsExactly("UPDATE");
+        assertThat(broadcaster.subscriberCount()).isEqualTo(1);
+        // Планировщик не трогает emitter, пока send держит его монитор
+        assertThat(stuck.failed.getCount()).isEqualTo(1);
+
+        stuck.releaseFirstSend.countDown();
+        assertThat(stuck.failed.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(stuck.failedOn).startsWith("sse-dispatch-");
+    }
+
+    @Test
+    void register_ShouldReject_WhenSubscriberLimitReached() {
+        broadcaster.register(new RecordingEmitter(0), null);
+        broadcaster.register(new RecordingEmitter(0), null);
+        broadcaster.register(new RecordingEmitter(0), null);
+
+        assertThatThrownBy(() -> broadcaster.register(new RecordingEmitter(0), null))
+                .isInstanceOf(ServiceOverloadedException.class);
+        assertThat(broadcaster.subscriberCount()).isEqualTo(3);
+    }
+
+    private static UserChangeEvent change(long id, String operation) {
+        return new UserChangeEvent(id, operation, null, null, LocalDateTime.now());
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private final CountDownLatch delivered;
+        private final CountDownLatch firstSendStarted = new CountDownLatch(1);
+        private final CountDownLatch failed = new CountDownLatch(1);
+        private CountDownLatch releaseFirstSend = new CountDownLatch(0);
+        private volatile String failedOn;
+
+        private RecordingEmitter(int expected) {
+            this.delivered = new CountDownLatch(expected);
+        }
+
+        void blockFirstSend() {
+            releaseFirstSend = new CountDownLatch(1);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            firstSendStarted.countDown();
+            try {
+                releaseFirstSend.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String text = builder.build().stream()
+                    .map(part -> String.valueOf(part.getData()))
+                    .collect(Collectors.joining());
+            sent.add(text);
+            delivered.countDown();
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            failedOn = Thread.currentThread().getName();
+            failed.countDown();
+        }
+
+        List<String> events() {
+            return sent.stream()
+                    .filter(text -> text.startsWith("event:"))
+                    .map(text -> text.substring("event:".length(), text.indexOf('\n')))
+                    .collect(Collectors.toList());
+        }
+    }
+}
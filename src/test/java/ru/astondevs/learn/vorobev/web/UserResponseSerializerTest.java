@@ -0,0 +1,84 @@
+package ru.astondevs.learn.vorobev.web;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import ru.astondevs.learn.vorobev.dto.UserResponse;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserResponseSerializerTest {
+
+    @Test
+    void serialize_ShouldMatchDefaultHalOutputByteForByte() throws Exception {
+        assertSameBytes(hal(false), hal(true), withLinks(user(1L)));
+        assertSameBytes(hal(false), hal(true), user(2L));
+        assertSameBytes(hal(false), hal(true), List.of(withLinks(user(3L)), withLinks(user(4L))));
+    }
+
+    @Test
+    void serialize_ShouldMatchDefaultPlainJsonOutputByteForByte() throws Exception {
+        assertSameBytes(plain(false), plain(true), withLinks(user(1L)));
+        assertSameBytes(plain(false), plain(true), new UserResponse(null, null, null, null, null));
+    }
+
+    @Test
+    void serialize_ShouldRespectNonNullInclusion() throws Exception {
+        ObjectMapper expected = plain(false).setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        ObjectMapper actual = plain(true).setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+        assertSameBytes(expected, actual, new UserResponse(5L, "Иван", null, null, null));
+    }
+
+    @Test
+    void serialize_ShouldFormatCreatedAtWithDeclaredPattern() throws Exception {
+        String json = hal(true).writeValueAsString(user(1L));
+
+        assertThat(json).contains("\"createdAt\":\"2024-05-01 12:30:15\"");
+    }
+
+    private static void assertSameBytes(ObjectMapper expected, ObjectMapper actual, Object value) throws Exception {
+        assertThat(actual.writeValueAsBytes(value)).isEqualTo(expected.writeValueAsBytes(value));
+    }
+
+    private static ObjectMapper plain(boolean tuned) {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        if (tuned) {
+            mapper.registerModule(new BlackbirdModule());
+            mapper.registerModule(new SimpleModule("user-response").setSerializerModifier(UserResponseSerializer.modifier()));
+        }
+        return mapper;
+    }
+
+    private static ObjectMapper hal(boolean tuned) {
+        ObjectMapper mapper = plain(tuned);
+        mapper.registerModule(new Jackson2HalModule());
+        mapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                new DefaultLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        return mapper;
+    }
+
+    private static UserResponse user(Long id) {
+        return new UserResponse(id, "Иван \"Ваня\" Иванов", "ivan" + id + "@example.com", 25,
+                LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000));
+    }
+
+    private static UserResponse withLinks(UserResponse user) {
+        user.add(Link.of("http://localhost/api/v1/users/" + user.getId()).withSelfRel());
+        user.add(Link.of("http://localhost/api/v1/users").withRel("users_list"));
+        user.add(Link.of("http://localhost/api/v1/users/" + user.getId()).withRel("update"));
+        user.add(Link.of("http://localhost/api/v1/users/" + user.getId()).withRel("delete"));
+        return user;
+    }
+}